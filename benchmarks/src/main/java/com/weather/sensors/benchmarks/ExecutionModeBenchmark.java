@@ -0,0 +1,223 @@
+package com.weather.sensors.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.modelmapper.ModelMapper;
+import org.springframework.http.HttpEntity;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weather.sensors.dto.SensorDTO;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.models.WeatherData;
+import com.weather.sensors.services.ExecutionMode;
+import com.weather.sensors.services.MeasurementScheduler;
+import com.weather.sensors.services.ServerCircuitBreaker;
+import com.weather.sensors.services.ServerConcurrencyLimiter;
+import com.weather.sensors.simulation.RandomWalkWeatherSimulator;
+import com.weather.sensors.simulation.WeatherSimulator;
+import com.weather.sensors.transport.HttpClientTransport;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Compares the original single-thread measure loop with the measurement scheduler on platform and on virtual threads,
+ * and with the non-blocking {@link HttpClientTransport}.
+ * Every mode drives the same number of sensors against a local stub server with a fixed response latency and reports
+ * sends per second and the p99 cycle lag, i.e. how late a sensor's measurement started compared to its cadence.
+ *
+ * <pre>mvn -q exec:java -Dexec.args="sensors=2000 interval=1000 latency=20 duration=15"</pre>
+ */
+public class ExecutionModeBenchmark {
+    private static WeatherSimulator simulator;
+
+    public static void main(String[] args) throws Exception {
+        int sensors = intArg(args, "sensors", 2000);
+        int interval = intArg(args, "interval", 1000);
+        int latency = intArg(args, "latency", 20);
+        int duration = intArg(args, "duration", 15);
+        int workers = intArg(args, "workers", 16);
+        int perServer = intArg(args, "per-server", 256);
+
+        try (StubMeasurementsServer server = new StubMeasurementsServer(latency)) {
+            System.out.printf("%d sensors, %d ms interval, %d ms server latency, %d s per mode%n", sensors, interval, latency, duration);
+            print("single-thread loop", runLegacyLoop(server, sensors, interval, duration));
+            print("scheduler/platform", runScheduler(server, sensors, interval, duration, workers, perServer, ExecutionMode.PLATFORM));
+            print("scheduler/virtual", runScheduler(server, sensors, interval, duration, workers, perServer, ExecutionMode.VIRTUAL));
+            print("scheduler/http-client", runHttpClient(server, sensors, interval, duration, workers, perServer));
+        }
+    }
+
+    static Result runLegacyLoop(StubMeasurementsServer server, int sensorCount, int interval, int duration) throws InterruptedException {
+        List<Sensor> sensors = sensors(sensorCount, server.getURL());
+        LagRecorder recorder = new LagRecorder(sensorCount, interval);
+        Consumer<Sensor> send = sender(recorder);
+
+        Thread loop = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                for (Sensor sensor : sensors) send.accept(sensor);
+                try {
+                    Thread.sleep(interval);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        loop.start();
+        Thread.sleep(duration * 1000L);
+        loop.interrupt();
+        loop.join();
+
+        return recorder.result();
+    }
+
+    static Result runScheduler(StubMeasurementsServer server, int sensorCount, int interval, int duration, int workers, int perServer, ExecutionMode mode) throws InterruptedException {
+        List<Sensor> sensors = sensors(sensorCount, server.getURL());
+        LagRecorder recorder = new LagRecorder(sensorCount, interval);
+        ServerConcurrencyLimiter limiter = new ServerConcurrencyLimiter(new ServerCircuitBreaker(true, 5, 10000, 1, new SimpleMeterRegistry()), perServer);
+        Consumer<Sensor> send = sender(recorder);
+        MeasurementScheduler scheduler = new MeasurementScheduler(interval, interval, workers, sensorCount, mode, new SimpleMeterRegistry());
+
+        for (Sensor sensor : sensors) scheduler.schedule(sensor, s -> limiter.run(s.getServerURL(), () -> send.accept(s)));
+        Thread.sleep(duration * 1000L);
+        scheduler.shutdown();
+
+        return recorder.result();
+    }
+
+    static Result runHttpClient(StubMeasurementsServer server, int sensorCount, int interval, int duration, int workers, int perServer) throws InterruptedException {
+        List<Sensor> sensors = sensors(sensorCount, server.getURL());
+        LagRecorder recorder = new LagRecorder(sensorCount, interval);
+        ServerConcurrencyLimiter limiter = new ServerConcurrencyLimiter(new ServerCircuitBreaker(true, 5, 10000, 1, new SimpleMeterRegistry()), perServer);
+        HttpClientTransport transport = new HttpClientTransport(new ObjectMapper(), 2000, 5000, false, perServer);
+        ModelMapper modelMapper = new ModelMapper();
+        MeasurementScheduler scheduler = new MeasurementScheduler(interval, interval, workers, sensorCount, ExecutionMode.PLATFORM, new SimpleMeterRegistry());
+
+        for (Sensor sensor : sensors) {
+            scheduler.scheduleAsync(sensor, s -> {
+                recorder.record(s.getId());
+                measure(s);
+                SensorDTO sensorDTO = modelMapper.map(s, SensorDTO.class);
+                CompletableFuture<Void> sent = limiter.callAsync(s.getServerURL(), () -> transport.post(s.getServerURL() + "/measurements/add", sensorDTO));
+                return sent.thenRun(recorder::sent);
+            });
+        }
+        Thread.sleep(duration * 1000L);
+        scheduler.shutdown();
+
+        return recorder.result();
+    }
+
+    private static Consumer<Sensor> sender(LagRecorder recorder) {
+        RestTemplate restTemplate = new RestTemplate();
+        ModelMapper modelMapper = new ModelMapper();
+        return sensor -> {
+            recorder.record(sensor.getId());
+            measure(sensor);
+            HttpEntity<SensorDTO> httpEntity = new HttpEntity<SensorDTO>(modelMapper.map(sensor, SensorDTO.class));
+            restTemplate.postForLocation(sensor.getServerURL() + "/measurements/add", httpEntity);
+            recorder.sent();
+        };
+    }
+
+    private static void measure(Sensor sensor) {
+        simulator.advance(sensor.getSimulationSlot());
+        WeatherData weatherData = sensor.getWeatherData();
+        weatherData.setTemperature(simulator.temperature(sensor.getSimulationSlot()));
+        weatherData.setRaining(simulator.raining(sensor.getSimulationSlot()));
+    }
+
+    private static List<Sensor> sensors(int count, String serverURL) {
+        simulator = new RandomWalkWeatherSimulator();
+        List<Sensor> sensors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Sensor sensor = new Sensor();
+            sensor.setId(i);
+            sensor.setName("sensor-" + i);
+            sensor.setServerURL(serverURL);
+            sensor.setRegistered(true);
+            sensor.setWeatherData(new WeatherData());
+            sensor.setSimulationSlot(simulator.register());
+            sensors.add(sensor);
+        }
+        return sensors;
+    }
+
+    private static void print(String mode, Result result) {
+        System.out.printf("%-20s %10.1f sends/s   p50 lag %8.1f ms   p99 lag %8.1f ms%n", mode, result.sendsPerSecond, result.p50LagMillis, result.p99LagMillis);
+    }
+
+    static int intArg(String[] args, String name, int defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(name + "=")) return Integer.parseInt(arg.substring(name.length() + 1));
+        }
+        return defaultValue;
+    }
+
+    record Result(double sendsPerSecond, double p50LagMillis, double p99LagMillis) {
+    }
+
+    /**
+     * A sensor's k-th measurement is due {@code k * interval} after its first one; lag is how much later it actually started.
+     * Sensors that are overdue when the run ends (including ones never measured at all) count with their current lag.
+     */
+    static class LagRecorder {
+        private final long start = System.nanoTime();
+        private final long intervalNanos;
+        private final long[] firstStart;
+        private final long[] lastStart;
+        private final int[] measurements;
+        private final long[] lags;
+        private final AtomicInteger lagCount = new AtomicInteger();
+        private final AtomicLong sends = new AtomicLong();
+
+        LagRecorder(int sensors, int intervalMillis) {
+            this.intervalNanos = intervalMillis * 1_000_000L;
+            this.firstStart = new long[sensors];
+            this.lastStart = new long[sensors];
+            this.measurements = new int[sensors];
+            this.lags = new long[1 << 22];
+        }
+
+        void record(int sensorId) {
+            long now = System.nanoTime();
+            int k = measurements[sensorId]++;
+            lastStart[sensorId] = now;
+            if (k == 0) {
+                firstStart[sensorId] = now;
+                return;
+            }
+            int index = lagCount.getAndIncrement();
+            if (index < lags.length) lags[index] = Math.max(0, now - firstStart[sensorId] - k * intervalNanos);
+        }
+
+        void sent() {
+            sends.incrementAndGet();
+        }
+
+        Result result() {
+            long end = System.nanoTime();
+            int recorded = Math.min(lagCount.get(), lags.length);
+            long[] sorted = Arrays.copyOf(lags, recorded + measurements.length);
+            int count = recorded;
+            for (int sensorId = 0; sensorId < measurements.length; sensorId++) {
+                long due = (measurements[sensorId] == 0 ? start : lastStart[sensorId]) + intervalNanos;
+                if (end > due) sorted[count++] = end - due;
+            }
+            sorted = Arrays.copyOf(sorted, count);
+            Arrays.sort(sorted);
+            return new Result(sends.get() * 1e9 / (end - start), percentile(sorted, 0.50), percentile(sorted, 0.99));
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) return 0;
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.weather.sensors.benchmarks;
+
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.models.WeatherData;
+
+final class Fixtures {
+    private Fixtures() {
+    }
+
+    static Sensor sensor(int id, String serverURL) {
+        Sensor sensor = new Sensor();
+        sensor.setId(id);
+        sensor.setName("sensor-" + id);
+        sensor.setDescription("roof, north side");
+        sensor.setToken("8f14e45fceea167a5a36dedd4bea2543");
+        sensor.setServerURL(serverURL);
+        sensor.setRegistered(true);
+        sensor.setSessionId(4711);
+        sensor.setWeatherData(new WeatherData());
+        return sensor;
+    }
+}
@@ -0,0 +1,20 @@
+package com.weather.sensors.benchmarks;
+
+import com.weather.sensors.models.WeatherData;
+
+/**
+ * {@code Sensor.measure()} as it was before the weather simulator: one heap object per sensor,
+ * Math.pow per reading and the shared Math.random() generator. Kept as a baseline.
+ */
+final class LegacySimulation {
+
+    private LegacySimulation() {
+    }
+
+    static void measure(WeatherData weatherData) {
+        double preciseTemp = weatherData.getTemperature() + Math.random() * 8 * 2 - 8;
+        double roundedTemp = (double) (Math.ceil(preciseTemp * Math.pow(10, 2))) / 100;
+        weatherData.setTemperature(Math.max(-40, Math.min(40, roundedTemp)));
+        weatherData.setRaining(weatherData.isRaining() ? Math.random() < 0.7 : Math.random() > 0.8);
+    }
+}
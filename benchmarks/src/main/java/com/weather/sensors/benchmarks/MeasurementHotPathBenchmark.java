@@ -0,0 +1,82 @@
+package com.weather.sensors.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpEntity;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weather.sensors.dto.MeasurementDTO;
+import com.weather.sensors.dto.SensorDTO;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.simulation.RandomWalkWeatherSimulator;
+import com.weather.sensors.simulation.WeatherSimulator;
+import com.weather.sensors.transport.MeasurementJsonWriter;
+import com.weather.sensors.util.SensorMapper;
+
+/**
+ * Cost of producing one reading's request body: measure, map and encode. {@code legacy} is the path before the
+ * hand-written mapper and the simulator (Math.pow/Math.random in the entity, ModelMapper, HttpEntity, Jackson); run with {@code -prof gc}
+ * and compare {@code gc.alloc.rate.norm}, the bytes allocated per reading.
+ *
+ * <pre>java -jar target/benchmarks.jar MeasurementHotPathBenchmark -prof gc</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MeasurementHotPathBenchmark {
+    private Sensor sensor;
+    private WeatherSimulator simulator;
+    private int slot;
+    private ModelMapper modelMapper;
+    private ObjectMapper objectMapper;
+    private SensorMapper sensorMapper;
+    private MeasurementDTO measurement;
+
+    @Setup
+    public void setUp() {
+        sensor = Fixtures.sensor(17, "http://localhost:8080");
+
+        simulator = new RandomWalkWeatherSimulator(17);
+        slot = simulator.register();
+        simulator.advance(slot);
+
+        modelMapper = new ModelMapper();
+        objectMapper = new ObjectMapper();
+        sensorMapper = new SensorMapper();
+        measurement = new MeasurementDTO();
+    }
+
+    @Benchmark
+    public byte[] legacy() throws JsonProcessingException {
+        LegacySimulation.measure(sensor.getWeatherData());
+        HttpEntity<SensorDTO> httpEntity = new HttpEntity<SensorDTO>(modelMapper.map(sensor, SensorDTO.class));
+        return objectMapper.writeValueAsBytes(httpEntity.getBody());
+    }
+
+    @Benchmark
+    public int sensorJson() {
+        simulator.advance(slot);
+        return MeasurementJsonWriter.forCurrentThread().writeSensor(sensor, simulator.temperature(slot), simulator.raining(slot)).length();
+    }
+
+    @Benchmark
+    public int compactJson() {
+        simulator.advance(slot);
+        return MeasurementJsonWriter.forCurrentThread().writeMeasurement(sensorMapper.toMeasurement(sensor, simulator.temperature(slot), simulator.raining(slot), measurement)).length();
+    }
+}
@@ -0,0 +1,165 @@
+package com.weather.sensors.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.outbox.MeasurementOutbox;
+import com.weather.sensors.services.ExecutionMode;
+import com.weather.sensors.services.MeasurementBatcher;
+import com.weather.sensors.services.MeasurementScheduler;
+import com.weather.sensors.services.MeasurementSender;
+import com.weather.sensors.services.ServerCircuitBreaker;
+import com.weather.sensors.services.ServerConcurrencyLimiter;
+import com.weather.sensors.simulation.RandomWalkWeatherSimulator;
+import com.weather.sensors.simulation.WeatherSimulator;
+import com.weather.sensors.transport.HttpClientTransport;
+import com.weather.sensors.transport.MeasurementTransport;
+import com.weather.sensors.transport.RestTemplateTransport;
+import com.weather.sensors.transport.WireFormat;
+import com.weather.sensors.transport.WireFormatNegotiator;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * End-to-end run of the production measurement pipeline (scheduler, simulator, sender/batcher/outbox, transport)
+ * for N sensors against a local {@link StubMeasurementsServer}. After a warmup it reports readings and server
+ * requests per second, tick-to-completion latency percentiles, and the allocation rate of the whole JVM.
+ * With {@code path=batch} or {@code path=outbox} a reading completes once it is queued, so the latency there
+ * is the cost of handing it off, and the server request rate shows what was actually delivered.
+ *
+ * <pre>mvn -q exec:java -Dbenchmark.main=com.weather.sensors.benchmarks.PipelineHarness \
+ *     -Dexec.args="sensors=5000 interval=1000 latency=5 duration=20 transport=http-client path=single mode=platform encoding=json"</pre>
+ */
+public class PipelineHarness {
+
+    public static void main(String[] args) throws Exception {
+        int sensorCount = ExecutionModeBenchmark.intArg(args, "sensors", 5000);
+        int interval = ExecutionModeBenchmark.intArg(args, "interval", 1000);
+        int latency = ExecutionModeBenchmark.intArg(args, "latency", 5);
+        int duration = ExecutionModeBenchmark.intArg(args, "duration", 20);
+        int warmup = ExecutionModeBenchmark.intArg(args, "warmup", 5);
+        int workers = ExecutionModeBenchmark.intArg(args, "workers", 16);
+        int perServer = ExecutionModeBenchmark.intArg(args, "per-server", 256);
+        String transportType = stringArg(args, "transport", "http-client");
+        String path = stringArg(args, "path", "single");
+        ExecutionMode mode = ExecutionMode.valueOf(stringArg(args, "mode", "platform").toUpperCase());
+        WireFormat encoding = WireFormat.valueOf(stringArg(args, "encoding", "json").toUpperCase());
+
+        try (StubMeasurementsServer server = new StubMeasurementsServer(latency)) {
+            MeasurementTransport transport = "http-client".equals(transportType)
+                    ? new HttpClientTransport(new ObjectMapper(), 2000, 5000, false, 4096)
+                    : new RestTemplateTransport(new RestTemplate());
+            ServerConcurrencyLimiter limiter = new ServerConcurrencyLimiter(new ServerCircuitBreaker(true, 5, 10000, 1, new SimpleMeterRegistry()), perServer);
+            MeterRegistry registry = new SimpleMeterRegistry();
+            WireFormatNegotiator negotiator = new WireFormatNegotiator(encoding);
+            MeasurementSender sender = new MeasurementSender(transport, limiter, negotiator, registry);
+            MeasurementBatcher batcher = new MeasurementBatcher(transport, sender, limiter, negotiator, "batch".equals(path), 500, 200, workers, sensorCount, mode, registry);
+            Path outboxDir = Files.createTempDirectory("sensors-outbox");
+            MeasurementOutbox outbox = new MeasurementOutbox(transport, limiter, "outbox".equals(path), outboxDir, 16 << 20, 256L << 20, 256, 10, 1000, 500, 30000, 8, 1000, mode, registry);
+            WeatherSimulator simulator = new RandomWalkWeatherSimulator(42);
+            MeasurementScheduler scheduler = new MeasurementScheduler(interval, interval, workers, sensorCount, mode, registry);
+            LatencyRecorder recorder = new LatencyRecorder();
+
+            Function<Sensor, CompletableFuture<Void>> send = sensor -> {
+                int slot = sensor.getSimulationSlot();
+                simulator.advance(slot);
+                double temperature = simulator.temperature(slot);
+                boolean raining = simulator.raining(slot);
+                if (outbox.isEnabled()) return outbox.append(sensor, temperature, raining);
+                if (batcher.isEnabled()) return batcher.add(sensor, temperature, raining);
+                return sender.send(sensor, temperature, raining);
+            };
+
+            for (int i = 0; i < sensorCount; i++) {
+                Sensor sensor = Fixtures.sensor(i, server.getURL());
+                sensor.setSimulationSlot(simulator.register());
+                scheduler.scheduleAsync(sensor, s -> {
+                    long start = System.nanoTime();
+                    return send.apply(s).whenComplete((ignored, error) -> recorder.record(start, error == null));
+                });
+            }
+
+            System.out.printf("%d sensors, %d ms interval, %d ms server latency, transport %s, path %s, mode %s%n", sensorCount, interval, latency, transportType, path, mode);
+            Thread.sleep(warmup * 1000L);
+
+            recorder.reset();
+            long requestsBefore = server.getRequests();
+            long skippedBefore = scheduler.getSkippedTicks();
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            Thread.sleep(duration * 1000L);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long allocated = allocatedBytes() - allocatedBefore;
+            long requests = server.getRequests() - requestsBefore;
+            long skipped = scheduler.getSkippedTicks() - skippedBefore;
+
+            scheduler.shutdown();
+            batcher.shutdown();
+            outbox.shutdown();
+
+            long[] latencies = recorder.sorted();
+            long readings = recorder.succeeded.get();
+            System.out.printf("readings     %10.1f /s   (%d failed, %d ticks skipped)%n", readings / seconds, recorder.failed.get(), skipped);
+            System.out.printf("requests     %10.1f /s%n", requests / seconds);
+            System.out.printf("latency      p50 %8.2f ms   p90 %8.2f ms   p99 %8.2f ms   p99.9 %8.2f ms   max %8.2f ms%n",
+                    percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99), percentile(latencies, 0.999), percentile(latencies, 1.0));
+            System.out.printf("allocation   %10.1f MB/s   %10.0f B/reading%n", allocated / seconds / (1 << 20), readings == 0 ? 0.0 : (double) allocated / readings);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getTotalThreadAllocatedBytes();
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) return 0;
+        return sorted[(int) Math.max(0, Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1))] / 1e6;
+    }
+
+    private static String stringArg(String[] args, String name, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(name + "=")) return arg.substring(name.length() + 1);
+        }
+        return defaultValue;
+    }
+
+    static class LatencyRecorder {
+        private final long[] latencies = new long[1 << 23];
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicLong succeeded = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        void record(long start, boolean success) {
+            if (!success) {
+                failed.incrementAndGet();
+                return;
+            }
+            succeeded.incrementAndGet();
+            int index = count.getAndIncrement();
+            if (index < latencies.length) latencies[index] = System.nanoTime() - start;
+        }
+
+        void reset() {
+            count.set(0);
+            succeeded.set(0);
+            failed.set(0);
+        }
+
+        long[] sorted() {
+            long[] sorted = Arrays.copyOf(latencies, Math.min(count.get(), latencies.length));
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
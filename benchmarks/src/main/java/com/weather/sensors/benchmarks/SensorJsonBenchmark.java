@@ -0,0 +1,70 @@
+package com.weather.sensors.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weather.sensors.dto.SensorDTO;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.transport.MeasurementFrameWriter;
+import com.weather.sensors.transport.MeasurementJsonWriter;
+import com.weather.sensors.util.SensorMapper;
+
+/**
+ * JSON encoding of {@link SensorDTO}, the body of every reading and registration, with Jackson and with
+ * {@link MeasurementJsonWriter}, against the binary frame of {@link MeasurementFrameWriter}, plus decoding the DTO
+ * as the registration and token responses are read.
+ *
+ * <pre>java -jar target/benchmarks.jar SensorJsonBenchmark -prof gc</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SensorJsonBenchmark {
+    private Sensor sensor;
+    private SensorDTO sensorDTO;
+    private byte[] json;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() throws IOException {
+        sensor = Fixtures.sensor(17, "http://localhost:8080");
+        sensorDTO = new SensorMapper().toDTO(sensor);
+        objectMapper = new ObjectMapper();
+        json = objectMapper.writeValueAsBytes(sensorDTO);
+    }
+
+    @Benchmark
+    public byte[] jacksonWrite() throws IOException {
+        return objectMapper.writeValueAsBytes(sensorDTO);
+    }
+
+    @Benchmark
+    public int writerWrite() {
+        return MeasurementJsonWriter.forCurrentThread().writeSensor(sensor, 12.5, false).length();
+    }
+
+    @Benchmark
+    public int frameWrite() {
+        return MeasurementFrameWriter.forCurrentThread().writeSensor(sensor, 12.5, false, 1_700_000_000_000L).length();
+    }
+
+    @Benchmark
+    public SensorDTO jacksonRead() throws IOException {
+        return objectMapper.readValue(json, SensorDTO.class);
+    }
+}
@@ -0,0 +1,66 @@
+package com.weather.sensors.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.weather.sensors.dto.SensorDTO;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.util.SensorMapper;
+
+/**
+ * Entity/DTO mapping as done on every create, registrate and update-token request: the reflective
+ * {@link ModelMapper} the service used to call against the hand-written {@link SensorMapper}.
+ *
+ * <pre>java -jar target/benchmarks.jar SensorMappingBenchmark -prof gc</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SensorMappingBenchmark {
+    private Sensor sensor;
+    private SensorDTO sensorDTO;
+    private ModelMapper modelMapper;
+    private SensorMapper sensorMapper;
+
+    @Setup
+    public void setUp() {
+        sensor = Fixtures.sensor(17, "http://localhost:8080");
+        modelMapper = new ModelMapper();
+        sensorMapper = new SensorMapper();
+        sensorDTO = sensorMapper.toDTO(sensor);
+    }
+
+    @Benchmark
+    public SensorDTO modelMapperToDTO() {
+        return modelMapper.map(sensor, SensorDTO.class);
+    }
+
+    @Benchmark
+    public SensorDTO sensorMapperToDTO() {
+        return sensorMapper.toDTO(sensor);
+    }
+
+    @Benchmark
+    public Sensor modelMapperToSensor() {
+        return modelMapper.map(sensorDTO, Sensor.class);
+    }
+
+    @Benchmark
+    public Sensor sensorMapperToSensor() {
+        return sensorMapper.toSensor(sensorDTO);
+    }
+}
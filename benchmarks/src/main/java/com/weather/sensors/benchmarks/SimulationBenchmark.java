@@ -0,0 +1,91 @@
+package com.weather.sensors.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.weather.sensors.models.WeatherData;
+import com.weather.sensors.simulation.RandomWalkWeatherSimulator;
+import com.weather.sensors.simulation.WeatherSimulator;
+
+/**
+ * One simulation step for every sensor of a fleet: the per-object model with Math.random() against the
+ * simulator stepping slot by slot, as measurements do. Scores are per fleet step.
+ *
+ * <pre>java -jar target/benchmarks.jar SimulationBenchmark -p sensors=100000</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimulationBenchmark {
+
+    @Param({"10000", "100000"})
+    int sensors;
+
+    private WeatherData[] legacy;
+    private WeatherSimulator simulator;
+
+    @Setup
+    public void setUp() {
+        legacy = new WeatherData[sensors];
+        simulator = new RandomWalkWeatherSimulator(42);
+        for (int i = 0; i < sensors; i++) {
+            legacy[i] = new WeatherData();
+            simulator.register();
+        }
+    }
+
+    @Benchmark
+    public WeatherData[] legacyObjects() {
+        for (WeatherData weatherData : legacy) LegacySimulation.measure(weatherData);
+        return legacy;
+    }
+
+    @Benchmark
+    public WeatherSimulator simulatorPerSlot() {
+        for (int slot = 0; slot < sensors; slot++) simulator.advance(slot);
+        return simulator;
+    }
+
+    /**
+     * Four threads stepping their own share of the fleet, where the legacy model contends on Math.random().
+     */
+    @State(Scope.Thread)
+    public static class ThreadShare {
+        int from;
+        int to;
+
+        @Setup
+        public void setUp(SimulationBenchmark benchmark, org.openjdk.jmh.infra.ThreadParams threads) {
+            int share = benchmark.sensors / threads.getThreadCount();
+            from = threads.getThreadIndex() * share;
+            to = from + share;
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void legacyObjectsContended(ThreadShare share) {
+        for (int i = share.from; i < share.to; i++) LegacySimulation.measure(legacy[i]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void simulatorPerSlotContended(ThreadShare share) {
+        for (int slot = share.from; slot < share.to; slot++) simulator.advance(slot);
+    }
+}
@@ -1,11 +1,18 @@
 package com.weather.sensors;
 
-import org.modelmapper.ModelMapper;
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import com.weather.sensors.simulation.RandomWalkWeatherSimulator;
+import com.weather.sensors.simulation.WeatherSimulator;
+
 @SpringBootApplication
 public class SensorsApplication {
 
@@ -13,13 +20,24 @@ public class SensorsApplication {
 		SpringApplication.run(SensorsApplication.class, args);
 	}
 
+	/**
+	 * Registration, token and blocking measurement calls share one JDK client, which keeps keep-alive connections
+	 * per server; the timeouts bound how long a dead server can hold a caller.
+	 */
 	@Bean
-	public ModelMapper modelMapper() {
-		return new ModelMapper();
+	public RestTemplate restTemplate(@Value("${sensors.transport.connect-timeout-ms:2000}") long connectTimeout,
+									 @Value("${sensors.transport.read-timeout-ms:5000}") long readTimeout) {
+		HttpClient httpClient = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofMillis(connectTimeout))
+				.build();
+		JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+		requestFactory.setReadTimeout(Duration.ofMillis(readTimeout));
+		return new RestTemplate(requestFactory);
 	}
 
 	@Bean
-	public RestTemplate restTemplate(){
-		return new RestTemplate();
+	public WeatherSimulator weatherSimulator(@Value("${sensors.simulation.seed:#{null}}") Long seed) {
+		return seed != null ? new RandomWalkWeatherSimulator(seed) : new RandomWalkWeatherSimulator();
 	}
 }
@@ -0,0 +1,333 @@
+package com.weather.sensors.aggregation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.weather.sensors.dto.AggregateDTO;
+import com.weather.sensors.metrics.ServerMeters;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.services.ExecutionMode;
+import com.weather.sensors.services.ServerConcurrencyLimiter;
+import com.weather.sensors.simulation.SlotPages;
+import com.weather.sensors.transport.MeasurementTransport;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Downsamples readings on the node: instead of sending every reading, sensors of the aggregated servers send one
+ * {@link AggregateDTO} per {@code resolution-ms} window (aligned to the epoch) with the minimum, maximum and mean
+ * temperature and the share of readings taken while raining. Sensors of other servers keep streaming raw readings,
+ * and so do servers answering 404 on {@value #SEND_AGGREGATES_PATH}.
+ * <p>
+ * Window state lives in structure-of-arrays {@link SlotPages}, like the simulator's. Every {@code flush-ms} windows
+ * that have ended are closed and the summaries are posted per server; a sensor that is stopped has its partial window
+ * closed at once. Summaries of a post that failed retryably (server down or overloaded, open circuit) go back in the
+ * queue for the next flush, within {@code max-pending}.
+ * <p>
+ * A 404 means the server has no aggregates endpoint: its sensors switch to raw readings, and the summaries already
+ * closed for it are dropped and counted, since the readings behind them are gone. The flusher probes the endpoint again
+ * with an empty post after {@code probe-backoff-ms}, doubling up to {@code probe-max-backoff-ms} while it keeps
+ * answering 404, and the server's sensors aggregate again once a probe is accepted.
+ */
+@Component
+public class MeasurementAggregator {
+    private static final Logger log = LoggerFactory.getLogger(MeasurementAggregator.class);
+
+    static final String SEND_AGGREGATES_PATH = "/measurements/add-aggregates";
+
+    private static final int PAGE_SIZE = SlotPages.PAGE_SIZE;
+
+    private final MeasurementTransport measurementTransport;
+    private final ServerConcurrencyLimiter serverConcurrencyLimiter;
+    private final boolean enabled;
+    private final long resolution;
+    private final Set<String> servers;
+    private final int maxPending;
+    private final long probeBackoff;
+    private final long probeMaxBackoff;
+    private final ServerMeters aggregateMeters;
+
+    private final Map<String, Probe> aggregatesUnsupported = new ConcurrentHashMap<>();
+    private final Map<String, Queue<AggregateDTO>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong readings = new AtomicLong();
+    private final AtomicLong summaries = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final ScheduledExecutorService flusher;
+
+    private final SlotPages<Page> pages = new SlotPages<>(Page::new, Page[]::new);
+
+    public MeasurementAggregator(MeasurementTransport measurementTransport, ServerConcurrencyLimiter serverConcurrencyLimiter,
+                                 @Value("${sensors.aggregation.enabled:false}") boolean enabled,
+                                 @Value("${sensors.aggregation.resolution-ms:60000}") long resolution,
+                                 @Value("${sensors.aggregation.servers:}") List<String> servers,
+                                 @Value("${sensors.aggregation.flush-ms:1000}") long flushInterval,
+                                 @Value("${sensors.aggregation.max-pending:100000}") int maxPending,
+                                 @Value("${sensors.aggregation.probe-backoff-ms:30000}") long probeBackoff,
+                                 @Value("${sensors.aggregation.probe-max-backoff-ms:600000}") long probeMaxBackoff,
+                                 MeterRegistry meterRegistry) {
+        this.measurementTransport = measurementTransport;
+        this.serverConcurrencyLimiter = serverConcurrencyLimiter;
+        this.enabled = enabled;
+        this.resolution = resolution;
+        this.servers = Set.copyOf(servers);
+        this.maxPending = maxPending;
+        this.probeBackoff = probeBackoff;
+        this.probeMaxBackoff = probeMaxBackoff;
+        this.aggregateMeters = new ServerMeters(meterRegistry, "send-aggregates");
+        this.flusher = Executors.newSingleThreadScheduledExecutor(ExecutionMode.platformThreads("aggregation-flusher"));
+        if (enabled) flusher.scheduleWithFixedDelay(this::flushExpired, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+
+        FunctionCounter.builder("sensors.aggregation.readings", readings, AtomicLong::get).description("Readings folded into aggregates instead of being sent").register(meterRegistry);
+        FunctionCounter.builder("sensors.aggregation.summaries", summaries, AtomicLong::get).description("Aggregates handed to the measurements servers").register(meterRegistry);
+        FunctionCounter.builder("sensors.aggregation.dropped", dropped, AtomicLong::get).description("Aggregates dropped after a rejected post, for a server without aggregates or over max-pending").register(meterRegistry);
+        Gauge.builder("sensors.aggregation.pending", pendingCount, AtomicInteger::get).description("Closed aggregates waiting to be posted").register(meterRegistry);
+    }
+
+    /**
+     * Whether readings of {@code sensor} are aggregated rather than sent one by one.
+     */
+    public boolean aggregates(Sensor sensor) {
+        if (!enabled) return false;
+        String serverURL = sensor.getServerURL();
+        return (servers.isEmpty() || servers.contains(serverURL)) && !aggregatesUnsupported.containsKey(serverURL);
+    }
+
+    public CompletableFuture<Void> add(Sensor sensor, double temperature, boolean raining) {
+        add(sensor, temperature, raining, System.currentTimeMillis());
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Closes the partial window of a sensor that stops measuring.
+     */
+    public void release(Sensor sensor) {
+        if (!enabled) return;
+        int slot = sensor.getSimulationSlot();
+        Page page = pages.pageIfAllocated(slot);
+        if (page == null) return;
+
+        int index = SlotPages.index(slot);
+        AggregateDTO closed;
+        synchronized (page) {
+            if (page.sensors[index] != sensor) return;
+            closed = page.count[index] > 0 ? close(page, index) : null;
+            page.sensors[index] = null;
+        }
+        if (closed != null) enqueue(sensor.getServerURL(), closed);
+    }
+
+    /**
+     * Closes every open window and posts all pending aggregates.
+     */
+    public void flush() {
+        closeWindows(Long.MAX_VALUE);
+        post();
+    }
+
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        if (enabled) flush();
+    }
+
+    void add(Sensor sensor, double temperature, boolean raining, long now) {
+        int slot = sensor.getSimulationSlot();
+        Page page = pages.page(slot);
+        int index = SlotPages.index(slot);
+        long windowStart = now - Math.floorMod(now, resolution);
+        AggregateDTO closed = null;
+        synchronized (page) {
+            if (page.sensors[index] != sensor) {
+                page.sensors[index] = sensor;
+                page.count[index] = 0;
+            } else if (page.count[index] > 0 && page.windowStart[index] != windowStart) {
+                closed = close(page, index);
+            }
+
+            if (page.count[index] == 0) {
+                page.windowStart[index] = windowStart;
+                page.min[index] = temperature;
+                page.max[index] = temperature;
+                page.sum[index] = 0;
+                page.rainingCount[index] = 0;
+            } else {
+                page.min[index] = Math.min(page.min[index], temperature);
+                page.max[index] = Math.max(page.max[index], temperature);
+            }
+            page.sum[index] += temperature;
+            page.count[index]++;
+            if (raining) page.rainingCount[index]++;
+        }
+        readings.incrementAndGet();
+        if (closed != null) enqueue(sensor.getServerURL(), closed);
+    }
+
+    void closeWindows(long endedBy) {
+        for (Page page : pages.pages()) {
+            List<AggregateDTO> closed = new ArrayList<>();
+            List<String> serverURLs = new ArrayList<>();
+            synchronized (page) {
+                for (int index = 0; index < PAGE_SIZE; index++) {
+                    if (page.count[index] > 0 && page.windowStart[index] + resolution <= endedBy) {
+                        serverURLs.add(page.sensors[index].getServerURL());
+                        closed.add(close(page, index));
+                    }
+                }
+            }
+            for (int i = 0; i < closed.size(); i++) enqueue(serverURLs.get(i), closed.get(i));
+        }
+    }
+
+    void post() {
+        for (Map.Entry<String, Queue<AggregateDTO>> entry : pending.entrySet()) {
+            List<AggregateDTO> aggregates = new ArrayList<>();
+            AggregateDTO aggregate;
+            while ((aggregate = entry.getValue().poll()) != null) aggregates.add(aggregate);
+            if (aggregates.isEmpty()) continue;
+            pendingCount.addAndGet(-aggregates.size());
+            send(entry.getKey(), aggregates);
+        }
+    }
+
+    /**
+     * Probes the aggregates endpoint of the servers that answered 404 once their backoff has passed.
+     */
+    void probe(long now) {
+        for (Map.Entry<String, Probe> entry : aggregatesUnsupported.entrySet()) {
+            Probe probe = entry.getValue();
+            if (probe.at > now || !aggregatesUnsupported.replace(entry.getKey(), probe, new Probe(probe.failures, Long.MAX_VALUE))) continue;
+            send(entry.getKey(), List.of());
+        }
+    }
+
+    private void flushExpired() {
+        try {
+            long now = System.currentTimeMillis();
+            closeWindows(now);
+            post();
+            probe(now);
+        } catch (RuntimeException e) {
+            log.warn("aggregation flush failed: {}", e.getMessage());
+        }
+    }
+
+    private void send(String serverURL, List<AggregateDTO> aggregates) {
+        long start = System.nanoTime();
+        serverConcurrencyLimiter.callAsync(serverURL, () -> measurementTransport.post(serverURL + SEND_AGGREGATES_PATH, aggregates))
+                .whenComplete((ignored, error) -> {
+                    aggregateMeters.record(serverURL, start, aggregates.size(), error);
+                    if (error == null) {
+                        summaries.addAndGet(aggregates.size());
+                        if (aggregatesUnsupported.remove(serverURL) != null) log.info("{} accepts aggregates again", serverURL);
+                        return;
+                    }
+                    Throwable cause = MeasurementTransport.unwrap(error);
+                    if (cause instanceof HttpClientErrorException.NotFound || aggregatesUnsupported.containsKey(serverURL)) {
+                        unsupported(serverURL);
+                        dropped.addAndGet(aggregates.size());
+                        return;
+                    }
+                    log.warn("sending {} aggregates to {} failed: {}", aggregates.size(), serverURL, cause.getMessage());
+                    if (!isRetryable(cause)) {
+                        dropped.addAndGet(aggregates.size());
+                        return;
+                    }
+                    for (AggregateDTO aggregate : aggregates) enqueue(serverURL, aggregate);
+                });
+    }
+
+    /**
+     * Switches the server's sensors to raw readings, drops its pending aggregates and schedules the next probe.
+     */
+    private void unsupported(String serverURL) {
+        Probe probe = aggregatesUnsupported.compute(serverURL, (url, previous) -> {
+            int failures = previous == null ? 1 : previous.failures + 1;
+            long ceiling = Math.min(probeMaxBackoff, probeBackoff << Math.min(failures - 1, 20));
+            return new Probe(failures, System.currentTimeMillis() + ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+        });
+        if (probe.failures == 1) log.info("{} does not accept aggregates, sending it raw measurements", serverURL);
+
+        Queue<AggregateDTO> queue = pending.get(serverURL);
+        if (queue == null) return;
+        int discarded = 0;
+        while (queue.poll() != null) discarded++;
+        pendingCount.addAndGet(-discarded);
+        dropped.addAndGet(discarded);
+    }
+
+    private static boolean isRetryable(Throwable cause) {
+        return cause instanceof ResourceAccessException || cause instanceof HttpServerErrorException
+                || cause instanceof HttpClientErrorException.TooManyRequests;
+    }
+
+    private void enqueue(String serverURL, AggregateDTO aggregate) {
+        if (aggregatesUnsupported.containsKey(serverURL)) {
+            dropped.incrementAndGet();
+            return;
+        }
+        if (pendingCount.incrementAndGet() > maxPending) {
+            pendingCount.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        pending.computeIfAbsent(serverURL, url -> new ConcurrentLinkedQueue<>()).add(aggregate);
+    }
+
+    private AggregateDTO close(Page page, int index) {
+        Sensor sensor = page.sensors[index];
+        int count = page.count[index];
+        AggregateDTO aggregate = new AggregateDTO();
+        aggregate.setSensorId(sensor.getId());
+        aggregate.setSessionId(sensor.getSessionId());
+        aggregate.setFrom(page.windowStart[index]);
+        aggregate.setTo(page.windowStart[index] + resolution);
+        aggregate.setCount(count);
+        aggregate.setMinTemperature(page.min[index]);
+        aggregate.setMaxTemperature(page.max[index]);
+        aggregate.setMeanTemperature(Math.round(page.sum[index] / count * 100) / 100.0);
+        aggregate.setRainingFraction((double) page.rainingCount[index] / count);
+        page.count[index] = 0;
+        return aggregate;
+    }
+
+    private record Probe(int failures, long at) {
+    }
+
+    private static class Page {
+        final Sensor[] sensors = new Sensor[PAGE_SIZE];
+        final long[] windowStart = new long[PAGE_SIZE];
+        final double[] min = new double[PAGE_SIZE];
+        final double[] max = new double[PAGE_SIZE];
+        final double[] sum = new double[PAGE_SIZE];
+        final int[] count = new int[PAGE_SIZE];
+        final int[] rainingCount = new int[PAGE_SIZE];
+    }
+}
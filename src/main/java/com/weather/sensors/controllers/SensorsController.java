@@ -1,9 +1,16 @@
 package com.weather.sensors.controllers;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
@@ -14,17 +21,43 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.weather.sensors.dto.ActivationResultDTO;
+import com.weather.sensors.dto.BulkResultDTO;
+import com.weather.sensors.dto.HistoryDTO;
+import com.weather.sensors.dto.LoadRequestDTO;
+import com.weather.sensors.dto.LoadRunDTO;
+import com.weather.sensors.dto.MeasurementRunDTO;
+import com.weather.sensors.dto.RegistrationJobDTO;
+import com.weather.sensors.dto.ReplayRequestDTO;
 import com.weather.sensors.dto.SensorDTO;
+import com.weather.sensors.dto.SensorPageDTO;
+import com.weather.sensors.dto.ServerStatusDTO;
+import com.weather.sensors.dto.ShardStatusDTO;
+import com.weather.sensors.feed.MeasurementFeed;
+import com.weather.sensors.history.MeasurementHistory;
+import com.weather.sensors.loadgen.LoadGenerator;
+import com.weather.sensors.services.SensorBulkService;
+import com.weather.sensors.services.SensorRegistrationPipeline;
 import com.weather.sensors.services.SensorService;
+import com.weather.sensors.shard.ShardCoordinator;
+import com.weather.sensors.util.FeedUnavailableException;
 import com.weather.sensors.util.SensorRegistrationException;
 import com.weather.sensors.util.validationGroup.CreationInfo;
 import com.weather.sensors.util.validationGroup.RegistrationInfo;
 
 import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import com.weather.sensors.util.SensorNotValidException;
@@ -35,6 +68,13 @@ public class SensorsController {
     // private final ModelMapper modelMapper;
     // private final RestTemplate restTemplate;
     private final SensorService sensorService;
+    private final SensorBulkService sensorBulkService;
+    private final SensorRegistrationPipeline sensorRegistrationPipeline;
+    private final ObjectMapper objectMapper;
+    private final MeasurementFeed measurementFeed;
+    private final ShardCoordinator shardCoordinator;
+    private final MeasurementHistory measurementHistory;
+    private final LoadGenerator loadGenerator;
 
     // public SensorsController(ModelMapper modelMapper, RestTemplate restTemplate, SensorService sensorService) {
     //     this.modelMapper = modelMapper;
@@ -42,10 +82,44 @@ public class SensorsController {
     //     this.sensorService = sensorService;
     // }
     
-    public SensorsController(SensorService sensorService) {
+    public SensorsController(SensorService sensorService, SensorBulkService sensorBulkService, SensorRegistrationPipeline sensorRegistrationPipeline, ObjectMapper objectMapper, MeasurementFeed measurementFeed, ShardCoordinator shardCoordinator, MeasurementHistory measurementHistory, LoadGenerator loadGenerator) {
         this.sensorService = sensorService;
+        this.sensorBulkService = sensorBulkService;
+        this.sensorRegistrationPipeline = sensorRegistrationPipeline;
+        this.objectMapper = objectMapper;
+        this.measurementFeed = measurementFeed;
+        this.shardCoordinator = shardCoordinator;
+        this.measurementHistory = measurementHistory;
+        this.loadGenerator = loadGenerator;
     }
     
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<SensorPageDTO> list(@RequestParam(value = "after", defaultValue = "0") int afterId,
+                                              @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                              @RequestParam(value = "registered", required = false) Boolean registered,
+                                              @RequestParam(value = "server", required = false) String serverURL,
+                                              @RequestParam(value = "namePrefix", required = false) String namePrefix) {
+        return new ResponseEntity<SensorPageDTO>(sensorService.list(afterId, limit, registered, serverURL, namePrefix), HttpStatus.OK);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> listAll(@RequestParam(value = "registered", required = false) Boolean registered,
+                                                         @RequestParam(value = "server", required = false) String serverURL,
+                                                         @RequestParam(value = "namePrefix", required = false) String namePrefix) {
+        StreamingResponseBody body = output -> {
+            try (SequenceWriter writer = objectMapper.writerFor(SensorDTO.class).withRootValueSeparator("\n").writeValues(output)) {
+                sensorService.forEach(registered, serverURL, namePrefix, sensorDTO -> {
+                    try {
+                        writer.write(sensorDTO);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     @PostMapping(value = "/new")
     public ResponseEntity<String> addSensor(@Validated(CreationInfo.class) @RequestBody SensorDTO sensorDTO, BindingResult bindingResult) {
         sensorDTO = sensorService.create(sensorDTO, bindingResult);
@@ -60,6 +134,47 @@ public class SensorsController {
         return new ResponseEntity<String>("Sensor registered successfully", HttpStatus.OK);
     }
 
+    @PostMapping(value = "/new/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkResultDTO> addSensors(@RequestBody List<SensorDTO> sensorDTOs) {
+        return new ResponseEntity<BulkResultDTO>(sensorBulkService.createAll(sensorDTOs.iterator()), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/new/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BulkResultDTO> addSensors(HttpServletRequest request) throws IOException {
+        try (MappingIterator<SensorDTO> sensorDTOs = readSensors(request)) {
+            return new ResponseEntity<BulkResultDTO>(sensorBulkService.createAll(sensorDTOs), HttpStatus.OK);
+        }
+    }
+
+    @PostMapping(value = "/registrate/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkResultDTO> registrateSensors(@RequestBody List<SensorDTO> sensorDTOs) {
+        return new ResponseEntity<BulkResultDTO>(sensorBulkService.registrateAll(sensorDTOs.iterator()), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/registrate/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BulkResultDTO> registrateSensors(HttpServletRequest request) throws IOException {
+        try (MappingIterator<SensorDTO> sensorDTOs = readSensors(request)) {
+            return new ResponseEntity<BulkResultDTO>(sensorBulkService.registrateAll(sensorDTOs), HttpStatus.OK);
+        }
+    }
+
+    @PostMapping(value = "/registrate/async", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<RegistrationJobDTO> registrateAsync(@RequestBody List<SensorDTO> sensorDTOs) {
+        return accepted(sensorRegistrationPipeline.submit(sensorDTOs.iterator()));
+    }
+
+    @PostMapping(value = "/registrate/async", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<RegistrationJobDTO> registrateAsync(HttpServletRequest request) throws IOException {
+        try (MappingIterator<SensorDTO> sensorDTOs = readSensors(request)) {
+            return accepted(sensorRegistrationPipeline.submit(sensorDTOs));
+        }
+    }
+
+    @GetMapping(value = "/registrations/{id}")
+    public ResponseEntity<RegistrationJobDTO> registration(@PathVariable(value = "id") String id) {
+        return new ResponseEntity<RegistrationJobDTO>(sensorRegistrationPipeline.getStatus(id), HttpStatus.OK);
+    }
+
     @PostMapping(value = "/remove")
     public ResponseEntity<String> removeSensor(@RequestBody SensorDTO sensorDTO){
         sensorService.remove(sensorDTO);
@@ -68,19 +183,83 @@ public class SensorsController {
     }
 
     @GetMapping(value = "/activate")
-    public ResponseEntity<String> activate() {
-        int numActivatedSensors = sensorService.activateAll();
+    public ResponseEntity<ActivationResultDTO> activate(@RequestParam(value = "server", required = false) String serverURL) {
+        ActivationResultDTO result = serverURL == null ? sensorService.activateAll() : sensorService.activateServer(serverURL);
+
+        return new ResponseEntity<ActivationResultDTO>(result, HttpStatus.OK);
+    }
 
-        return new ResponseEntity<String>(numActivatedSensors + " sensors activated", HttpStatus.OK);
+    @GetMapping(value = "/activate/{id}")
+    public ResponseEntity<ActivationResultDTO> activate(@PathVariable(value = "id") int id) {
+        return new ResponseEntity<ActivationResultDTO>(sensorService.activate(id), HttpStatus.OK);
     }
 
     @GetMapping(value = "/stop")
-    public ResponseEntity<String> stop(HttpServletResponse response) {
-        sensorService.stopAll();
+    public ResponseEntity<String> stop(@RequestParam(value = "server", required = false) String serverURL, HttpServletResponse response) {
+        int stopped = serverURL == null ? sensorService.stopAll() : sensorService.stopServer(serverURL);
         
         response.addCookie(new Cookie("alpha", "omega"));
 
-        return new ResponseEntity<>("All active sensors stopped", HttpStatus.OK);
+        return new ResponseEntity<>(serverURL == null ? "All active sensors stopped: " + stopped : "Active sensors of " + serverURL + " stopped: " + stopped, HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/stop/{id}")
+    public ResponseEntity<String> stop(@PathVariable(value = "id") int id) {
+        boolean stopped = sensorService.stop(id);
+
+        return new ResponseEntity<>(stopped ? "Sensor stopped" : "Sensor was not active", HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/status")
+    public ResponseEntity<MeasurementRunDTO> status() {
+        return new ResponseEntity<MeasurementRunDTO>(sensorService.getStatus(), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/servers")
+    public ResponseEntity<List<ServerStatusDTO>> servers() {
+        return new ResponseEntity<List<ServerStatusDTO>>(sensorService.getServers(), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/shards")
+    public ResponseEntity<ShardStatusDTO> shards() {
+        return new ResponseEntity<ShardStatusDTO>(shardCoordinator.getStatus(), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(value = "id", required = false) Set<Integer> ids,
+                             @RequestParam(value = "name", required = false) Set<String> names,
+                             @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return measurementFeed.subscribe(ids == null ? Set.of() : ids, names == null ? Set.of() : names, lastEventId);
+    }
+
+    @GetMapping(value = "/{id}/history")
+    public ResponseEntity<HistoryDTO> history(@PathVariable(value = "id") int id,
+                                              @RequestParam(value = "from", required = false) Long from,
+                                              @RequestParam(value = "to", required = false) Long to,
+                                              @RequestParam(value = "step", required = false) Long step) {
+        long end = to != null ? to : System.currentTimeMillis() + 1;
+        long start = from != null ? from : end - TimeUnit.HOURS.toMillis(1);
+        return new ResponseEntity<HistoryDTO>(measurementHistory.query(id, start, end, step), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/loadgen")
+    public ResponseEntity<LoadRunDTO> startLoad(@RequestBody LoadRequestDTO request) {
+        return new ResponseEntity<LoadRunDTO>(loadGenerator.start(request), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/loadgen/replay")
+    public ResponseEntity<LoadRunDTO> replay(@RequestBody ReplayRequestDTO request) {
+        return new ResponseEntity<LoadRunDTO>(loadGenerator.replay(request), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/loadgen")
+    public ResponseEntity<LoadRunDTO> loadStatus() {
+        return new ResponseEntity<LoadRunDTO>(loadGenerator.getStatus(), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/loadgen/stop")
+    public ResponseEntity<LoadRunDTO> stopLoad() {
+        return new ResponseEntity<LoadRunDTO>(loadGenerator.stop(), HttpStatus.OK);
     }
 
     @GetMapping(value = "/update-token/{id}")
@@ -90,6 +269,14 @@ public class SensorsController {
         return new ResponseEntity<String>("Token updated successfully", HttpStatus.OK);
     }
 
+    private static ResponseEntity<RegistrationJobDTO> accepted(RegistrationJobDTO job) {
+        return ResponseEntity.accepted().location(URI.create("/sensors/registrations/" + job.getId())).body(job);
+    }
+
+    private MappingIterator<SensorDTO> readSensors(HttpServletRequest request) throws IOException {
+        return objectMapper.readerFor(SensorDTO.class).readValues(request.getInputStream());
+    }
+
     @ResponseStatus(value = HttpStatus.BAD_REQUEST)
     @ExceptionHandler(value = SensorNotValidException.class)
     public StringBuilder handleValidationException(SensorNotValidException exception) {
@@ -118,6 +305,12 @@ public class SensorsController {
         return errors; 
     }
 
+    @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(value = FeedUnavailableException.class)
+    public String handleFeedUnavailableException(FeedUnavailableException e) {
+        return e.getMessage();
+    }
+
     @ResponseStatus(value = HttpStatus.BAD_REQUEST)
     @ExceptionHandler(value = RuntimeException.class)
     public String handleRuntimeException(RuntimeException e) {
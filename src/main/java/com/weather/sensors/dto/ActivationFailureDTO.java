@@ -0,0 +1,60 @@
+package com.weather.sensors.dto;
+
+public class ActivationFailureDTO {
+    private int sensorId;
+    private String name;
+    private String serverURL;
+    private int attempts;
+    private String reason;
+
+    public ActivationFailureDTO() {
+    }
+
+    public ActivationFailureDTO(int sensorId, String name, String serverURL, int attempts, String reason) {
+        this.sensorId = sensorId;
+        this.name = name;
+        this.serverURL = serverURL;
+        this.attempts = attempts;
+        this.reason = reason;
+    }
+
+    public int getSensorId() {
+        return sensorId;
+    }
+
+    public void setSensorId(int sensorId) {
+        this.sensorId = sensorId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getServerURL() {
+        return serverURL;
+    }
+
+    public void setServerURL(String serverURL) {
+        this.serverURL = serverURL;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+}
@@ -0,0 +1,59 @@
+package com.weather.sensors.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ActivationResultDTO {
+    private int requested;
+    private int activated;
+    private int alreadyActive;
+    private long durationMillis;
+    private List<ActivationFailureDTO> failures = new ArrayList<>();
+
+    public void add(ActivationResultDTO other) {
+        requested += other.requested;
+        activated += other.activated;
+        alreadyActive += other.alreadyActive;
+        failures.addAll(other.failures);
+    }
+
+    public int getRequested() {
+        return requested;
+    }
+
+    public void setRequested(int requested) {
+        this.requested = requested;
+    }
+
+    public int getActivated() {
+        return activated;
+    }
+
+    public void setActivated(int activated) {
+        this.activated = activated;
+    }
+
+    public int getAlreadyActive() {
+        return alreadyActive;
+    }
+
+    public void setAlreadyActive(int alreadyActive) {
+        this.alreadyActive = alreadyActive;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public List<ActivationFailureDTO> getFailures() {
+        return failures;
+    }
+
+    public void setFailures(List<ActivationFailureDTO> failures) {
+        this.failures = failures;
+    }
+}
@@ -0,0 +1,85 @@
+package com.weather.sensors.dto;
+
+public class ActiveSensorDTO {
+    private int id;
+    private String name;
+    private String serverURL;
+    private long activeSince;
+    private Long lastSentAt;
+    private long sent;
+    private long failed;
+    private long suppressed;
+    private String lastError;
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getServerURL() {
+        return serverURL;
+    }
+
+    public void setServerURL(String serverURL) {
+        this.serverURL = serverURL;
+    }
+
+    public long getActiveSince() {
+        return activeSince;
+    }
+
+    public void setActiveSince(long activeSince) {
+        this.activeSince = activeSince;
+    }
+
+    public Long getLastSentAt() {
+        return lastSentAt;
+    }
+
+    public void setLastSentAt(Long lastSentAt) {
+        this.lastSentAt = lastSentAt;
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    public void setSent(long sent) {
+        this.sent = sent;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public long getSuppressed() {
+        return suppressed;
+    }
+
+    public void setSuppressed(long suppressed) {
+        this.suppressed = suppressed;
+    }
+}
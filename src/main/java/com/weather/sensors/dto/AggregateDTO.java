@@ -0,0 +1,88 @@
+package com.weather.sensors.dto;
+
+/**
+ * Summary of one sensor's readings in {@code [from, to)}, sent instead of the raw readings by on-node aggregation.
+ */
+public class AggregateDTO {
+    private int sensorId;
+    private double sessionId;
+    private long from;
+    private long to;
+    private int count;
+    private double minTemperature;
+    private double maxTemperature;
+    private double meanTemperature;
+    private double rainingFraction;
+
+    public int getSensorId() {
+        return sensorId;
+    }
+
+    public void setSensorId(int sensorId) {
+        this.sensorId = sensorId;
+    }
+
+    public double getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(double sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public void setFrom(long from) {
+        this.from = from;
+    }
+
+    public long getTo() {
+        return to;
+    }
+
+    public void setTo(long to) {
+        this.to = to;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public double getMinTemperature() {
+        return minTemperature;
+    }
+
+    public void setMinTemperature(double minTemperature) {
+        this.minTemperature = minTemperature;
+    }
+
+    public double getMaxTemperature() {
+        return maxTemperature;
+    }
+
+    public void setMaxTemperature(double maxTemperature) {
+        this.maxTemperature = maxTemperature;
+    }
+
+    public double getMeanTemperature() {
+        return meanTemperature;
+    }
+
+    public void setMeanTemperature(double meanTemperature) {
+        this.meanTemperature = meanTemperature;
+    }
+
+    public double getRainingFraction() {
+        return rainingFraction;
+    }
+
+    public void setRainingFraction(double rainingFraction) {
+        this.rainingFraction = rainingFraction;
+    }
+}
@@ -0,0 +1,65 @@
+package com.weather.sensors.dto;
+
+public class BulkItemResultDTO {
+    public static final String CREATED = "created";
+    public static final String REGISTERED = "registered";
+    public static final String REJECTED = "rejected";
+    public static final String FAILED = "failed";
+
+    private int index;
+    private int id;
+    private String name;
+    private String status;
+    private String message;
+
+    public BulkItemResultDTO() {
+    }
+
+    public BulkItemResultDTO(int index, int id, String name, String status, String message) {
+        this.index = index;
+        this.id = id;
+        this.name = name;
+        this.status = status;
+        this.message = message;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
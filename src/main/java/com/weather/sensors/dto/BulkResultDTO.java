@@ -0,0 +1,50 @@
+package com.weather.sensors.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkResultDTO {
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<BulkItemResultDTO> items = new ArrayList<>();
+
+    public void add(BulkItemResultDTO item) {
+        items.add(item);
+        total++;
+        if (BulkItemResultDTO.CREATED.equals(item.getStatus()) || BulkItemResultDTO.REGISTERED.equals(item.getStatus())) succeeded++;
+        else failed++;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public void setSucceeded(int succeeded) {
+        this.succeeded = succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public List<BulkItemResultDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<BulkItemResultDTO> items) {
+        this.items = items;
+    }
+}
@@ -0,0 +1,73 @@
+package com.weather.sensors.dto;
+
+import java.util.List;
+
+/**
+ * Readings of one sensor in {@code [from, to)} from the local history: the raw {@code points}, or with a
+ * {@code step} one summary per step in {@code buckets}.
+ */
+public class HistoryDTO {
+    private int sensorId;
+    private long from;
+    private long to;
+    private Long step;
+    private boolean truncated;
+    private List<HistoryPointDTO> points;
+    private List<AggregateDTO> buckets;
+
+    public int getSensorId() {
+        return sensorId;
+    }
+
+    public void setSensorId(int sensorId) {
+        this.sensorId = sensorId;
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public void setFrom(long from) {
+        this.from = from;
+    }
+
+    public long getTo() {
+        return to;
+    }
+
+    public void setTo(long to) {
+        this.to = to;
+    }
+
+    public Long getStep() {
+        return step;
+    }
+
+    public void setStep(Long step) {
+        this.step = step;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    public List<HistoryPointDTO> getPoints() {
+        return points;
+    }
+
+    public void setPoints(List<HistoryPointDTO> points) {
+        this.points = points;
+    }
+
+    public List<AggregateDTO> getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(List<AggregateDTO> buckets) {
+        this.buckets = buckets;
+    }
+}
@@ -0,0 +1,67 @@
+package com.weather.sensors.dto;
+
+public class LoadRequestDTO {
+    private String serverURL;
+    private String token;
+    private Long seed;
+    private int sensors;
+    private double rate;
+    private long rampMs;
+    private long durationMs;
+
+    public String getServerURL() {
+        return serverURL;
+    }
+
+    public void setServerURL(String serverURL) {
+        this.serverURL = serverURL;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public Long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    public int getSensors() {
+        return sensors;
+    }
+
+    public void setSensors(int sensors) {
+        this.sensors = sensors;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    public long getRampMs() {
+        return rampMs;
+    }
+
+    public void setRampMs(long rampMs) {
+        this.rampMs = rampMs;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+}
@@ -0,0 +1,166 @@
+package com.weather.sensors.dto;
+
+public class LoadRunDTO {
+    private String mode;
+    private String state;
+    private String serverURL;
+    private Long seed;
+    private long startedAt;
+    private Long finishedAt;
+    private long scheduled;
+    private long issued;
+    private long sent;
+    private long failed;
+    private long dropped;
+    private double maxLagMs;
+    private Double p50Ms;
+    private Double p90Ms;
+    private Double p99Ms;
+    private Double p999Ms;
+    private Double maxMs;
+    private String report;
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public String getServerURL() {
+        return serverURL;
+    }
+
+    public void setServerURL(String serverURL) {
+        this.serverURL = serverURL;
+    }
+
+    public Long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Long finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public long getScheduled() {
+        return scheduled;
+    }
+
+    public void setScheduled(long scheduled) {
+        this.scheduled = scheduled;
+    }
+
+    public long getIssued() {
+        return issued;
+    }
+
+    public void setIssued(long issued) {
+        this.issued = issued;
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    public void setSent(long sent) {
+        this.sent = sent;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public void setDropped(long dropped) {
+        this.dropped = dropped;
+    }
+
+    public double getMaxLagMs() {
+        return maxLagMs;
+    }
+
+    public void setMaxLagMs(double maxLagMs) {
+        this.maxLagMs = maxLagMs;
+    }
+
+    public Double getP50Ms() {
+        return p50Ms;
+    }
+
+    public void setP50Ms(Double p50Ms) {
+        this.p50Ms = p50Ms;
+    }
+
+    public Double getP90Ms() {
+        return p90Ms;
+    }
+
+    public void setP90Ms(Double p90Ms) {
+        this.p90Ms = p90Ms;
+    }
+
+    public Double getP99Ms() {
+        return p99Ms;
+    }
+
+    public void setP99Ms(Double p99Ms) {
+        this.p99Ms = p99Ms;
+    }
+
+    public Double getP999Ms() {
+        return p999Ms;
+    }
+
+    public void setP999Ms(Double p999Ms) {
+        this.p999Ms = p999Ms;
+    }
+
+    public Double getMaxMs() {
+        return maxMs;
+    }
+
+    public void setMaxMs(Double maxMs) {
+        this.maxMs = maxMs;
+    }
+
+    public String getReport() {
+        return report;
+    }
+
+    public void setReport(String report) {
+        this.report = report;
+    }
+}
@@ -0,0 +1,50 @@
+package com.weather.sensors.dto;
+
+public class MeasurementDTO {
+    private int sensorId;
+    private double sessionId;
+    private double temperature;
+    private boolean isRaining;
+
+    public MeasurementDTO() {
+    }
+
+    public MeasurementDTO(int sensorId, double sessionId, double temperature, boolean isRaining) {
+        this.sensorId = sensorId;
+        this.sessionId = sessionId;
+        this.temperature = temperature;
+        this.isRaining = isRaining;
+    }
+
+    public int getSensorId() {
+        return sensorId;
+    }
+
+    public void setSensorId(int sensorId) {
+        this.sensorId = sensorId;
+    }
+
+    public double getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(double sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public double getTemperature() {
+        return temperature;
+    }
+
+    public void setTemperature(double temperature) {
+        this.temperature = temperature;
+    }
+
+    public boolean isRaining() {
+        return isRaining;
+    }
+
+    public void setRaining(boolean isRaining) {
+        this.isRaining = isRaining;
+    }
+}
@@ -0,0 +1,52 @@
+package com.weather.sensors.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MeasurementRunDTO {
+    private boolean running;
+    private int active;
+    private int inFlight;
+    private long suppressed;
+    private List<ActiveSensorDTO> sensors = new ArrayList<>();
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void setRunning(boolean running) {
+        this.running = running;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public void setActive(int active) {
+        this.active = active;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public void setInFlight(int inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    public List<ActiveSensorDTO> getSensors() {
+        return sensors;
+    }
+
+    public void setSensors(List<ActiveSensorDTO> sensors) {
+        this.sensors = sensors;
+    }
+
+    public long getSuppressed() {
+        return suppressed;
+    }
+
+    public void setSuppressed(long suppressed) {
+        this.suppressed = suppressed;
+    }
+}
@@ -0,0 +1,61 @@
+package com.weather.sensors.dto;
+
+public class RegistrationJobDTO {
+    public static final String PENDING = "pending";
+    public static final String COMPLETED = "completed";
+
+    private String id;
+    private String state;
+    private long submittedAt;
+    private Long completedAt;
+    private int pending;
+    private BulkResultDTO result;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public void setSubmittedAt(long submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+
+    public Long getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(Long completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public int getPending() {
+        return pending;
+    }
+
+    public void setPending(int pending) {
+        this.pending = pending;
+    }
+
+    public BulkResultDTO getResult() {
+        return result;
+    }
+
+    public void setResult(BulkResultDTO result) {
+        this.result = result;
+    }
+}
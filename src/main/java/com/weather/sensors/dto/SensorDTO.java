@@ -29,6 +29,10 @@ public class SensorDTO {
 
     private double sessionId;
 
+    private Integer measureInterval;
+
+    private Double deadbandTemperature;
+
     
     public int getId() {
         return id;
@@ -93,4 +97,20 @@ public class SensorDTO {
     public void setSessionId(double sessionId) {
         this.sessionId = sessionId;
     }
+
+    public Integer getMeasureInterval() {
+        return measureInterval;
+    }
+
+    public void setMeasureInterval(Integer measureInterval) {
+        this.measureInterval = measureInterval;
+    }
+
+    public Double getDeadbandTemperature() {
+        return deadbandTemperature;
+    }
+
+    public void setDeadbandTemperature(Double deadbandTemperature) {
+        this.deadbandTemperature = deadbandTemperature;
+    }
 }
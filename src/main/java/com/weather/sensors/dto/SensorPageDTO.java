@@ -0,0 +1,25 @@
+package com.weather.sensors.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SensorPageDTO {
+    private List<SensorDTO> sensors = new ArrayList<>();
+    private Integer next;
+
+    public List<SensorDTO> getSensors() {
+        return sensors;
+    }
+
+    public void setSensors(List<SensorDTO> sensors) {
+        this.sensors = sensors;
+    }
+
+    public Integer getNext() {
+        return next;
+    }
+
+    public void setNext(Integer next) {
+        this.next = next;
+    }
+}
@@ -0,0 +1,121 @@
+package com.weather.sensors.dto;
+
+public class ServerStatusDTO {
+    private String serverURL;
+    private String state;
+    private int inFlight;
+    private int maxInFlight;
+    private int consecutiveFailures;
+    private Long openedAt;
+    private long trips;
+    private long rejected;
+    private String lastError;
+    private Double rateLimit;
+    private Long pausedUntil;
+    private int pending;
+    private long conflated;
+
+    public String getServerURL() {
+        return serverURL;
+    }
+
+    public void setServerURL(String serverURL) {
+        this.serverURL = serverURL;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public void setInFlight(int inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public void setConsecutiveFailures(int consecutiveFailures) {
+        this.consecutiveFailures = consecutiveFailures;
+    }
+
+    public Long getOpenedAt() {
+        return openedAt;
+    }
+
+    public void setOpenedAt(Long openedAt) {
+        this.openedAt = openedAt;
+    }
+
+    public long getTrips() {
+        return trips;
+    }
+
+    public void setTrips(long trips) {
+        this.trips = trips;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Double getRateLimit() {
+        return rateLimit;
+    }
+
+    public void setRateLimit(Double rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
+    public Long getPausedUntil() {
+        return pausedUntil;
+    }
+
+    public void setPausedUntil(Long pausedUntil) {
+        this.pausedUntil = pausedUntil;
+    }
+
+    public int getPending() {
+        return pending;
+    }
+
+    public void setPending(int pending) {
+        this.pending = pending;
+    }
+
+    public long getConflated() {
+        return conflated;
+    }
+
+    public void setConflated(long conflated) {
+        this.conflated = conflated;
+    }
+}
@@ -0,0 +1,58 @@
+package com.weather.sensors.dto;
+
+public class ShardNodeDTO {
+    private String nodeId;
+    private long startedAt;
+    private long heartbeatAt;
+    private int activeSensors;
+    private boolean live;
+    private boolean self;
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public long getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public void setHeartbeatAt(long heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+
+    public int getActiveSensors() {
+        return activeSensors;
+    }
+
+    public void setActiveSensors(int activeSensors) {
+        this.activeSensors = activeSensors;
+    }
+
+    public boolean isLive() {
+        return live;
+    }
+
+    public void setLive(boolean live) {
+        this.live = live;
+    }
+
+    public boolean isSelf() {
+        return self;
+    }
+
+    public void setSelf(boolean self) {
+        this.self = self;
+    }
+}
@@ -0,0 +1,34 @@
+package com.weather.sensors.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ShardStatusDTO {
+    private boolean enabled;
+    private String nodeId;
+    private List<ShardNodeDTO> nodes = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public List<ShardNodeDTO> getNodes() {
+        return nodes;
+    }
+
+    public void setNodes(List<ShardNodeDTO> nodes) {
+        this.nodes = nodes;
+    }
+}
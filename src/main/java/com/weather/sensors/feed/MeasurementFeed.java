@@ -0,0 +1,278 @@
+package com.weather.sensors.feed;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.services.ExecutionMode;
+import com.weather.sensors.util.FeedUnavailableException;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Live feed of generated readings for Server-Sent Events subscribers. Readings go into one shared ring of
+ * {@code capacity} slots. Publishing is lock-free and costs nothing while nobody is subscribed. Each subscriber
+ * only keeps a cursor into the ring. The JSON of a slot is built once, by the first subscriber that sends it, and
+ * every other subscriber reuses it.
+ * <p>
+ * Every {@code poll-ms} each idle subscriber gets the readings published since its cursor, conflated to the
+ * latest one per sensor and sent in sequence order. A subscriber still busy sending is skipped. If it falls more than {@code capacity}
+ * readings behind, its cursor jumps forward and the overwritten readings count as dropped.
+ * The event id is the reading's sequence number, so a client reconnecting with {@code Last-Event-ID} resumes
+ * where it stopped if that part of the ring was not overwritten yet. Ids only grow on a stream, so nothing older
+ * than the last id a client saw is still unsent. Subscribing beyond {@code max-subscribers} is refused with a
+ * {@link FeedUnavailableException}.
+ */
+@Component
+public class MeasurementFeed {
+    private static final Logger log = LoggerFactory.getLogger(MeasurementFeed.class);
+
+    static final String EVENT_NAME = "measurement";
+    private static final long WRITING = -1;
+
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLongArray sequences;
+    private final int[] sensorIds;
+    private final String[] names;
+    private final double[] temperatures;
+    private final boolean[] raining;
+    private final long[] timestamps;
+    private final Event[] events;
+
+    private final Map<Subscriber, Boolean> subscribers = new ConcurrentHashMap<>();
+    private final int maxSubscribers;
+    private final long timeout;
+    private final long heartbeat;
+    private final AtomicLong dropped = new AtomicLong();
+    private final ScheduledExecutorService dispatcher;
+    private final ExecutorService senders;
+
+    public MeasurementFeed(@Value("${sensors.feed.capacity:65536}") int capacity,
+                           @Value("${sensors.feed.poll-ms:100}") long poll,
+                           @Value("${sensors.feed.heartbeat-ms:15000}") long heartbeat,
+                           @Value("${sensors.feed.timeout-ms:0}") long timeout,
+                           @Value("${sensors.feed.max-subscribers:1000}") int maxSubscribers,
+                           @Value("${sensors.feed.workers:4}") int workers,
+                           @Value("${sensors.execution.mode:platform}") ExecutionMode executionMode,
+                           MeterRegistry meterRegistry) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, WRITING);
+        this.sensorIds = new int[size];
+        this.names = new String[size];
+        this.temperatures = new double[size];
+        this.raining = new boolean[size];
+        this.timestamps = new long[size];
+        this.events = new Event[size];
+        this.maxSubscribers = maxSubscribers;
+        this.timeout = timeout;
+        this.heartbeat = heartbeat;
+
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(ExecutionMode.platformThreads("measure-feed"));
+        this.senders = executionMode.newExecutor("measure-feed-sender", workers, maxSubscribers);
+        dispatcher.scheduleWithFixedDelay(this::dispatch, poll, poll, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("sensors.feed.subscribers", subscribers, Map::size).description("Connected live feed subscribers").register(meterRegistry);
+        FunctionCounter.builder("sensors.feed.dropped", dropped, AtomicLong::get).description("Readings overwritten before a slow subscriber could send them").register(meterRegistry);
+    }
+
+    public void publish(Sensor sensor, double temperature, boolean isRaining) {
+        if (subscribers.isEmpty()) return;
+
+        long sequence = head.getAndIncrement();
+        int slot = (int) (sequence & mask);
+        sequences.set(slot, WRITING);
+        VarHandle.storeStoreFence();
+        sensorIds[slot] = sensor.getId();
+        names[slot] = sensor.getName();
+        temperatures[slot] = temperature;
+        raining[slot] = isRaining;
+        timestamps[slot] = System.currentTimeMillis();
+        sequences.set(slot, sequence);
+    }
+
+    public SseEmitter subscribe(Set<Integer> sensorIds, Set<String> names, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeout);
+        subscribe(emitter, sensorIds, names, lastEventId);
+        return emitter;
+    }
+
+    void subscribe(SseEmitter emitter, Set<Integer> sensorIds, Set<String> names, Long lastEventId) {
+        if (subscribers.size() >= maxSubscribers) throw new FeedUnavailableException("Too many feed subscribers, try again later");
+
+        long now = head.get();
+        long cursor = lastEventId != null && lastEventId < now && lastEventId >= now - mask ? lastEventId + 1 : now;
+        Subscriber subscriber = new Subscriber(emitter, sensorIds, names, cursor);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.put(subscriber, Boolean.TRUE);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+        for (Subscriber subscriber : subscribers.keySet()) subscriber.emitter.complete();
+        subscribers.clear();
+    }
+
+    void dispatch() {
+        long end = head.get();
+        long now = System.currentTimeMillis();
+        for (Subscriber subscriber : subscribers.keySet()) {
+            boolean due = subscriber.cursor < end || now - subscriber.lastSent >= heartbeat;
+            if (!due || !subscriber.sending.compareAndSet(false, true)) continue;
+            try {
+                senders.execute(() -> drain(subscriber, end));
+            } catch (RejectedExecutionException e) {
+                subscriber.sending.set(false);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber, long end) {
+        try {
+            long cursor = subscriber.cursor;
+            if (end - cursor > mask) {
+                dropped.addAndGet(end - mask - cursor);
+                cursor = end - mask;
+            }
+
+            Map<Integer, Long> latest = subscriber.latest;
+            latest.clear();
+            for (; cursor < end; cursor++) {
+                int slot = (int) (cursor & mask);
+                long published = sequences.get(slot);
+                if (published != cursor) {
+                    if (published == WRITING || published < cursor) break;
+                    dropped.incrementAndGet();
+                    continue;
+                }
+                int sensorId = sensorIds[slot];
+                String name = names[slot];
+                VarHandle.loadLoadFence();
+                if (sequences.get(slot) != cursor) {
+                    dropped.incrementAndGet();
+                    continue;
+                }
+                if (subscriber.accepts(sensorId, name)) latest.put(sensorId, cursor);
+            }
+            subscriber.cursor = cursor;
+
+            long[] pending = subscriber.pending(latest.size());
+            int count = 0;
+            for (Long sequence : latest.values()) pending[count++] = sequence;
+            Arrays.sort(pending, 0, count);
+            for (int i = 0; i < count; i++) {
+                long sequence = pending[i];
+                String event = event(sequence);
+                if (event == null) {
+                    dropped.incrementAndGet();
+                    continue;
+                }
+                subscriber.emitter.send(SseEmitter.event().id(Long.toString(sequence)).name(EVENT_NAME).data(event));
+                subscriber.lastSent = System.currentTimeMillis();
+            }
+            if (latest.isEmpty() && System.currentTimeMillis() - subscriber.lastSent >= heartbeat) {
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                subscriber.lastSent = System.currentTimeMillis();
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("dropping feed subscriber: {}", e.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        } finally {
+            subscriber.sending.set(false);
+        }
+    }
+
+    /**
+     * Returns the JSON of the reading at {@code sequence}, or null if it was overwritten meanwhile.
+     */
+    private String event(long sequence) {
+        int slot = (int) (sequence & mask);
+        Event cached = events[slot];
+        if (cached != null && cached.sequence == sequence) return cached.json;
+
+        StringBuilder builder = new StringBuilder(96).append("{\"sensorId\":").append(sensorIds[slot]).append(",\"name\":");
+        String name = names[slot];
+        if (name == null) builder.append("null");
+        else builder.append('"').append(JsonStringEncoder.getInstance().quoteAsString(name)).append('"');
+        builder.append(",\"temperature\":").append(temperatures[slot])
+                .append(",\"raining\":").append(raining[slot])
+                .append(",\"timestamp\":").append(timestamps[slot]).append('}');
+        VarHandle.loadLoadFence();
+        if (sequences.get(slot) != sequence) return null;
+        String event = builder.toString();
+        events[slot] = new Event(sequence, event);
+        return event;
+    }
+
+    private static class Subscriber {
+        final SseEmitter emitter;
+        final Set<Integer> sensorIds;
+        final Set<String> names;
+        final AtomicBoolean sending = new AtomicBoolean();
+        final Map<Integer, Long> latest = new HashMap<>();
+        private long[] pending = new long[16];
+        volatile long cursor;
+        volatile long lastSent = System.currentTimeMillis();
+
+        Subscriber(SseEmitter emitter, Set<Integer> sensorIds, Set<String> names, long cursor) {
+            this.emitter = emitter;
+            this.sensorIds = sensorIds;
+            this.names = names;
+            this.cursor = cursor;
+        }
+
+        long[] pending(int size) {
+            if (pending.length < size) pending = new long[Math.max(size, pending.length * 2)];
+            return pending;
+        }
+
+        boolean accepts(int sensorId, String name) {
+            if (sensorIds.isEmpty() && names.isEmpty()) return true;
+            return sensorIds.contains(sensorId) || (name != null && names.contains(name));
+        }
+    }
+
+    /**
+     * Cached JSON of one slot, tagged with the reading it belongs to so a lagging writer cannot pass it off as a newer one.
+     */
+    private record Event(long sequence, String json) {
+    }
+}
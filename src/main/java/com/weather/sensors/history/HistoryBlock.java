@@ -0,0 +1,272 @@
+package com.weather.sensors.history;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Columnar, compressed block of one sensor's readings. After a fixed header with the sensor id and a summary of the
+ * block (count, first and last timestamp, min/max/sum of temperatures, raining count) come three bit columns:
+ * <ul>
+ * <li>timestamps as delta-of-deltas in Gorilla's prefix buckets, so readings at a steady interval take one bit;</li>
+ * <li>temperatures XOR-ed with the previous value, storing only the meaningful bits (Gorilla), so an unchanged
+ * temperature takes one bit;</li>
+ * <li>one raining bit per reading.</li>
+ * </ul>
+ * The summary lets range aggregates fold whole blocks without decoding them.
+ */
+final class HistoryBlock {
+    static final int HEADER = 64;
+
+    private HistoryBlock() {
+    }
+
+    interface ReadingConsumer {
+        void accept(long timestamp, double temperature, boolean raining);
+    }
+
+    static int sensorId(ByteBuffer block) {
+        return block.getInt(0);
+    }
+
+    static int count(ByteBuffer block) {
+        return block.getInt(4);
+    }
+
+    static long first(ByteBuffer block) {
+        return block.getLong(8);
+    }
+
+    static long last(ByteBuffer block) {
+        return block.getLong(16);
+    }
+
+    static double min(ByteBuffer block) {
+        return block.getDouble(24);
+    }
+
+    static double max(ByteBuffer block) {
+        return block.getDouble(32);
+    }
+
+    static double sum(ByteBuffer block) {
+        return block.getDouble(40);
+    }
+
+    static int rainingCount(ByteBuffer block) {
+        return block.getInt(48);
+    }
+
+    static void forEach(byte[] payload, ReadingConsumer consumer) {
+        ByteBuffer block = ByteBuffer.wrap(payload);
+        int count = count(block);
+        int timestampBytes = block.getInt(52);
+        int temperatureBytes = block.getInt(56);
+        BitReader timestamps = new BitReader(payload, HEADER);
+        BitReader temperatures = new BitReader(payload, HEADER + timestampBytes);
+        BitReader raining = new BitReader(payload, HEADER + timestampBytes + temperatureBytes);
+
+        long timestamp = first(block);
+        long delta = 0;
+        long bits = 0;
+        int leading = 0;
+        int meaningful = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                delta += readDeltaOfDelta(timestamps);
+                timestamp += delta;
+            }
+            if (i == 0) {
+                bits = temperatures.read(64);
+            } else if (temperatures.read(1) == 1) {
+                if (temperatures.read(1) == 1) {
+                    leading = (int) temperatures.read(5);
+                    meaningful = (int) temperatures.read(6) + 1;
+                }
+                bits ^= temperatures.read(meaningful) << (64 - leading - meaningful);
+            }
+            consumer.accept(timestamp, Double.longBitsToDouble(bits), raining.read(1) == 1);
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader reader) {
+        if (reader.read(1) == 0) return 0;
+        if (reader.read(1) == 0) return signed(reader.read(7), 7);
+        if (reader.read(1) == 0) return signed(reader.read(9), 9);
+        if (reader.read(1) == 0) return signed(reader.read(12), 12);
+        return reader.read(64);
+    }
+
+    private static long signed(long value, int bits) {
+        return value << (64 - bits) >> (64 - bits);
+    }
+
+    private static boolean fits(long value, int bits) {
+        return value >= -(1L << (bits - 1)) && value < 1L << (bits - 1);
+    }
+
+    /**
+     * Encodes the readings of one sensor in timestamp order.
+     */
+    static final class Builder {
+        private final int sensorId;
+        private final BitWriter timestamps = new BitWriter();
+        private final BitWriter temperatures = new BitWriter();
+        private final BitWriter raining = new BitWriter();
+        private int count;
+        private long first;
+        private long last;
+        private long delta;
+        private long bits;
+        private int leading = Integer.MAX_VALUE;
+        private int trailing;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double sum;
+        private int rainingCount;
+
+        Builder(int sensorId) {
+            this.sensorId = sensorId;
+        }
+
+        void append(long timestamp, double temperature, boolean isRaining) {
+            if (count == 0) {
+                first = timestamp;
+            } else {
+                long nextDelta = timestamp - last;
+                writeDeltaOfDelta(nextDelta - delta);
+                delta = nextDelta;
+            }
+            last = timestamp;
+
+            long nextBits = Double.doubleToLongBits(temperature);
+            if (count == 0) {
+                temperatures.write(nextBits, 64);
+            } else {
+                writeXor(nextBits ^ bits);
+            }
+            bits = nextBits;
+
+            raining.write(isRaining ? 1 : 0, 1);
+            min = Math.min(min, temperature);
+            max = Math.max(max, temperature);
+            sum += temperature;
+            if (isRaining) rainingCount++;
+            count++;
+        }
+
+        int count() {
+            return count;
+        }
+
+        long first() {
+            return first;
+        }
+
+        byte[] toBytes() {
+            int timestampBytes = timestamps.byteLength();
+            int temperatureBytes = temperatures.byteLength();
+            int rainingBytes = raining.byteLength();
+            ByteBuffer block = ByteBuffer.allocate(HEADER + timestampBytes + temperatureBytes + rainingBytes);
+            block.putInt(sensorId).putInt(count).putLong(first).putLong(last)
+                    .putDouble(min).putDouble(max).putDouble(sum).putInt(rainingCount)
+                    .putInt(timestampBytes).putInt(temperatureBytes).putInt(rainingBytes);
+            block.position(HEADER);
+            timestamps.copyTo(block);
+            temperatures.copyTo(block);
+            raining.copyTo(block);
+            return block.array();
+        }
+
+        private void writeDeltaOfDelta(long deltaOfDelta) {
+            if (deltaOfDelta == 0) {
+                timestamps.write(0, 1);
+            } else if (fits(deltaOfDelta, 7)) {
+                timestamps.write(0b10, 2);
+                timestamps.write(deltaOfDelta, 7);
+            } else if (fits(deltaOfDelta, 9)) {
+                timestamps.write(0b110, 3);
+                timestamps.write(deltaOfDelta, 9);
+            } else if (fits(deltaOfDelta, 12)) {
+                timestamps.write(0b1110, 4);
+                timestamps.write(deltaOfDelta, 12);
+            } else {
+                timestamps.write(0b1111, 4);
+                timestamps.write(deltaOfDelta, 64);
+            }
+        }
+
+        private void writeXor(long xor) {
+            if (xor == 0) {
+                temperatures.write(0, 1);
+                return;
+            }
+            int nextLeading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int nextTrailing = Long.numberOfTrailingZeros(xor);
+            if (nextLeading >= leading && nextTrailing >= trailing) {
+                temperatures.write(0b10, 2);
+                temperatures.write(xor >>> trailing, 64 - leading - trailing);
+            } else {
+                int meaningful = 64 - nextLeading - nextTrailing;
+                temperatures.write(0b11, 2);
+                temperatures.write(nextLeading, 5);
+                temperatures.write(meaningful - 1, 6);
+                temperatures.write(xor >>> nextTrailing, meaningful);
+                leading = nextLeading;
+                trailing = nextTrailing;
+            }
+        }
+    }
+
+    private static final class BitWriter {
+        private long[] words = new long[8];
+        private long bitLength;
+
+        void write(long value, int bits) {
+            if (bits < 64) value &= (1L << bits) - 1;
+            int word = (int) (bitLength >>> 6);
+            int used = (int) (bitLength & 63);
+            if (word + 1 >= words.length) words = Arrays.copyOf(words, words.length * 2);
+            int free = 64 - used;
+            if (bits <= free) {
+                words[word] |= value << (free - bits);
+            } else {
+                words[word] |= value >>> (bits - free);
+                words[word + 1] |= value << (64 - (bits - free));
+            }
+            bitLength += bits;
+        }
+
+        int byteLength() {
+            return (int) ((bitLength + 7) >>> 3);
+        }
+
+        void copyTo(ByteBuffer target) {
+            int bytes = byteLength();
+            for (int i = 0; i < bytes; i++) target.put((byte) (words[i >>> 3] >>> (56 - ((i & 7) << 3))));
+        }
+    }
+
+    private static final class BitReader {
+        private final byte[] data;
+        private long position;
+
+        BitReader(byte[] data, int offset) {
+            this.data = data;
+            this.position = (long) offset << 3;
+        }
+
+        long read(int bits) {
+            long value = 0;
+            for (int remaining = bits; remaining > 0; ) {
+                int index = (int) (position >>> 3);
+                int used = (int) (position & 7);
+                int take = Math.min(8 - used, remaining);
+                int chunk = ((data[index] & 0xFF) >>> (8 - used - take)) & ((1 << take) - 1);
+                value = value << take | chunk;
+                position += take;
+                remaining -= take;
+            }
+            return value;
+        }
+    }
+}
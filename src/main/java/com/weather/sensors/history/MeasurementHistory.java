@@ -0,0 +1,368 @@
+package com.weather.sensors.history;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.weather.sensors.dto.AggregateDTO;
+import com.weather.sensors.dto.HistoryDTO;
+import com.weather.sensors.dto.HistoryPointDTO;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.outbox.SegmentLog;
+import com.weather.sensors.services.ExecutionMode;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps the readings taken on this node for range queries. Readings are collected per sensor into
+ * {@link HistoryBlock}s of up to {@code block-size} readings, which are sealed when full, when a reading falls into
+ * the next partition, after {@code seal-ms} or on shutdown. Sealed blocks are appended to the {@link SegmentLog}
+ * of their time partition ({@code partition-ms} wide, one directory each under {@code dir}); an in-memory index per
+ * partition maps sensor ids to their blocks and is rebuilt from the files on startup. Partitions older than
+ * {@code retention-ms} are deleted whole.
+ * <p>
+ * Queries see sealed and open blocks alike. Readings of a block that was not sealed before a crash are lost.
+ */
+@Component
+public class MeasurementHistory {
+    private static final Logger log = LoggerFactory.getLogger(MeasurementHistory.class);
+
+    private final boolean enabled;
+    private final Path dir;
+    private final long partitionSize;
+    private final long retention;
+    private final int blockSize;
+    private final int segmentSize;
+    private final long sealAfter;
+    private final int maxPoints;
+
+    private final ConcurrentSkipListMap<Long, Partition> partitions = new ConcurrentSkipListMap<>();
+    private final Map<Integer, OpenBlock> openBlocks = new ConcurrentHashMap<>();
+    private final AtomicLong readings = new AtomicLong();
+    private final AtomicLong blocks = new AtomicLong();
+    private final ScheduledExecutorService maintenance;
+
+    public MeasurementHistory(@Value("${sensors.history.enabled:false}") boolean enabled,
+                              @Value("${sensors.history.dir:history}") Path dir,
+                              @Value("${sensors.history.partition-ms:3600000}") long partitionSize,
+                              @Value("${sensors.history.retention-ms:604800000}") long retention,
+                              @Value("${sensors.history.block-size:256}") int blockSize,
+                              @Value("${sensors.history.segment-bytes:8388608}") int segmentSize,
+                              @Value("${sensors.history.seal-ms:60000}") long sealAfter,
+                              @Value("${sensors.history.max-points:10000}") int maxPoints,
+                              MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.dir = dir;
+        this.partitionSize = partitionSize;
+        this.retention = retention;
+        this.blockSize = blockSize;
+        this.segmentSize = segmentSize;
+        this.sealAfter = sealAfter;
+        this.maxPoints = maxPoints;
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(ExecutionMode.platformThreads("history-maintenance"));
+        if (enabled) {
+            load();
+            long interval = Math.max(1000, Math.min(sealAfter, partitionSize) / 4);
+            maintenance.scheduleWithFixedDelay(this::maintain, interval, interval, TimeUnit.MILLISECONDS);
+        }
+
+        FunctionCounter.builder("sensors.history.readings", readings, AtomicLong::get).description("Readings kept in the local history").register(meterRegistry);
+        FunctionCounter.builder("sensors.history.blocks", blocks, AtomicLong::get).description("History blocks sealed to disk").register(meterRegistry);
+        Gauge.builder("sensors.history.bytes", this, MeasurementHistory::getStoredBytes).description("Bytes of sealed history blocks on disk").register(meterRegistry);
+        Gauge.builder("sensors.history.partitions", partitions, Map::size).description("Time partitions of the local history").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void record(Sensor sensor, double temperature, boolean raining) {
+        if (enabled) record(sensor.getId(), System.currentTimeMillis(), temperature, raining);
+    }
+
+    /**
+     * Returns the readings of {@code sensorId} in {@code [from, to)}, at most {@code max-points} of them, or with a
+     * {@code step} one summary per step starting at {@code from}.
+     */
+    public HistoryDTO query(int sensorId, long from, long to, Long step) {
+        if (!enabled) throw new IllegalStateException("measurement history is disabled");
+        if (to <= from) throw new IllegalArgumentException("'to' must be after 'from'");
+        if (step != null && step <= 0) throw new IllegalArgumentException("'step' must be positive");
+
+        HistoryDTO history = new HistoryDTO();
+        history.setSensorId(sensorId);
+        history.setFrom(from);
+        history.setTo(to);
+        history.setStep(step);
+        if (step == null) points(sensorId, from, to, history);
+        else buckets(sensorId, from, to, step, history);
+        return history;
+    }
+
+    /**
+     * Passes every reading in {@code [from, to)} of every sensor to {@code consumer}, block by block: readings come
+     * in time order per sensor, but not across sensors.
+     */
+    public void forEachReading(long from, long to, SensorReadingConsumer consumer) {
+        if (!enabled) throw new IllegalStateException("measurement history is disabled");
+        Set<Integer> sensorIds = new HashSet<>(openBlocks.keySet());
+        Long firstPartition = partitions.floorKey(from);
+        for (Partition partition : partitions.subMap(firstPartition != null ? firstPartition : from, true, to, false).values()) {
+            sensorIds.addAll(partition.index.keySet());
+        }
+        for (int sensorId : sensorIds) {
+            forEachBlock(sensorId, from, to, payload -> HistoryBlock.forEach(payload, (timestamp, temperature, raining) -> {
+                if (timestamp >= from && timestamp < to) consumer.accept(sensorId, timestamp, temperature, raining);
+            }));
+        }
+    }
+
+    public long getStoredBytes() {
+        long bytes = 0;
+        for (Partition partition : partitions.values()) bytes += partition.log.writePosition();
+        return bytes;
+    }
+
+    /**
+     * Seals every open block and flushes the partitions to disk.
+     */
+    @PreDestroy
+    public void close() {
+        maintenance.shutdownNow();
+        if (!enabled) return;
+        for (Integer sensorId : openBlocks.keySet()) openBlocks.computeIfPresent(sensorId, (id, block) -> seal(block));
+        for (Partition partition : partitions.values()) partition.log.close();
+    }
+
+    void record(int sensorId, long timestamp, double temperature, boolean raining) {
+        long partitionStart = timestamp - Math.floorMod(timestamp, partitionSize);
+        openBlocks.compute(sensorId, (id, block) -> {
+            if (block != null && block.partitionStart != partitionStart) block = seal(block);
+            if (block == null) block = new OpenBlock(partitionStart, new HistoryBlock.Builder(sensorId), System.currentTimeMillis());
+            block.builder.append(timestamp, temperature, raining);
+            return block.builder.count() >= blockSize ? seal(block) : block;
+        });
+        readings.incrementAndGet();
+    }
+
+    void maintain() {
+        try {
+            long now = System.currentTimeMillis();
+            for (Integer sensorId : openBlocks.keySet()) {
+                openBlocks.computeIfPresent(sensorId, (id, block) -> block.openedAt + sealAfter <= now ? seal(block) : block);
+            }
+            for (Map.Entry<Long, Partition> entry : partitions.headMap(now - retention - partitionSize, true).entrySet()) drop(entry.getKey(), entry.getValue());
+        } catch (RuntimeException e) {
+            log.warn("history maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    private void points(int sensorId, long from, long to, HistoryDTO history) {
+        List<HistoryPointDTO> points = new ArrayList<>();
+        boolean[] truncated = {false};
+        forEachBlock(sensorId, from, to, payload -> HistoryBlock.forEach(payload, (timestamp, temperature, raining) -> {
+            if (timestamp < from || timestamp >= to) return;
+            if (points.size() == maxPoints) {
+                truncated[0] = true;
+                return;
+            }
+            HistoryPointDTO point = new HistoryPointDTO();
+            point.setTimestamp(timestamp);
+            point.setTemperature(temperature);
+            point.setRaining(raining);
+            points.add(point);
+        }));
+        history.setPoints(points);
+        history.setTruncated(truncated[0]);
+    }
+
+    private void buckets(int sensorId, long from, long to, long step, HistoryDTO history) {
+        long bucketCount = (to - from + step - 1) / step;
+        if (bucketCount > maxPoints) throw new IllegalArgumentException("'step' gives " + bucketCount + " buckets, at most " + maxPoints + " are allowed");
+
+        Bucket[] buckets = new Bucket[(int) bucketCount];
+        forEachBlock(sensorId, from, to, payload -> {
+            ByteBuffer block = ByteBuffer.wrap(payload);
+            long first = HistoryBlock.first(block);
+            long last = HistoryBlock.last(block);
+            if (first >= from && last < to && (first - from) / step == (last - from) / step) {
+                bucket(buckets, (int) ((first - from) / step)).add(block);
+                return;
+            }
+            HistoryBlock.forEach(payload, (timestamp, temperature, raining) -> {
+                if (timestamp >= from && timestamp < to) bucket(buckets, (int) ((timestamp - from) / step)).add(temperature, raining);
+            });
+        });
+
+        List<AggregateDTO> summaries = new ArrayList<>();
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] != null) summaries.add(buckets[i].toDTO(sensorId, from + i * step, Math.min(to, from + (i + 1) * step)));
+        }
+        history.setBuckets(summaries);
+    }
+
+    private void forEachBlock(int sensorId, long from, long to, Consumer<byte[]> consumer) {
+        Long firstPartition = partitions.floorKey(from);
+        for (Partition partition : partitions.subMap(firstPartition != null ? firstPartition : from, true, to, false).values()) {
+            List<BlockRef> refs = partition.index.get(sensorId);
+            if (refs == null) continue;
+            List<SegmentLog.Record> records = new ArrayList<>(1);
+            for (BlockRef ref : refs) {
+                if (ref.last < from || ref.first >= to) continue;
+                records.clear();
+                partition.log.read(ref.position, 1, records);
+                if (!records.isEmpty()) consumer.accept(records.get(0).payload());
+            }
+        }
+        byte[][] open = new byte[1][];
+        openBlocks.computeIfPresent(sensorId, (id, block) -> {
+            open[0] = block.builder.toBytes();
+            return block;
+        });
+        if (open[0] != null) consumer.accept(open[0]);
+    }
+
+    private OpenBlock seal(OpenBlock block) {
+        byte[] payload = block.builder.toBytes();
+        ByteBuffer header = ByteBuffer.wrap(payload);
+        Partition partition = partitions.computeIfAbsent(block.partitionStart, this::openPartition);
+        long end = partition.log.append(payload, 0, payload.length);
+        partition.add(HistoryBlock.sensorId(header), new BlockRef(end - SegmentLog.recordSize(payload.length), HistoryBlock.first(header), HistoryBlock.last(header)));
+        blocks.incrementAndGet();
+        return null;
+    }
+
+    private void load() {
+        try {
+            Files.createDirectories(dir);
+            try (Stream<Path> files = Files.list(dir)) {
+                files.filter(Files::isDirectory).sorted().forEach(partitionDir -> {
+                    long start = Long.parseLong(partitionDir.getFileName().toString());
+                    partitions.put(start, openPartition(start));
+                });
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new IllegalStateException("cannot load measurement history from " + dir + ": " + e.getMessage(), e);
+        }
+        if (!partitions.isEmpty()) log.info("loaded {} history partitions, {} bytes", partitions.size(), getStoredBytes());
+    }
+
+    private Partition openPartition(long start) {
+        Partition partition = new Partition(new SegmentLog(dir.resolve(String.format("%015d", start)), segmentSize, Long.MAX_VALUE));
+        List<SegmentLog.Record> records = new ArrayList<>();
+        long position = 0;
+        while (position < partition.log.writePosition()) {
+            records.clear();
+            partition.log.read(position, 256, records);
+            if (records.isEmpty()) break;
+            for (SegmentLog.Record record : records) {
+                ByteBuffer header = ByteBuffer.wrap(record.payload());
+                partition.add(HistoryBlock.sensorId(header), new BlockRef(record.next() - SegmentLog.recordSize(record.payload().length), HistoryBlock.first(header), HistoryBlock.last(header)));
+                position = record.next();
+            }
+        }
+        return partition;
+    }
+
+    private void drop(long start, Partition partition) {
+        partitions.remove(start);
+        partition.log.close();
+        try (Stream<Path> files = Files.walk(partition.log.dir())) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("dropped history partition {} past the retention of {} ms", start, retention);
+    }
+
+    private static Bucket bucket(Bucket[] buckets, int index) {
+        if (buckets[index] == null) buckets[index] = new Bucket();
+        return buckets[index];
+    }
+
+    @FunctionalInterface
+    public interface SensorReadingConsumer {
+        void accept(int sensorId, long timestamp, double temperature, boolean raining);
+    }
+
+    private record OpenBlock(long partitionStart, HistoryBlock.Builder builder, long openedAt) {
+    }
+
+    private record BlockRef(long position, long first, long last) {
+    }
+
+    private static class Partition {
+        final SegmentLog log;
+        final Map<Integer, List<BlockRef>> index = new ConcurrentHashMap<>();
+
+        Partition(SegmentLog log) {
+            this.log = log;
+        }
+
+        void add(int sensorId, BlockRef ref) {
+            index.computeIfAbsent(sensorId, id -> new CopyOnWriteArrayList<>()).add(ref);
+        }
+    }
+
+    private static class Bucket {
+        int count;
+        int rainingCount;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum;
+
+        void add(double temperature, boolean raining) {
+            count++;
+            if (raining) rainingCount++;
+            min = Math.min(min, temperature);
+            max = Math.max(max, temperature);
+            sum += temperature;
+        }
+
+        void add(ByteBuffer block) {
+            count += HistoryBlock.count(block);
+            rainingCount += HistoryBlock.rainingCount(block);
+            min = Math.min(min, HistoryBlock.min(block));
+            max = Math.max(max, HistoryBlock.max(block));
+            sum += HistoryBlock.sum(block);
+        }
+
+        AggregateDTO toDTO(int sensorId, long from, long to) {
+            AggregateDTO aggregate = new AggregateDTO();
+            aggregate.setSensorId(sensorId);
+            aggregate.setFrom(from);
+            aggregate.setTo(to);
+            aggregate.setCount(count);
+            aggregate.setMinTemperature(min);
+            aggregate.setMaxTemperature(max);
+            aggregate.setMeanTemperature(Math.round(sum / count * 100) / 100.0);
+            aggregate.setRainingFraction((double) rainingCount / count);
+            return aggregate;
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package com.weather.sensors.loadgen;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.weather.sensors.dto.LoadRequestDTO;
+import com.weather.sensors.dto.LoadRunDTO;
+import com.weather.sensors.dto.ReplayRequestDTO;
+import com.weather.sensors.history.MeasurementHistory;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.services.ExecutionMode;
+import com.weather.sensors.services.MeasurementBatcher;
+import com.weather.sensors.services.MeasurementSender;
+import com.weather.sensors.simulation.RandomWalkWeatherSimulator;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Load-generation mode. A run drives the measurement send path (the batcher when batching is enabled, the sender
+ * otherwise) with virtual sensors that live only in memory, so no database rows are needed. Readings are either
+ * synthetic, from a {@link RandomWalkWeatherSimulator} seeded per run, or a replay of the readings recorded in the
+ * {@link MeasurementHistory}, sped up N times.
+ * <p>
+ * Scheduling is open-loop: every reading has an intended send time fixed in advance, a dispatcher thread hands it
+ * to a virtual thread at that time whatever the readings before it are doing, and latency is measured from the
+ * intended time to the end of the post that carried the reading (with batching, the batch post, so the time spent
+ * waiting for the batch counts), so a stalled server shows up in the percentiles instead of slowing the load down
+ * (no coordinated omission). Readings beyond {@code max-in-flight} are dropped and counted. At the end of a run
+ * the latency distribution of the successful sends is written as an HdrHistogram percentile report to
+ * {@code report-dir}.
+ */
+@Component
+public class LoadGenerator {
+    private static final Logger log = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private static final int INDEX_BITS = 24;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+    private final MeasurementSender measurementSender;
+    private final MeasurementBatcher measurementBatcher;
+    private final MeasurementHistory measurementHistory;
+    private final boolean enabled;
+    private final Path reportDir;
+    private final String token;
+    private final int maxInFlight;
+    private final int maxReplayReadings;
+    private final long drainTimeout;
+
+    private final ExecutorService sends = ExecutionMode.VIRTUAL.newExecutor("loadgen-send", 0, 0);
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile Run current;
+
+    public LoadGenerator(MeasurementSender measurementSender, MeasurementBatcher measurementBatcher, MeasurementHistory measurementHistory,
+                         @Value("${sensors.loadgen.enabled:false}") boolean enabled,
+                         @Value("${sensors.loadgen.report-dir:loadgen}") Path reportDir,
+                         @Value("${sensors.loadgen.token:loadgen}") String token,
+                         @Value("${sensors.loadgen.max-in-flight:10000}") int maxInFlight,
+                         @Value("${sensors.loadgen.max-replay-readings:5000000}") int maxReplayReadings,
+                         @Value("${sensors.loadgen.drain-timeout-ms:10000}") long drainTimeout,
+                         MeterRegistry meterRegistry) {
+        this.measurementSender = measurementSender;
+        this.measurementBatcher = measurementBatcher;
+        this.measurementHistory = measurementHistory;
+        this.enabled = enabled;
+        this.reportDir = reportDir;
+        this.token = token;
+        this.maxInFlight = maxInFlight;
+        this.maxReplayReadings = (int) Math.min(maxReplayReadings, INDEX_MASK + 1);
+        this.drainTimeout = drainTimeout;
+
+        FunctionCounter.builder("sensors.loadgen.sent", sent, AtomicLong::get).description("Load generator readings sent").register(meterRegistry);
+        FunctionCounter.builder("sensors.loadgen.failed", failed, AtomicLong::get).description("Load generator readings that failed").register(meterRegistry);
+        FunctionCounter.builder("sensors.loadgen.dropped", dropped, AtomicLong::get).description("Load generator readings dropped beyond max-in-flight").register(meterRegistry);
+    }
+
+    /**
+     * Starts a synthetic run: {@code sensors} virtual sensors take turns sending {@code rate} readings per second in
+     * total, after a linear ramp from zero over {@code rampMs}; the run lasts {@code durationMs}, ramp included.
+     */
+    public synchronized LoadRunDTO start(LoadRequestDTO request) {
+        checkIdle(request.getServerURL());
+        if (request.getSensors() <= 0) throw new IllegalArgumentException("'sensors' must be positive");
+        if (request.getRate() <= 0) throw new IllegalArgumentException("'rate' must be positive");
+        if (request.getDurationMs() <= 0) throw new IllegalArgumentException("'durationMs' must be positive");
+        if (request.getRampMs() < 0 || request.getRampMs() > request.getDurationMs()) throw new IllegalArgumentException("'rampMs' must be between 0 and 'durationMs'");
+
+        long seed = request.getSeed() != null ? request.getSeed() : System.nanoTime();
+        return begin(new SyntheticRun(request, seed, tokenOf(request.getToken())));
+    }
+
+    /**
+     * Starts a replay of the readings recorded in {@code [from, to)}, sent to {@code serverURL} with their original
+     * spacing divided by {@code speed}.
+     */
+    public synchronized LoadRunDTO replay(ReplayRequestDTO request) {
+        checkIdle(request.getServerURL());
+        if (request.getSpeed() <= 0) throw new IllegalArgumentException("'speed' must be positive");
+        if (request.getTo() <= request.getFrom()) throw new IllegalArgumentException("'to' must be after 'from'");
+        if (request.getTo() - request.getFrom() >= 1L << (63 - INDEX_BITS)) throw new IllegalArgumentException("the replayed range is too long");
+
+        ReplayLog replayLog = new ReplayLog(request.getFrom());
+        measurementHistory.forEachReading(request.getFrom(), request.getTo(), replayLog::add);
+        if (replayLog.count == 0) throw new IllegalArgumentException("no readings were recorded between " + request.getFrom() + " and " + request.getTo());
+        return begin(new ReplayRun(request, replayLog.sorted(), tokenOf(request.getToken())));
+    }
+
+    /**
+     * Stops issuing readings; the run still waits for the ones in flight and writes its report.
+     */
+    public LoadRunDTO stop() {
+        Run run = current;
+        if (run == null) return getStatus();
+        if (run.finishedAt != null) return run.toDTO();
+        run.stopping = true;
+        run.dispatcher.interrupt();
+        return run.toDTO();
+    }
+
+    /**
+     * Returns the current or last run.
+     */
+    public LoadRunDTO getStatus() {
+        Run run = current;
+        if (run != null) return run.toDTO();
+        LoadRunDTO idle = new LoadRunDTO();
+        idle.setState("idle");
+        return idle;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stop();
+        sends.shutdownNow();
+    }
+
+    /**
+     * Nanoseconds after the start at which reading {@code k} is due when the rate rises linearly from zero to
+     * {@code rate} over {@code rampMs} and then holds: the inverse of the cumulative reading count.
+     */
+    static long rampOffsetNanos(long k, double rate, long rampMs) {
+        double ramp = rampMs / 1000.0;
+        double rampReadings = rate * ramp / 2;
+        double seconds = k < rampReadings ? Math.sqrt(2 * ramp * k / rate) : ramp + (k - rampReadings) / rate;
+        return (long) (seconds * 1e9);
+    }
+
+    private void checkIdle(String serverURL) {
+        if (!enabled) throw new IllegalStateException("load generation is disabled");
+        if (serverURL == null || serverURL.isBlank()) throw new IllegalArgumentException("'serverURL' is required");
+        Run run = current;
+        if (run != null && run.finishedAt == null) throw new IllegalStateException("a load run is already in progress");
+    }
+
+    private String tokenOf(String requested) {
+        return requested != null ? requested : token;
+    }
+
+    private LoadRunDTO begin(Run run) {
+        current = run;
+        run.dispatcher = ExecutionMode.platformThreads("loadgen").newThread(run::dispatch);
+        run.dispatcher.start();
+        log.info("started {} run of {} readings against {}", run.mode, run.scheduled, run.serverURL);
+        return run.toDTO();
+    }
+
+    private CompletableFuture<Void> send(Sensor sensor, double temperature, boolean raining) {
+        try {
+            return measurementBatcher.isEnabled() ? measurementBatcher.add(sensor, temperature, raining) : measurementSender.send(sensor, temperature, raining);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static Sensor virtualSensor(int id, String name, String token, String serverURL, double sessionId) {
+        Sensor sensor = new Sensor();
+        sensor.setId(id);
+        sensor.setName(name);
+        sensor.setToken(token);
+        sensor.setServerURL(serverURL);
+        sensor.setSessionId(sessionId);
+        sensor.setRegistered(true);
+        return sensor;
+    }
+
+    private abstract class Run {
+        final String mode;
+        final String serverURL;
+        final Long seed;
+        final long scheduled;
+        final long startedAt = System.currentTimeMillis();
+        final Histogram latencies = new ConcurrentHistogram(3);
+        final LongAdder runSent = new LongAdder();
+        final LongAdder runFailed = new LongAdder();
+        final LongAdder runDropped = new LongAdder();
+        final AtomicInteger inFlight = new AtomicInteger();
+        Thread dispatcher;
+        volatile boolean stopping;
+        volatile long issued;
+        volatile long maxLag;
+        volatile Long finishedAt;
+        volatile String report;
+
+        Run(String mode, String serverURL, Long seed, long scheduled) {
+            this.mode = mode;
+            this.serverURL = serverURL;
+            this.seed = seed;
+            this.scheduled = scheduled;
+        }
+
+        abstract long offsetNanos(long k);
+
+        /**
+         * Called once per reading, before {@link #temperature(long)} and {@link #raining(long)} of the same reading.
+         */
+        abstract Sensor sensor(long k);
+
+        abstract double temperature(long k);
+
+        abstract boolean raining(long k);
+
+        void dispatch() {
+            long start = System.nanoTime();
+            try {
+                for (long k = 0; k < scheduled && !stopping; k++) {
+                    long intended = start + offsetNanos(k);
+                    long wait;
+                    while ((wait = intended - System.nanoTime()) > 0 && !stopping) LockSupport.parkNanos(wait);
+                    if (stopping) break;
+                    if (-wait > maxLag) maxLag = -wait;
+
+                    Sensor sensor = sensor(k);
+                    issue(sensor, temperature(k), raining(k), intended);
+                    issued = k + 1;
+                }
+            } catch (RuntimeException e) {
+                log.warn("{} run failed: {}", mode, e.getMessage());
+            } finally {
+                finish();
+            }
+        }
+
+        void issue(Sensor sensor, double temperature, boolean raining, long intended) {
+            if (inFlight.incrementAndGet() > maxInFlight) {
+                inFlight.decrementAndGet();
+                runDropped.increment();
+                dropped.incrementAndGet();
+                return;
+            }
+            try {
+                sends.execute(() -> send(sensor, temperature, raining).whenComplete((ignored, error) -> completed(intended, error)));
+            } catch (RejectedExecutionException e) {
+                completed(intended, e);
+            }
+        }
+
+        void completed(long intended, Throwable error) {
+            if (error == null) {
+                latencies.recordValue(Math.max(0, System.nanoTime() - intended));
+                runSent.increment();
+                sent.incrementAndGet();
+            } else {
+                runFailed.increment();
+                failed.incrementAndGet();
+            }
+            inFlight.decrementAndGet();
+        }
+
+        void finish() {
+            Thread.interrupted();
+            long deadline = System.currentTimeMillis() + drainTimeout;
+            while (inFlight.get() > 0 && System.currentTimeMillis() < deadline) LockSupport.parkNanos(20_000_000);
+            try {
+                Files.createDirectories(reportDir);
+                Path file = reportDir.resolve(mode + "-" + startedAt + ".hgrm");
+                try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                    latencies.outputPercentileDistribution(out, 1_000_000.0);
+                }
+                report = file.toString();
+            } catch (IOException | UncheckedIOException e) {
+                log.warn("cannot write the latency report of the {} run: {}", mode, e.getMessage());
+            }
+            finishedAt = System.currentTimeMillis();
+            log.info("{} {} run: {} of {} readings sent, {} failed, {} dropped, p99 {} ms", stopping ? "stopped" : "completed", mode,
+                    runSent.sum(), scheduled, runFailed.sum(), runDropped.sum(), latencies.getValueAtPercentile(99) / 1e6);
+        }
+
+        LoadRunDTO toDTO() {
+            LoadRunDTO dto = new LoadRunDTO();
+            dto.setMode(mode);
+            dto.setState(finishedAt == null ? "running" : stopping ? "stopped" : "completed");
+            dto.setServerURL(serverURL);
+            dto.setSeed(seed);
+            dto.setStartedAt(startedAt);
+            dto.setFinishedAt(finishedAt);
+            dto.setScheduled(scheduled);
+            dto.setIssued(issued);
+            dto.setSent(runSent.sum());
+            dto.setFailed(runFailed.sum());
+            dto.setDropped(runDropped.sum());
+            dto.setMaxLagMs(maxLag / 1e6);
+            if (latencies.getTotalCount() > 0) {
+                dto.setP50Ms(latencies.getValueAtPercentile(50) / 1e6);
+                dto.setP90Ms(latencies.getValueAtPercentile(90) / 1e6);
+                dto.setP99Ms(latencies.getValueAtPercentile(99) / 1e6);
+                dto.setP999Ms(latencies.getValueAtPercentile(99.9) / 1e6);
+                dto.setMaxMs(latencies.getMaxValue() / 1e6);
+            }
+            dto.setReport(report);
+            return dto;
+        }
+    }
+
+    /**
+     * Sensor {@code k % sensors} sends reading {@code k}, so with one seed every sensor sends the same readings in
+     * the same order on every run.
+     */
+    private class SyntheticRun extends Run {
+        final Sensor[] sensors;
+        final RandomWalkWeatherSimulator simulator;
+        final double rate;
+        final long rampMs;
+
+        SyntheticRun(LoadRequestDTO request, long seed, String token) {
+            super("load", request.getServerURL(), seed,
+                    Math.round(request.getRate() * (request.getRampMs() / 2.0 + request.getDurationMs() - request.getRampMs()) / 1000));
+            this.rate = request.getRate();
+            this.rampMs = request.getRampMs();
+            this.simulator = new RandomWalkWeatherSimulator(seed);
+            this.sensors = new Sensor[request.getSensors()];
+            for (int i = 0; i < sensors.length; i++) {
+                sensors[i] = virtualSensor(i + 1, "loadgen-" + (i + 1), token, request.getServerURL(), seed);
+                simulator.register();
+            }
+        }
+
+        @Override
+        long offsetNanos(long k) {
+            return rampOffsetNanos(k, rate, rampMs);
+        }
+
+        @Override
+        Sensor sensor(long k) {
+            int slot = (int) (k % sensors.length);
+            simulator.advance(slot);
+            return sensors[slot];
+        }
+
+        @Override
+        double temperature(long k) {
+            return simulator.temperature((int) (k % sensors.length));
+        }
+
+        @Override
+        boolean raining(long k) {
+            return simulator.raining((int) (k % sensors.length));
+        }
+    }
+
+    private class ReplayRun extends Run {
+        final ReplayLog readings;
+        final double speed;
+        final Map<Integer, Sensor> sensors = new HashMap<>();
+        final String token;
+
+        ReplayRun(ReplayRequestDTO request, ReplayLog readings, String token) {
+            super("replay", request.getServerURL(), null, readings.count);
+            this.readings = readings;
+            this.speed = request.getSpeed();
+            this.token = token;
+        }
+
+        @Override
+        long offsetNanos(long k) {
+            return (long) (((readings.keys[(int) k] >>> INDEX_BITS) - (readings.keys[0] >>> INDEX_BITS)) * 1e6 / speed);
+        }
+
+        @Override
+        Sensor sensor(long k) {
+            return sensors.computeIfAbsent(readings.sensorIds[readings.index(k)], id -> virtualSensor(id, "replay-" + id, token, serverURL, startedAt));
+        }
+
+        @Override
+        double temperature(long k) {
+            return readings.temperatures[readings.index(k)];
+        }
+
+        @Override
+        boolean raining(long k) {
+            return readings.raining[readings.index(k)];
+        }
+    }
+
+    /**
+     * Recorded readings in arrival order. Each key packs the reading's offset from the start of the range above its
+     * index, so a single primitive sort puts the readings of all sensors in time order.
+     */
+    private class ReplayLog {
+        final long from;
+        long[] keys = new long[1024];
+        int[] sensorIds = new int[1024];
+        double[] temperatures = new double[1024];
+        boolean[] raining = new boolean[1024];
+        int count;
+
+        ReplayLog(long from) {
+            this.from = from;
+        }
+
+        void add(int sensorId, long timestamp, double temperature, boolean isRaining) {
+            if (count == maxReplayReadings) throw new IllegalArgumentException("more than " + maxReplayReadings + " readings in the replayed range");
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+                sensorIds = Arrays.copyOf(sensorIds, count * 2);
+                temperatures = Arrays.copyOf(temperatures, count * 2);
+                raining = Arrays.copyOf(raining, count * 2);
+            }
+            keys[count] = (timestamp - from) << INDEX_BITS | count;
+            sensorIds[count] = sensorId;
+            temperatures[count] = temperature;
+            raining[count] = isRaining;
+            count++;
+        }
+
+        ReplayLog sorted() {
+            Arrays.sort(keys, 0, count);
+            return this;
+        }
+
+        int index(long k) {
+            return (int) (keys[(int) k] & INDEX_MASK);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.weather.sensors.metrics;
+
+import org.springframework.stereotype.Component;
+
+import com.weather.sensors.repositories.SensorCache;
+import com.weather.sensors.simulation.WeatherSimulator;
+import com.weather.sensors.transport.HttpClientTransport;
+import com.weather.sensors.transport.MeasurementTransport;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Exposes counters the components already keep (sensor cache, simulator, HTTP client transport) as meters.
+ * They are read only when the registry is scraped, so nothing is added to the request or measurement paths.
+ */
+@Component
+public class SensorsMetricsBinder implements MeterBinder {
+    private final SensorCache sensorCache;
+    private final WeatherSimulator weatherSimulator;
+    private final MeasurementTransport measurementTransport;
+
+    public SensorsMetricsBinder(SensorCache sensorCache, WeatherSimulator weatherSimulator, MeasurementTransport measurementTransport) {
+        this.sensorCache = sensorCache;
+        this.weatherSimulator = weatherSimulator;
+        this.measurementTransport = measurementTransport;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sensors.cache.requests", sensorCache, SensorCache::getHits).tag("result", "hit").description("Sensor cache lookups").register(registry);
+        FunctionCounter.builder("sensors.cache.requests", sensorCache, SensorCache::getMisses).tag("result", "miss").description("Sensor cache lookups").register(registry);
+        FunctionCounter.builder("sensors.cache.evictions", sensorCache, SensorCache::getEvictions).description("Sensors evicted from the cache by size or age").register(registry);
+        Gauge.builder("sensors.cache.size", sensorCache, SensorCache::size).description("Sensors held in the cache").register(registry);
+
+        Gauge.builder("sensors.simulation.slots", weatherSimulator, WeatherSimulator::activeSlots).description("Sensors with simulated weather").register(registry);
+
+        if (measurementTransport instanceof HttpClientTransport httpClientTransport) {
+            Gauge.builder("sensors.transport.available", httpClientTransport, HttpClientTransport::getAvailableSlots).description("Requests the HTTP client transport can still start").register(registry);
+        }
+    }
+}
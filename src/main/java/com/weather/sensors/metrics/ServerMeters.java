@@ -0,0 +1,76 @@
+package com.weather.sensors.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Latency and outcome of one kind of call to the measurements servers, tagged by server. Meters are registered
+ * once per server and looked up without allocating, so recording stays cheap enough for every reading.
+ * <ul>
+ * <li>{@code sensors.remote} timer: operation, server, outcome (success/failure), with a percentile histogram</li>
+ * <li>{@code sensors.remote.items} counter: readings or sensors carried, by the same tags</li>
+ * </ul>
+ */
+public class ServerMeters {
+    private final MeterRegistry registry;
+    private final String operation;
+    private final Map<String, Meters> byServer = new ConcurrentHashMap<>();
+
+    public ServerMeters(MeterRegistry registry, String operation) {
+        this.registry = registry;
+        this.operation = operation;
+    }
+
+    public void record(String serverURL, long startNanos, int items, Throwable error) {
+        Meters meters = byServer.get(serverURL);
+        if (meters == null) meters = byServer.computeIfAbsent(serverURL, this::register);
+        long elapsed = System.nanoTime() - startNanos;
+        if (error == null) {
+            meters.success.record(elapsed, TimeUnit.NANOSECONDS);
+            meters.successItems.increment(items);
+        } else {
+            meters.failure.record(elapsed, TimeUnit.NANOSECONDS);
+            meters.failureItems.increment(items);
+        }
+    }
+
+    public <T> T time(String serverURL, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            record(serverURL, start, 1, null);
+            return result;
+        } catch (RuntimeException e) {
+            record(serverURL, start, 1, e);
+            throw e;
+        }
+    }
+
+    private Meters register(String serverURL) {
+        return new Meters(timer(serverURL, "success"), timer(serverURL, "failure"), counter(serverURL, "success"), counter(serverURL, "failure"));
+    }
+
+    private Timer timer(String serverURL, String outcome) {
+        return Timer.builder("sensors.remote")
+                .description("Calls to the measurements servers")
+                .tags("operation", operation, "server", serverURL, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private Counter counter(String serverURL, String outcome) {
+        return Counter.builder("sensors.remote.items")
+                .description("Readings or sensors carried by calls to the measurements servers")
+                .tags("operation", operation, "server", serverURL, "outcome", outcome)
+                .register(registry);
+    }
+
+    private record Meters(Timer success, Timer failure, Counter successItems, Counter failureItems) {
+    }
+}
@@ -1,25 +1,22 @@
 package com.weather.sensors.models;
 
+import java.nio.charset.StandardCharsets;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Transient;
 
 @Entity
 public class Sensor {
     
-    private static final int MIN_TEMP = -40; 
-    private static final int MAX_TEMP = +40;
-    private static final int ACCURACY = 2;
-    private static final int TEMP_STEP = 8;
-    private static final double CHANCE_CLEAR = 0.8;
-    private static final double CHANCE_RAIN_CONTINUES = 0.7;
-    
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sensor_id_seq")
+    // allocationSize must match the sequence's increment, set by db/migration/V3__sensor_id_allocation.sql
+    @SequenceGenerator(name = "sensor_id_seq", sequenceName = "sensor_id_seq", allocationSize = 50)
     private int id;
 
     @Column(name = "name")
@@ -29,7 +26,7 @@ public class Sensor {
     private String description;
 
     @Column(name = "token")
-    private String token;
+    private volatile String token;
 
     @Column(name = "server_url")
     private String serverURL;
@@ -37,50 +34,25 @@ public class Sensor {
     @Column(name = "is_registered")
     private boolean isRegistered;
 
+    @Column(name = "measure_interval")
+    private Integer measureInterval;
+
+    @Column(name = "deadband_temperature")
+    private Double deadbandTemperature;
+
     @Transient
     private WeatherData weatherData;
 
     @Transient
     private double sessionId;
 
-    
-    public void measure() {
-        if (weatherData != null) {
-            weatherData.setTemperature(generateTemperature(weatherData.getTemperature()));
-            weatherData.setRaining(generateRaining(weatherData.isRaining()));
-        } else {
-            weatherData = new WeatherData();
-            weatherData.setTemperature(generateTemperature());
-            weatherData.setRaining(generateRaining());
-        }
-    }
-
-    private double generateTemperature() {
-        double preciseTemp = MIN_TEMP + Math.random() * (MAX_TEMP-MIN_TEMP);
-        double roundedTemp = (double)(Math.ceil(preciseTemp * Math.pow(10, ACCURACY))) / Math.pow(10, ACCURACY);
+    @Transient
+    private int simulationSlot = -1;
 
-        return roundedTemp;
-    }
-    
-    private double generateTemperature(double prevTemp) {
-        double preciseTemp = prevTemp + Math.random() * TEMP_STEP * 2 - TEMP_STEP;
-        double roundedTemp = (double)(Math.ceil(preciseTemp * Math.pow(10, ACCURACY))) / 100;
-        
-        if (roundedTemp > MAX_TEMP ) return MAX_TEMP;
-        if (roundedTemp < MIN_TEMP) return MIN_TEMP; 
-        
-        return roundedTemp;
-    }
+    @Transient
+    private volatile EncodedToken encodedToken;
 
-    private boolean generateRaining() {
-        return (Math.random() > CHANCE_CLEAR);
-    }
     
-    private boolean generateRaining(boolean previous) {
-        if (previous == false) return generateRaining();
-        return Math.random() < CHANCE_RAIN_CONTINUES;
-    }
-
     public boolean equals(Sensor sensor) {
         return (this.id == sensor.id && this.name.equals(sensor.name));
     }
@@ -112,6 +84,19 @@ public class Sensor {
     public String getToken() {
         return token;
     }
+
+    /**
+     * The token's UTF-8 bytes, encoded once per token value; empty without a token.
+     */
+    public byte[] getTokenBytes() {
+        String current = token;
+        EncodedToken encoded = encodedToken;
+        if (encoded == null || encoded.token != current) {
+            encoded = new EncodedToken(current, current == null ? new byte[0] : current.getBytes(StandardCharsets.UTF_8));
+            encodedToken = encoded;
+        }
+        return encoded.bytes;
+    }
     
     public void setToken(String token) {
         this.token = token;
@@ -148,4 +133,31 @@ public class Sensor {
     public void setSessionId(double sessionId) {
         this.sessionId = sessionId;
     }
+
+    public int getSimulationSlot() {
+        return simulationSlot;
+    }
+
+    public void setSimulationSlot(int simulationSlot) {
+        this.simulationSlot = simulationSlot;
+    }
+
+    public Integer getMeasureInterval() {
+        return measureInterval;
+    }
+
+    public void setMeasureInterval(Integer measureInterval) {
+        this.measureInterval = measureInterval;
+    }
+
+    public Double getDeadbandTemperature() {
+        return deadbandTemperature;
+    }
+
+    public void setDeadbandTemperature(Double deadbandTemperature) {
+        this.deadbandTemperature = deadbandTemperature;
+    }
+
+    private record EncodedToken(String token, byte[] bytes) {
+    }
 }
@@ -0,0 +1,56 @@
+package com.weather.sensors.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+@Entity
+@Table(name = "sensor_node")
+public class ShardNode {
+
+    @Id
+    @Column(name = "node_id")
+    private String nodeId;
+
+    @Column(name = "started_at")
+    private long startedAt;
+
+    @Column(name = "heartbeat_at")
+    private long heartbeatAt;
+
+    @Column(name = "active_sensors")
+    private int activeSensors;
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public long getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public void setHeartbeatAt(long heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+
+    public int getActiveSensors() {
+        return activeSensors;
+    }
+
+    public void setActiveSensors(int activeSensors) {
+        this.activeSensors = activeSensors;
+    }
+}
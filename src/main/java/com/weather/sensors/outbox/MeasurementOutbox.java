@@ -0,0 +1,350 @@
+package com.weather.sensors.outbox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import com.weather.sensors.metrics.ServerMeters;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.services.ExecutionMode;
+import com.weather.sensors.services.ServerConcurrencyLimiter;
+import com.weather.sensors.transport.MeasurementJsonWriter;
+import com.weather.sensors.transport.MeasurementTransport;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Disk-backed outbox between the measurement loop and the measurements servers. Readings are appended to one
+ * {@link SegmentLog} per server and acknowledged at once. Each record holds the reading twice: as the
+ * {@code MeasurementDTO} of a batch followed by the {@code SensorDTO} of a single post. A poller hands every server
+ * with pending readings to a drain worker, which posts windows of up to {@code window} readings as one batch to
+ * {@value #SEND_BATCH_PATH} and moves the server's cursor over the window once it was accepted; servers answering
+ * 404 there get the window one reading at a time on {@value #SEND_MEASURE_PATH} from then on. A failing server backs
+ * off exponentially and only buffers readings meanwhile, without holding up the drains of other servers. Logs found
+ * in {@code dir} at startup are replayed from their cursor.
+ * <p>
+ * Delivery is at least once: readings sent before a failure or a crash can be posted again. A window the server
+ * rejects with a client error is resent one reading at a time, and readings rejected on their own are logged and
+ * skipped, so one bad record cannot stall its server.
+ */
+@Component
+public class MeasurementOutbox {
+    private static final Logger log = LoggerFactory.getLogger(MeasurementOutbox.class);
+
+    static final String SEND_MEASURE_PATH = "/measurements/add";
+    static final String SEND_BATCH_PATH = "/measurements/add-batch";
+    private static final String SERVER_FILE = "server";
+
+    private final MeasurementTransport measurementTransport;
+    private final ServerConcurrencyLimiter serverConcurrencyLimiter;
+    private final boolean enabled;
+    private final Path dir;
+    private final int segmentSize;
+    private final long maxBytesPerServer;
+    private final int window;
+    private final long backoff;
+    private final long maxBackoff;
+    private final ServerMeters sendMeters;
+    private final ServerMeters batchMeters;
+
+    private final Map<String, ServerOutbox> outboxes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService drainer;
+    private final ExecutorService senders;
+
+    public MeasurementOutbox(MeasurementTransport measurementTransport, ServerConcurrencyLimiter serverConcurrencyLimiter,
+                             @Value("${sensors.outbox.enabled:false}") boolean enabled,
+                             @Value("${sensors.outbox.dir:outbox}") Path dir,
+                             @Value("${sensors.outbox.segment-bytes:16777216}") int segmentSize,
+                             @Value("${sensors.outbox.max-bytes-per-server:268435456}") long maxBytesPerServer,
+                             @Value("${sensors.outbox.window:64}") int window,
+                             @Value("${sensors.outbox.poll-ms:50}") long poll,
+                             @Value("${sensors.outbox.flush-ms:1000}") long flush,
+                             @Value("${sensors.outbox.backoff-ms:500}") long backoff,
+                             @Value("${sensors.outbox.max-backoff-ms:30000}") long maxBackoff,
+                             @Value("${sensors.outbox.workers:8}") int workers,
+                             @Value("${sensors.outbox.queue-capacity:1000}") int queueCapacity,
+                             @Value("${sensors.execution.mode:platform}") ExecutionMode executionMode,
+                             MeterRegistry meterRegistry) {
+        this.measurementTransport = measurementTransport;
+        this.serverConcurrencyLimiter = serverConcurrencyLimiter;
+        this.enabled = enabled;
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.maxBytesPerServer = maxBytesPerServer;
+        this.window = window;
+        this.backoff = backoff;
+        this.maxBackoff = maxBackoff;
+        this.sendMeters = new ServerMeters(meterRegistry, "send");
+        this.batchMeters = new ServerMeters(meterRegistry, "send-batch");
+        Gauge.builder("sensors.outbox.pending", this, MeasurementOutbox::getPendingBytes).baseUnit("bytes").description("Buffered readings not yet accepted by their server").register(meterRegistry);
+        FunctionCounter.builder("sensors.outbox.dropped", this, MeasurementOutbox::getDropped).description("Buffered readings dropped by retention or rejected by their server").register(meterRegistry);
+        this.drainer = Executors.newSingleThreadScheduledExecutor(ExecutionMode.platformThreads("measure-outbox"));
+        this.senders = executionMode.newExecutor("measure-outbox-sender", workers, queueCapacity);
+        if (!enabled) return;
+
+        replay();
+        drainer.scheduleWithFixedDelay(this::drainAll, poll, poll, TimeUnit.MILLISECONDS);
+        drainer.scheduleWithFixedDelay(this::force, flush, flush, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CompletableFuture<Void> append(Sensor sensor, double temperature, boolean raining) {
+        try {
+            MeasurementJsonWriter writer = MeasurementJsonWriter.forCurrentThread()
+                    .writeMeasurement(sensor.getId(), sensor.getSessionId(), temperature, raining)
+                    .writeSensor(sensor, temperature, raining);
+            outbox(sensor.getServerURL()).log.append(writer.buffer(), 0, writer.length());
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public long getPendingBytes() {
+        long pending = 0;
+        for (ServerOutbox outbox : outboxes.values()) pending += outbox.log.pendingBytes();
+        return pending;
+    }
+
+    public long getDropped() {
+        long dropped = 0;
+        for (ServerOutbox outbox : outboxes.values()) dropped += outbox.log.dropped() + outbox.rejected.get();
+        return dropped;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        drainer.shutdownNow();
+        senders.shutdownNow();
+        for (ServerOutbox outbox : outboxes.values()) outbox.log.close();
+    }
+
+    private void replay() {
+        if (!Files.isDirectory(dir)) return;
+        try (Stream<Path> serverDirs = Files.list(dir)) {
+            serverDirs.filter(serverDir -> Files.isRegularFile(serverDir.resolve(SERVER_FILE))).forEach(serverDir -> {
+                try {
+                    String serverURL = Files.readString(serverDir.resolve(SERVER_FILE));
+                    ServerOutbox outbox = outbox(serverURL);
+                    if (outbox.log.hasPending()) log.info("replaying {} bytes of buffered measurements for {}", outbox.log.pendingBytes(), serverURL);
+                } catch (IOException | UncheckedIOException e) {
+                    log.warn("cannot open measurement outbox {}: {}", serverDir, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ServerOutbox outbox(String serverURL) {
+        return outboxes.computeIfAbsent(serverURL, url -> {
+            Path serverDir = dir.resolve(URLEncoder.encode(url, StandardCharsets.UTF_8));
+            SegmentLog segmentLog = new SegmentLog(serverDir, segmentSize, maxBytesPerServer);
+            try {
+                Files.writeString(serverDir.resolve(SERVER_FILE), url);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new ServerOutbox(url, segmentLog);
+        });
+    }
+
+    private void drainAll() {
+        long now = System.currentTimeMillis();
+        for (ServerOutbox outbox : outboxes.values()) {
+            if (outbox.retryAt <= now && outbox.log.hasPending() && outbox.draining.compareAndSet(false, true)) submit(outbox);
+        }
+    }
+
+    private void submit(ServerOutbox outbox) {
+        try {
+            senders.execute(() -> drain(outbox));
+        } catch (RejectedExecutionException e) {
+            // picked up again by the next poll
+            outbox.draining.set(false);
+        }
+    }
+
+    private void drain(ServerOutbox outbox) {
+        List<SegmentLog.Record> records = new ArrayList<>(window);
+        try {
+            outbox.log.read(outbox.log.committed(), window, records);
+        } catch (RuntimeException e) {
+            log.warn("cannot read measurement outbox of {}: {}", outbox.serverURL, e.getMessage());
+            outbox.draining.set(false);
+            return;
+        }
+        if (records.isEmpty()) {
+            outbox.draining.set(false);
+            return;
+        }
+
+        if (outbox.batchUnsupported) sendSingle(outbox, records);
+        else sendBatch(outbox, records);
+    }
+
+    private void sendBatch(ServerOutbox outbox, List<SegmentLog.Record> records) {
+        byte[] batch = batch(records);
+        long start = System.nanoTime();
+        serverConcurrencyLimiter.callAsync(outbox.serverURL, records.size(), () -> measurementTransport.post(outbox.serverURL + SEND_BATCH_PATH, batch))
+                .whenComplete((ignored, error) -> {
+                    batchMeters.record(outbox.serverURL, start, records.size(), error);
+                    if (error == null) {
+                        drained(outbox, records, records.size());
+                        return;
+                    }
+                    Throwable cause = MeasurementTransport.unwrap(error);
+                    if (cause instanceof HttpClientErrorException.NotFound) {
+                        log.info("{} does not accept measurement batches, draining its outbox one measurement at a time", outbox.serverURL);
+                        outbox.batchUnsupported = true;
+                        sendSingle(outbox, records);
+                    } else if (isClientError(cause)) {
+                        // find the reading the server objects to
+                        sendSingle(outbox, records);
+                    } else {
+                        drained(outbox, records, 0);
+                    }
+                });
+    }
+
+    private void sendSingle(ServerOutbox outbox, List<SegmentLog.Record> records) {
+        // a send failing at once (open circuit) ends the window, so later readings cannot overtake it as half-open probes
+        CompletableFuture<?>[] issuedSends = new CompletableFuture<?>[records.size()];
+        int issued = 0;
+        while (issued < issuedSends.length) {
+            byte[] json = sensorJson(records.get(issued).payload());
+            long start = System.nanoTime();
+            CompletableFuture<Void> send = serverConcurrencyLimiter.callAsync(outbox.serverURL, 1, () -> measurementTransport.post(outbox.serverURL + SEND_MEASURE_PATH, json));
+            issuedSends[issued++] = send.whenComplete((ignored, error) -> sendMeters.record(outbox.serverURL, start, 1, error))
+                    .handle((ignored, error) -> error == null || isRejected(outbox, MeasurementTransport.unwrap(error)));
+            if (send.isCompletedExceptionally()) break;
+        }
+        CompletableFuture<?>[] sends = Arrays.copyOf(issuedSends, issued);
+        CompletableFuture.allOf(sends).whenComplete((ignored, error) -> {
+            int delivered = 0;
+            while (delivered < sends.length && Boolean.TRUE.equals(sends[delivered].join())) delivered++;
+            drained(outbox, records, delivered);
+        });
+    }
+
+    private void drained(ServerOutbox outbox, List<SegmentLog.Record> records, int delivered) {
+        if (delivered > 0) outbox.log.commit(records.get(delivered - 1).next());
+
+        if (delivered < records.size()) {
+            outbox.failures++;
+            outbox.retryAt = System.currentTimeMillis() + backoff(outbox.failures);
+            if (outbox.failures == 1) log.warn("measurements server {} is unavailable, buffering measurements", outbox.serverURL);
+        } else {
+            if (outbox.failures > 0) log.info("measurements server {} is back, draining buffered measurements", outbox.serverURL);
+            outbox.failures = 0;
+            outbox.retryAt = 0;
+        }
+        outbox.draining.set(false);
+        if (delivered == records.size() && outbox.log.hasPending() && !senders.isShutdown() && outbox.draining.compareAndSet(false, true)) {
+            submit(outbox);
+        }
+    }
+
+    /**
+     * Joins the {@code MeasurementDTO} heads of the records into the JSON array of a batch.
+     */
+    private static byte[] batch(List<SegmentLog.Record> records) {
+        int length = 1 + records.size();
+        for (SegmentLog.Record record : records) length += measurementLength(record.payload());
+        byte[] batch = new byte[length];
+        batch[0] = '[';
+        int position = 1;
+        for (SegmentLog.Record record : records) {
+            if (position > 1) batch[position++] = ',';
+            int measurementLength = measurementLength(record.payload());
+            System.arraycopy(record.payload(), 0, batch, position, measurementLength);
+            position += measurementLength;
+        }
+        batch[position] = ']';
+        return batch;
+    }
+
+    private static byte[] sensorJson(byte[] payload) {
+        return Arrays.copyOfRange(payload, measurementLength(payload), payload.length);
+    }
+
+    // the MeasurementDTO head holds no strings, so its first closing brace ends it
+    private static int measurementLength(byte[] payload) {
+        int end = 0;
+        while (payload[end] != '}') end++;
+        return end + 1;
+    }
+
+    private static boolean isClientError(Throwable error) {
+        return error instanceof HttpClientErrorException clientError && !clientError.getStatusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS)
+                && !clientError.getStatusCode().isSameCodeAs(HttpStatus.REQUEST_TIMEOUT);
+    }
+
+    private boolean isRejected(ServerOutbox outbox, Throwable error) {
+        if (!isClientError(error)) return false;
+        outbox.rejected.incrementAndGet();
+        log.warn("{} rejected a buffered measurement, skipping it: {}", outbox.serverURL, error.getMessage());
+        return true;
+    }
+
+    private long backoff(int failures) {
+        long ceiling = Math.min(maxBackoff, backoff << Math.min(failures - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    private void force() {
+        for (ServerOutbox outbox : outboxes.values()) {
+            try {
+                outbox.log.force();
+            } catch (RuntimeException e) {
+                log.warn("cannot flush measurement outbox of {}: {}", outbox.serverURL, e.getMessage());
+            }
+        }
+    }
+
+    private static class ServerOutbox {
+        final String serverURL;
+        final SegmentLog log;
+        final AtomicBoolean draining = new AtomicBoolean();
+        volatile long retryAt;
+        volatile int failures;
+        volatile boolean batchUnsupported;
+        final AtomicLong rejected = new AtomicLong();
+
+        ServerOutbox(String serverURL, SegmentLog log) {
+            this.serverURL = serverURL;
+            this.log = log;
+        }
+    }
+}
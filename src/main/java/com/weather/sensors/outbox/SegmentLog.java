@@ -0,0 +1,251 @@
+package com.weather.sensors.outbox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of opaque records in fixed-size memory-mapped segment files, plus a persisted consumer cursor.
+ * Positions are byte offsets across the whole log; a segment file is named after the position of its first byte.
+ * Records are {@code [length][crc32][payload]}, and the length is written last, so a record torn by a crash
+ * fails the check on recovery and is cut off together with everything after it.
+ * <p>
+ * One thread may read while others append: readers only look below {@link #writePosition()}. Segments wholly
+ * behind the cursor are deleted on {@link #commit}; beyond {@code maxBytes} the oldest segment is deleted even if
+ * unread, and its records are counted as dropped.
+ */
+public class SegmentLog implements AutoCloseable {
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CURSOR_FILE = "cursor";
+    private static final int HEADER = 8;
+    private static final int SKIP = -1;
+
+    private final Path dir;
+    private final int segmentSize;
+    private final long maxBytes;
+    private final ConcurrentSkipListMap<Long, MappedByteBuffer> segments = new ConcurrentSkipListMap<>();
+    private final MappedByteBuffer cursorBuffer;
+    private final CRC32 crc = new CRC32();
+
+    private MappedByteBuffer head;
+    private long headBase;
+    private volatile long writePosition;
+    private volatile long committed;
+    private long dropped;
+
+    public SegmentLog(Path dir, int segmentSize, long maxBytes) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(dir);
+            try (Stream<Path> files = Files.list(dir)) {
+                files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                        .forEach(file -> segments.put(baseOf(file), map(file)));
+            }
+            cursorBuffer = map(dir.resolve(CURSOR_FILE), Long.BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        recover();
+    }
+
+    public synchronized long append(byte[] data, int offset, int length) {
+        if (length + HEADER > segmentSize) throw new IllegalArgumentException("record of " + length + " bytes does not fit a segment of " + segmentSize);
+
+        int index = (int) (writePosition - headBase);
+        if (index + HEADER + length > segmentSize) {
+            if (index + Integer.BYTES <= segmentSize) head.putInt(index, SKIP);
+            roll(headBase + segmentSize);
+            index = 0;
+        }
+
+        crc.reset();
+        crc.update(data, offset, length);
+        head.put(index + HEADER, data, offset, length);
+        head.putInt(index + Integer.BYTES, (int) crc.getValue());
+        head.putInt(index, length);
+        writePosition = headBase + index + HEADER + length;
+        return writePosition;
+    }
+
+    /**
+     * Reads up to {@code max} records from {@code position}, adding them to {@code records}.
+     */
+    public void read(long position, int max, List<Record> records) {
+        long end = writePosition;
+        while (records.size() < max && position < end) {
+            Map.Entry<Long, MappedByteBuffer> segment = segments.floorEntry(position);
+            if (segment == null) {
+                position = segments.isEmpty() ? end : segments.firstKey();
+                continue;
+            }
+            int index = (int) (position - segment.getKey());
+            int length = index + HEADER <= segmentSize ? segment.getValue().getInt(index) : SKIP;
+            if (length <= 0) {
+                position = segment.getKey() + segmentSize;
+                continue;
+            }
+            byte[] payload = new byte[length];
+            segment.getValue().get(index + HEADER, payload);
+            position += HEADER + length;
+            records.add(new Record(payload, position));
+        }
+    }
+
+    /**
+     * Moves the cursor forward to {@code position}; positions behind the cursor are ignored.
+     */
+    public synchronized void commit(long position) {
+        if (position <= committed) return;
+        committed = position;
+        cursorBuffer.putLong(0, position);
+        while (segments.size() > 1 && segments.firstKey() + segmentSize <= position) {
+            delete(segments.firstKey());
+        }
+    }
+
+    /**
+     * Bytes a record of {@code payloadLength} takes in the log, so its start is the end {@link #append} returns minus this.
+     */
+    public static int recordSize(int payloadLength) {
+        return HEADER + payloadLength;
+    }
+
+    public long writePosition() {
+        return writePosition;
+    }
+
+    public long committed() {
+        return committed;
+    }
+
+    public boolean hasPending() {
+        return committed < writePosition;
+    }
+
+    public synchronized long pendingBytes() {
+        return writePosition - committed;
+    }
+
+    public synchronized long dropped() {
+        return dropped;
+    }
+
+    public synchronized void force() {
+        head.force();
+        cursorBuffer.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        force();
+    }
+
+    public Path dir() {
+        return dir;
+    }
+
+    private void recover() {
+        long cursor = cursorBuffer.getLong(0);
+        if (segments.isEmpty()) {
+            roll(cursor - cursor % segmentSize);
+            writePosition = cursor;
+        } else {
+            headBase = segments.lastKey();
+            head = segments.lastEntry().getValue();
+            writePosition = headBase + validLength(head);
+        }
+        committed = Math.max(cursor, segments.firstKey());
+        if (committed > writePosition) committed = writePosition;
+    }
+
+    private int validLength(MappedByteBuffer segment) {
+        int index = 0;
+        CRC32 check = new CRC32();
+        while (index + HEADER <= segmentSize) {
+            int length = segment.getInt(index);
+            if (length <= 0 || index + HEADER + length > segmentSize) break;
+            byte[] payload = new byte[length];
+            segment.get(index + HEADER, payload);
+            check.reset();
+            check.update(payload);
+            if ((int) check.getValue() != segment.getInt(index + Integer.BYTES)) break;
+            index += HEADER + length;
+        }
+        for (int i = index; i < Math.min(segmentSize, index + HEADER); i++) segment.put(i, (byte) 0);
+        return index;
+    }
+
+    private void roll(long base) {
+        if (head != null) head.force();
+        head = map(segmentPath(base));
+        headBase = base;
+        segments.put(base, head);
+        writePosition = base;
+        while (segments.size() > 1 && (long) segments.size() * segmentSize > maxBytes) {
+            long oldest = segments.firstKey();
+            if (committed < oldest + segmentSize) {
+                dropped += countRecords(oldest, Math.max(committed, oldest));
+                committed = segments.higherKey(oldest);
+                cursorBuffer.putLong(0, committed);
+            }
+            delete(oldest);
+        }
+    }
+
+    private long countRecords(long base, long from) {
+        MappedByteBuffer segment = segments.get(base);
+        int index = (int) (from - base);
+        long count = 0;
+        while (index + HEADER <= segmentSize) {
+            int length = segment.getInt(index);
+            if (length <= 0) break;
+            index += HEADER + length;
+            count++;
+        }
+        return count;
+    }
+
+    private void delete(long base) {
+        segments.remove(base);
+        try {
+            Files.deleteIfExists(segmentPath(base));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private MappedByteBuffer map(Path file) {
+        return map(file, segmentSize);
+    }
+
+    private static MappedByteBuffer map(Path file, int size) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path segmentPath(long base) {
+        return dir.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX));
+    }
+
+    private static long baseOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    public record Record(byte[] payload, long next) {
+    }
+}
@@ -0,0 +1,225 @@
+package com.weather.sensors.repositories;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.weather.sensors.models.Sensor;
+
+/**
+ * Write-through cache in front of {@link SensorsRepository}, keyed by id with a secondary name index. Entries are
+ * evicted least-recently-used beyond {@code max-size} and expire after {@code ttl-ms}. Callers always get their own
+ * detached copy, so setting a session or an URL on a looked-up sensor never leaks into the cache. Writes evict
+ * right away and repopulate only after the surrounding transaction commits.
+ * <p>
+ * Every write stamps its id (striped over {@value #STAMP_STRIPES} slots) with a write sequence number. A miss notes
+ * the sequence before reading the database and caches the row only if no write to that id landed meanwhile, so a read
+ * racing a save cannot put back the row the save replaced.
+ */
+@Component
+public class SensorCache {
+    private static final int STAMP_STRIPES = 1024;
+
+    private final SensorsRepository sensorsRepository;
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final LinkedHashMap<Integer, CachedSensor> byId;
+    private final Map<String, Integer> idsByName = new HashMap<>();
+    private final long[] stamps = new long[STAMP_STRIPES];
+    private long writes;
+    private long clearedAt;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public SensorCache(SensorsRepository sensorsRepository,
+                       @Value("${sensors.cache.enabled:true}") boolean enabled,
+                       @Value("${sensors.cache.max-size:10000}") int maxSize,
+                       @Value("${sensors.cache.ttl-ms:60000}") long ttl) {
+        this.sensorsRepository = sensorsRepository;
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttl);
+        this.byId = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CachedSensor> eldest) {
+                if (size() <= SensorCache.this.maxSize) return false;
+                idsByName.remove(eldest.getValue().sensor.getName(), eldest.getKey());
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    public Optional<Sensor> findById(int id) {
+        Sensor cached = lookup(id);
+        if (cached != null) return Optional.of(cached);
+
+        long readFrom = writes();
+        Optional<Sensor> sensor = sensorsRepository.findById(id);
+        sensor.ifPresent(found -> putUnlessWritten(found, readFrom));
+        return sensor.map(SensorCache::copy);
+    }
+
+    public Optional<Sensor> findByName(String name) {
+        Sensor cached = null;
+        if (enabled && name != null) {
+            Integer id;
+            synchronized (this) {
+                id = idsByName.get(name);
+            }
+            if (id != null) cached = lookup(id);
+            else misses.increment();
+        }
+        if (cached != null) return Optional.of(cached);
+
+        long readFrom = writes();
+        Optional<Sensor> sensor = sensorsRepository.findByName(name);
+        sensor.ifPresent(found -> putUnlessWritten(found, readFrom));
+        return sensor.map(SensorCache::copy);
+    }
+
+    public Sensor save(Sensor sensor) {
+        invalidate(sensor.getId());
+        Sensor saved = sensorsRepository.save(sensor);
+        afterCommit(() -> put(saved), () -> invalidate(saved.getId()));
+        return saved;
+    }
+
+    public List<Sensor> saveAll(List<Sensor> sensors) {
+        for (Sensor sensor : sensors) invalidate(sensor.getId());
+        List<Sensor> saved = sensorsRepository.saveAll(sensors);
+        afterCommit(() -> saved.forEach(this::put), () -> saved.forEach(sensor -> invalidate(sensor.getId())));
+        return saved;
+    }
+
+    public void deleteById(int id) {
+        invalidate(id);
+        sensorsRepository.deleteById(id);
+        afterCommit(() -> invalidate(id), () -> invalidate(id));
+    }
+
+    public synchronized void invalidate(int id) {
+        stamps[stripe(id)] = ++writes;
+        remove(id);
+    }
+
+    public synchronized void invalidateAll() {
+        clearedAt = ++writes;
+        byId.clear();
+        idsByName.clear();
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private Sensor lookup(int id) {
+        if (!enabled) return null;
+        synchronized (this) {
+            CachedSensor entry = byId.get(id);
+            if (entry != null && System.nanoTime() - entry.loadedAt < ttlNanos) {
+                hits.increment();
+                return copy(entry.sensor);
+            }
+            if (entry != null) {
+                remove(id);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    private void put(Sensor sensor) {
+        if (!enabled || sensor.getId() == 0) return;
+        synchronized (this) {
+            invalidate(sensor.getId());
+            cache(sensor);
+        }
+    }
+
+    private void putUnlessWritten(Sensor sensor, long readFrom) {
+        if (!enabled || sensor.getId() == 0) return;
+        synchronized (this) {
+            if (stamps[stripe(sensor.getId())] > readFrom || clearedAt > readFrom) return;
+            remove(sensor.getId());
+            cache(sensor);
+        }
+    }
+
+    private synchronized long writes() {
+        return writes;
+    }
+
+    private void remove(int id) {
+        CachedSensor removed = byId.remove(id);
+        if (removed != null) idsByName.remove(removed.sensor.getName(), id);
+    }
+
+    private void cache(Sensor sensor) {
+        byId.put(sensor.getId(), new CachedSensor(copy(sensor), System.nanoTime()));
+        if (sensor.getName() != null) {
+            Integer previous = idsByName.put(sensor.getName(), sensor.getId());
+            if (previous != null && previous != sensor.getId()) byId.remove(previous);
+        }
+    }
+
+    private static int stripe(int id) {
+        return id & (STAMP_STRIPES - 1);
+    }
+
+    private static void afterCommit(Runnable committed, Runnable rolledBack) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            committed.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) committed.run();
+                else rolledBack.run();
+            }
+        });
+    }
+
+    private static Sensor copy(Sensor sensor) {
+        Sensor copy = new Sensor();
+        copy.setId(sensor.getId());
+        copy.setName(sensor.getName());
+        copy.setDescription(sensor.getDescription());
+        copy.setToken(sensor.getToken());
+        copy.setServerURL(sensor.getServerURL());
+        copy.setRegistered(sensor.isRegistered());
+        copy.setMeasureInterval(sensor.getMeasureInterval());
+        copy.setDeadbandTemperature(sensor.getDeadbandTemperature());
+        return copy;
+    }
+
+    private record CachedSensor(Sensor sensor, long loadedAt) {
+    }
+}
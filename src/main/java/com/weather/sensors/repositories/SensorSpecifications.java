@@ -0,0 +1,30 @@
+package com.weather.sensors.repositories;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.weather.sensors.models.Sensor;
+
+/**
+ * Filters for keyset-paginated sensor queries. Every filter is optional; a page always starts after {@code afterId}
+ * and is read in id order, so it is served by the primary key or by the (filter, id) indexes on {@link Sensor}.
+ */
+public final class SensorSpecifications {
+
+    private SensorSpecifications() {
+    }
+
+    public static Specification<Sensor> page(int afterId, Boolean registered, String serverURL, String namePrefix) {
+        Specification<Sensor> specification = (root, query, builder) -> builder.greaterThan(root.get("id"), afterId);
+        if (registered != null) specification = specification.and((root, query, builder) -> builder.equal(root.get("isRegistered"), registered));
+        if (serverURL != null) specification = specification.and((root, query, builder) -> builder.equal(root.get("serverURL"), serverURL));
+        if (namePrefix != null && !namePrefix.isEmpty()) {
+            String pattern = escapeLike(namePrefix) + "%";
+            specification = specification.and((root, query, builder) -> builder.like(root.get("name"), pattern, '\\'));
+        }
+        return specification;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
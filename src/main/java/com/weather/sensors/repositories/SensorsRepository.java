@@ -1,13 +1,23 @@
 package com.weather.sensors.repositories;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 
 import com.weather.sensors.models.Sensor;
 
 @Repository
-public interface SensorsRepository extends JpaRepository<Sensor, Integer> {
+public interface SensorsRepository extends JpaRepository<Sensor, Integer>, JpaSpecificationExecutor<Sensor> {
     Optional<Sensor> findByName(String name);
+
+    List<Sensor> findByNameIn(Collection<String> names);
+
+    List<Sensor> findByIsRegisteredTrueAndIdGreaterThanOrderById(int afterId, Limit limit);
+
+    List<Sensor> findByServerURLAndIsRegisteredTrueAndIdGreaterThanOrderById(String serverURL, int afterId, Limit limit);
 }
@@ -0,0 +1,24 @@
+package com.weather.sensors.repositories;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.weather.sensors.models.ShardNode;
+
+@Repository
+public interface ShardNodeRepository extends JpaRepository<ShardNode, String> {
+    List<ShardNode> findByHeartbeatAtGreaterThanEqualOrderByNodeId(long since);
+
+    List<ShardNode> findAllByOrderByNodeId();
+
+    long deleteByHeartbeatAtLessThan(long before);
+
+    /**
+     * The database's clock in epoch milliseconds, which every node stamps and judges leases with.
+     */
+    @Query(value = "SELECT CAST(EXTRACT(EPOCH FROM CURRENT_TIMESTAMP) * 1000 AS BIGINT)", nativeQuery = true)
+    long currentTimeMillis();
+}
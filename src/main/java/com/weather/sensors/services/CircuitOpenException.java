@@ -0,0 +1,14 @@
+package com.weather.sensors.services;
+
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * A call not made because the server's circuit is open. It is a {@link ResourceAccessException}, so callers retry or
+ * drop it as they would a connection failure, without waiting for a timeout.
+ */
+public class CircuitOpenException extends ResourceAccessException {
+
+    public CircuitOpenException(String serverURL, long retryInMillis) {
+        super("circuit to " + serverURL + " is open, next probe in " + retryInMillis + " ms");
+    }
+}
@@ -0,0 +1,135 @@
+package com.weather.sensors.services;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.simulation.SlotPages;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Report by exception: a sensor's reading is only sent when its temperature moved by at least
+ * the sensor's own {@code deadbandTemperature} (or {@code temperature} when it has none) since the last reading
+ * sent, when the raining flag flipped, or when nothing was sent for {@code heartbeat-ms}. The first reading of a
+ * sensor is always sent. Comparing against the last reading sent rather than the last one taken means a slow drift is
+ * still reported once it adds up to the threshold.
+ * <p>
+ * A reading only becomes the one to compare against once the caller reports it {@link #sent}, so a reading whose send
+ * failed does not hold back the readings after it. The last sent reading of each sensor lives in {@link SlotPages},
+ * like the simulator's state.
+ */
+@Component
+public class DeadbandFilter {
+    private static final int PAGE_SIZE = SlotPages.PAGE_SIZE;
+
+    private final boolean enabled;
+    private final double threshold;
+    private final long heartbeat;
+
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder first = new LongAdder();
+    private final LongAdder changed = new LongAdder();
+    private final LongAdder flipped = new LongAdder();
+    private final LongAdder heartbeats = new LongAdder();
+    private final SlotPages<Page> pages = new SlotPages<>(Page::new, Page[]::new);
+
+    public DeadbandFilter(@Value("${sensors.deadband.enabled:false}") boolean enabled,
+                          @Value("${sensors.deadband.temperature:0.5}") double threshold,
+                          @Value("${sensors.deadband.heartbeat-ms:300000}") long heartbeat,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.heartbeat = heartbeat;
+
+        register(meterRegistry, "suppressed", suppressed, "Readings not sent because they did not change enough");
+        register(meterRegistry, "first", first, "First readings of a sensor, always sent");
+        register(meterRegistry, "temperature", changed, "Readings sent because the temperature moved past the deadband");
+        register(meterRegistry, "raining", flipped, "Readings sent because the raining flag flipped");
+        register(meterRegistry, "heartbeat", heartbeats, "Unchanged readings sent because the heartbeat interval expired");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns whether the reading should be sent.
+     */
+    public boolean passes(Sensor sensor, double temperature, boolean raining) {
+        return !enabled || passes(sensor, temperature, raining, System.currentTimeMillis());
+    }
+
+    /**
+     * Remembers a reading that reached its server as the sensor's last sent reading.
+     */
+    public void sent(Sensor sensor, double temperature, boolean raining) {
+        if (enabled) sent(sensor, temperature, raining, System.currentTimeMillis());
+    }
+
+    /**
+     * Forgets the sensor, so that its slot starts afresh when it is reused.
+     */
+    public void release(Sensor sensor) {
+        if (!enabled) return;
+        int slot = sensor.getSimulationSlot();
+        Page page = pages.pageIfAllocated(slot);
+        if (page == null) return;
+        int index = SlotPages.index(slot);
+        synchronized (page) {
+            if (page.sensors[index] == sensor) page.sensors[index] = null;
+        }
+    }
+
+    public long getSuppressedCount() {
+        return suppressed.sum();
+    }
+
+    boolean passes(Sensor sensor, double temperature, boolean raining, long now) {
+        int slot = sensor.getSimulationSlot();
+        Page page = pages.page(slot);
+        int index = SlotPages.index(slot);
+
+        LongAdder reason;
+        synchronized (page) {
+            if (page.sensors[index] != sensor) reason = first;
+            else if (Math.abs(temperature - page.temperature[index]) >= page.threshold[index]) reason = changed;
+            else if (raining != page.raining[index]) reason = flipped;
+            else if (now - page.sentAt[index] >= heartbeat) reason = heartbeats;
+            else reason = suppressed;
+        }
+        reason.increment();
+        return reason != suppressed;
+    }
+
+    void sent(Sensor sensor, double temperature, boolean raining, long now) {
+        int slot = sensor.getSimulationSlot();
+        Page page = pages.page(slot);
+        int index = SlotPages.index(slot);
+        synchronized (page) {
+            if (page.sensors[index] != sensor) {
+                page.sensors[index] = sensor;
+                Double sensorThreshold = sensor.getDeadbandTemperature();
+                page.threshold[index] = sensorThreshold != null ? sensorThreshold : threshold;
+            }
+            page.temperature[index] = temperature;
+            page.raining[index] = raining;
+            page.sentAt[index] = now;
+        }
+    }
+
+    private static void register(MeterRegistry meterRegistry, String outcome, LongAdder counter, String description) {
+        FunctionCounter.builder("sensors.deadband.readings", counter, LongAdder::sum).tag("outcome", outcome).description(description).register(meterRegistry);
+    }
+
+    private static class Page {
+        final Sensor[] sensors = new Sensor[PAGE_SIZE];
+        final double[] threshold = new double[PAGE_SIZE];
+        final double[] temperature = new double[PAGE_SIZE];
+        final boolean[] raining = new boolean[PAGE_SIZE];
+        final long[] sentAt = new long[PAGE_SIZE];
+    }
+}
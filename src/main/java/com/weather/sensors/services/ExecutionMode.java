@@ -0,0 +1,40 @@
+package com.weather.sensors.services;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * How outbound work (measurement sends, authentication) is run: on a bounded pool of platform threads,
+ * or on one virtual thread per task with concurrency bounded per server by {@link ServerConcurrencyLimiter}.
+ */
+public enum ExecutionMode {
+    PLATFORM {
+        @Override
+        public ExecutorService newExecutor(String name, int threads, int queueCapacity) {
+            return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), platformThreads(name), new ThreadPoolExecutor.AbortPolicy());
+        }
+    },
+    VIRTUAL {
+        @Override
+        public ExecutorService newExecutor(String name, int threads, int queueCapacity) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+        }
+    };
+
+    public abstract ExecutorService newExecutor(String name, int threads, int queueCapacity);
+
+    public static ThreadFactory platformThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
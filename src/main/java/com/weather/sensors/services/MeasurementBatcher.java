@@ -0,0 +1,223 @@
+package com.weather.sensors.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import com.weather.sensors.metrics.ServerMeters;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.transport.MeasurementFrameWriter;
+import com.weather.sensors.transport.MeasurementJsonWriter;
+import com.weather.sensors.transport.MeasurementTransport;
+import com.weather.sensors.transport.WireFormat;
+import com.weather.sensors.transport.WireFormatNegotiator;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Gathers readings per measurements server and posts them as one batch to {@value #SEND_BATCH_PATH}
+ * once a batch is full or its window has passed. Servers answering 404 on the batch path are remembered
+ * and get per-reading posts through {@link MeasurementSender} from then on. Batches are encoded as
+ * {@link WireFormatNegotiator} chooses for the server, resending as JSON when a binary batch is rejected.
+ * <p>
+ * The future of each reading completes once its batch was posted, and fails with the batch if it failed. A pending
+ * reading is that future plus a small record of the reading's fields; batches are encoded straight from those records
+ * into the thread's reusable buffer, without a {@code MeasurementDTO} per reading.
+ */
+@Component
+public class MeasurementBatcher {
+    private static final Logger log = LoggerFactory.getLogger(MeasurementBatcher.class);
+
+    static final String SEND_BATCH_PATH = "/measurements/add-batch";
+
+    private final MeasurementTransport measurementTransport;
+    private final MeasurementSender measurementSender;
+    private final ServerConcurrencyLimiter serverConcurrencyLimiter;
+    private final WireFormatNegotiator wireFormatNegotiator;
+    private final boolean enabled;
+    private final int maxSize;
+    private final long window;
+    private final ServerMeters batchMeters;
+
+    private final Map<String, ServerBatch> batches = new ConcurrentHashMap<>();
+    private final Set<String> batchUnsupported = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService flusher;
+    private final ExecutorService senders;
+
+    public MeasurementBatcher(MeasurementTransport measurementTransport, MeasurementSender measurementSender, ServerConcurrencyLimiter serverConcurrencyLimiter, WireFormatNegotiator wireFormatNegotiator,
+                              @Value("${sensors.measure.batch.enabled:false}") boolean enabled,
+                              @Value("${sensors.measure.batch.max-size:500}") int maxSize,
+                              @Value("${sensors.measure.batch.window-ms:1000}") long window,
+                              @Value("${sensors.measure.workers:16}") int workers,
+                              @Value("${sensors.measure.queue-capacity:10000}") int queueCapacity,
+                              @Value("${sensors.execution.mode:platform}") ExecutionMode executionMode,
+                              MeterRegistry meterRegistry) {
+        this.measurementTransport = measurementTransport;
+        this.measurementSender = measurementSender;
+        this.serverConcurrencyLimiter = serverConcurrencyLimiter;
+        this.wireFormatNegotiator = wireFormatNegotiator;
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.window = window;
+        this.batchMeters = new ServerMeters(meterRegistry, "send-batch");
+        Gauge.builder("sensors.batch.pending", this, MeasurementBatcher::getPendingCount).description("Readings waiting in open batches").register(meterRegistry);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(ExecutionMode.platformThreads("measure-batch-flusher"));
+        this.senders = executionMode.newExecutor("measure-batch-sender", workers, queueCapacity);
+        if (enabled) flusher.scheduleWithFixedDelay(this::flushExpired, window, Math.max(1, window / 4), TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CompletableFuture<Void> add(Sensor sensor, double temperature, boolean raining) {
+        String serverURL = sensor.getServerURL();
+        if (batchUnsupported.contains(serverURL)) return measurementSender.send(sensor, temperature, raining);
+
+        PendingMeasurement pending = new PendingMeasurement(sensor, sensor.getSessionId(), temperature, raining, System.currentTimeMillis(), new CompletableFuture<>());
+        List<PendingMeasurement> full = batches.computeIfAbsent(serverURL, url -> new ServerBatch()).add(pending, maxSize);
+        if (full != null) send(serverURL, full);
+        return pending.sent;
+    }
+
+    public int getPendingCount() {
+        int pending = 0;
+        for (ServerBatch batch : batches.values()) pending += batch.size();
+        return pending;
+    }
+
+    public void flush() {
+        for (Map.Entry<String, ServerBatch> entry : batches.entrySet()) {
+            List<PendingMeasurement> pending = entry.getValue().drain();
+            if (!pending.isEmpty()) send(entry.getKey(), pending);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        flush();
+        senders.shutdown();
+    }
+
+    private void flushExpired() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, ServerBatch> entry : batches.entrySet()) {
+            List<PendingMeasurement> pending = entry.getValue().drainIfOlderThan(now - window);
+            if (pending.isEmpty()) continue;
+            try {
+                senders.execute(() -> send(entry.getKey(), pending));
+            } catch (RejectedExecutionException e) {
+                log.warn("dropped {} measurements for {}: batch senders are saturated", pending.size(), entry.getKey());
+                for (PendingMeasurement measurement : pending) measurement.sent.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void send(String serverURL, List<PendingMeasurement> pending) {
+        if (batchUnsupported.contains(serverURL)) {
+            sendSingle(pending);
+            return;
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<Void> sent;
+        if (wireFormatNegotiator.formatFor(serverURL) == WireFormat.BINARY) {
+            sent = post(serverURL, pending.size(), frame(pending), WireFormat.BINARY).exceptionallyCompose(error -> wireFormatNegotiator.rejectsBinary(serverURL, error)
+                    ? post(serverURL, pending.size(), json(pending), WireFormat.JSON)
+                    : CompletableFuture.failedFuture(error));
+        } else {
+            sent = post(serverURL, pending.size(), json(pending), WireFormat.JSON);
+        }
+        sent.whenComplete((ignored, error) -> {
+            batchMeters.record(serverURL, start, pending.size(), error);
+            if (error == null) {
+                for (PendingMeasurement measurement : pending) measurement.sent.complete(null);
+                return;
+            }
+            Throwable cause = MeasurementTransport.unwrap(error);
+            if (cause instanceof HttpClientErrorException.NotFound) {
+                log.info("{} does not accept measurement batches, falling back to single measurements", serverURL);
+                batchUnsupported.add(serverURL);
+                sendSingle(pending);
+                return;
+            }
+            log.warn("sending {} measurements to {} failed: {}", pending.size(), serverURL, cause.getMessage());
+            for (PendingMeasurement measurement : pending) measurement.sent.completeExceptionally(cause);
+        });
+    }
+
+    private CompletableFuture<Void> post(String serverURL, int readings, byte[] body, WireFormat format) {
+        return serverConcurrencyLimiter.callAsync(serverURL, readings, () -> measurementTransport.post(serverURL + SEND_BATCH_PATH, body, format.getMediaType()));
+    }
+
+    private static byte[] json(List<PendingMeasurement> pending) {
+        MeasurementJsonWriter writer = MeasurementJsonWriter.forCurrentThread().beginArray();
+        for (PendingMeasurement measurement : pending) {
+            writer.writeMeasurement(measurement.sensor.getId(), measurement.sessionId, measurement.temperature, measurement.raining);
+        }
+        return writer.endArray().toByteArray();
+    }
+
+    private static byte[] frame(List<PendingMeasurement> pending) {
+        MeasurementFrameWriter writer = MeasurementFrameWriter.forCurrentThread().begin(null);
+        for (PendingMeasurement measurement : pending) {
+            writer.reading(measurement.sensor.getId(), measurement.sessionId, measurement.measuredAt, measurement.temperature, measurement.raining);
+        }
+        return writer.toByteArray();
+    }
+
+    private void sendSingle(List<PendingMeasurement> pending) {
+        for (PendingMeasurement measurement : pending) {
+            measurementSender.send(measurement.sensor, measurement.temperature, measurement.raining).whenComplete((ignored, error) -> {
+                if (error == null) measurement.sent.complete(null);
+                else measurement.sent.completeExceptionally(MeasurementTransport.unwrap(error));
+            });
+        }
+    }
+
+    private record PendingMeasurement(Sensor sensor, double sessionId, double temperature, boolean raining, long measuredAt, CompletableFuture<Void> sent) {
+    }
+
+    private static class ServerBatch {
+        private List<PendingMeasurement> pending = new ArrayList<>();
+        private long openedAt;
+
+        synchronized List<PendingMeasurement> add(PendingMeasurement measurement, int maxSize) {
+            if (pending.isEmpty()) openedAt = System.currentTimeMillis();
+            pending.add(measurement);
+            return pending.size() >= maxSize ? drain() : null;
+        }
+
+        synchronized List<PendingMeasurement> drainIfOlderThan(long threshold) {
+            if (pending.isEmpty() || openedAt > threshold) return List.of();
+            return drain();
+        }
+
+        synchronized int size() {
+            return pending.size();
+        }
+
+        synchronized List<PendingMeasurement> drain() {
+            List<PendingMeasurement> drained = pending;
+            pending = new ArrayList<>();
+            return drained;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.weather.sensors.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import com.weather.sensors.aggregation.MeasurementAggregator;
+import com.weather.sensors.dto.ActivationResultDTO;
+import com.weather.sensors.dto.ActiveSensorDTO;
+import com.weather.sensors.dto.MeasurementRunDTO;
+import com.weather.sensors.feed.MeasurementFeed;
+import com.weather.sensors.history.MeasurementHistory;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.outbox.MeasurementOutbox;
+import com.weather.sensors.simulation.WeatherSimulator;
+import com.weather.sensors.transport.MeasurementTransport;
+
+/**
+ * Owns the set of measuring sensors. Activation is idempotent: sensors that are already measuring are neither
+ * authenticated again nor given a second schedule or simulator slot, and deactivating a sensor that is not active
+ * does nothing. Sensors can be started and stopped one by one, per server or all at once while the application runs.
+ * A stopped sensor's simulator slot and slot-indexed state are released once its measurement in flight, if any, has
+ * completed, so that a slot is never handed to another sensor while a measurement still uses it.
+ * <p>
+ * On shutdown the manager stops before the beans it uses are destroyed: it cancels every schedule, flushes open
+ * batches and waits up to {@code sensors.lifecycle.drain-timeout-ms} for measurements in flight to complete.
+ * With aggregation, batching or the outbox a measurement completes, and counts as sent, once it is handed over.
+ * Readings that are not aggregated pass the {@link DeadbandFilter} first; a suppressed reading completes at once
+ * without counting as sent, and a reading that passes becomes the filter's baseline only once its send succeeded.
+ * Raw readings sent directly or batched then pass the {@link ServerRateController}; a reading it parks completes at
+ * once and counts as sent when the controller releases it, while parked readings of stopped sensors are dropped.
+ * Released readings are sent on the measurement workers and count as in flight like scheduled measurements.
+ */
+@Service
+public class MeasurementRunManager implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(MeasurementRunManager.class);
+
+    private final SensorAuthenticator sensorAuthenticator;
+    private final MeasurementScheduler measurementScheduler;
+    private final MeasurementSender measurementSender;
+    private final MeasurementBatcher measurementBatcher;
+    private final MeasurementOutbox measurementOutbox;
+    private final MeasurementAggregator measurementAggregator;
+    private final WeatherSimulator weatherSimulator;
+    private final MeasurementFeed measurementFeed;
+    private final MeasurementHistory measurementHistory;
+    private final DeadbandFilter deadbandFilter;
+    private final ServerRateController serverRateController;
+    private final TokenRefreshManager tokenRefreshManager;
+    private final long drainTimeout;
+
+    private final Map<Integer, ActiveSensor> activeSensors = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private volatile boolean measuring;
+
+    public MeasurementRunManager(SensorAuthenticator sensorAuthenticator, MeasurementScheduler measurementScheduler, MeasurementSender measurementSender, MeasurementBatcher measurementBatcher, MeasurementOutbox measurementOutbox, MeasurementAggregator measurementAggregator, WeatherSimulator weatherSimulator, MeasurementFeed measurementFeed, MeasurementHistory measurementHistory, DeadbandFilter deadbandFilter, ServerRateController serverRateController, TokenRefreshManager tokenRefreshManager,
+                                 @Value("${sensors.lifecycle.drain-timeout-ms:10000}") long drainTimeout) {
+        this.sensorAuthenticator = sensorAuthenticator;
+        this.measurementScheduler = measurementScheduler;
+        this.measurementSender = measurementSender;
+        this.measurementBatcher = measurementBatcher;
+        this.measurementOutbox = measurementOutbox;
+        this.measurementAggregator = measurementAggregator;
+        this.weatherSimulator = weatherSimulator;
+        this.measurementFeed = measurementFeed;
+        this.measurementHistory = measurementHistory;
+        this.deadbandFilter = deadbandFilter;
+        this.serverRateController = serverRateController;
+        this.tokenRefreshManager = tokenRefreshManager;
+        this.drainTimeout = drainTimeout;
+        serverRateController.setSink(this::release);
+    }
+
+    /**
+     * Authenticates and starts the given sensors, skipping those that are already measuring.
+     */
+    public ActivationResultDTO activate(List<Sensor> sensors) {
+        if (!running) throw new IllegalStateException("Measurements are shutting down");
+        measuring = true;
+
+        List<Sensor> inactive = new ArrayList<>();
+        for (Sensor sensor : sensors) {
+            if (!activeSensors.containsKey(sensor.getId())) inactive.add(sensor);
+        }
+        ActivationResultDTO result = sensorAuthenticator.authenticateAll(inactive, this::start);
+        result.setRequested(sensors.size());
+        result.setAlreadyActive(sensors.size() - inactive.size());
+        return result;
+    }
+
+    public synchronized boolean deactivate(int sensorId) {
+        ActiveSensor activeSensor = activeSensors.remove(sensorId);
+        if (activeSensor == null) return false;
+        measurementScheduler.cancel(sensorId);
+        tokenRefreshManager.untrack(sensorId);
+        serverRateController.discard(activeSensor.sensor);
+        activeSensor.stop(() -> {
+            measurementAggregator.release(activeSensor.sensor);
+            deadbandFilter.release(activeSensor.sensor);
+            weatherSimulator.release(activeSensor.slot);
+        });
+        return true;
+    }
+
+    public int deactivateServer(String serverURL) {
+        int stopped = 0;
+        for (ActiveSensor activeSensor : activeSensors.values()) {
+            if (serverURL.equals(activeSensor.sensor.getServerURL()) && deactivate(activeSensor.sensor.getId())) stopped++;
+        }
+        return stopped;
+    }
+
+    public int deactivateIf(IntPredicate sensorIds) {
+        int stopped = 0;
+        for (Integer sensorId : activeSensors.keySet()) {
+            if (sensorIds.test(sensorId) && deactivate(sensorId)) stopped++;
+        }
+        return stopped;
+    }
+
+    public int deactivateAll() {
+        measuring = false;
+        int stopped = 0;
+        for (Integer sensorId : activeSensors.keySet()) {
+            if (deactivate(sensorId)) stopped++;
+        }
+        return stopped;
+    }
+
+    public boolean isActive(int sensorId) {
+        return activeSensors.containsKey(sensorId);
+    }
+
+    public int getActiveCount() {
+        return activeSensors.size();
+    }
+
+    /**
+     * Whether sensors were activated since the last {@link #deactivateAll()}, even if none is active right now.
+     */
+    public boolean isMeasuring() {
+        return measuring;
+    }
+
+    public MeasurementRunDTO getStatus() {
+        MeasurementRunDTO status = new MeasurementRunDTO();
+        status.setRunning(running);
+        status.setInFlight(measurementScheduler.getInFlightCount());
+        status.setSuppressed(deadbandFilter.getSuppressedCount());
+        List<ActiveSensorDTO> sensors = new ArrayList<>(activeSensors.size());
+        for (ActiveSensor activeSensor : activeSensors.values()) sensors.add(activeSensor.toDTO());
+        sensors.sort(Comparator.comparingInt(ActiveSensorDTO::getId));
+        status.setActive(sensors.size());
+        status.setSensors(sensors);
+        return status;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        int stopped = deactivateAll();
+        if (measurementBatcher.isEnabled()) measurementBatcher.flush();
+        measurementAggregator.flush();
+
+        long deadline = System.currentTimeMillis() + drainTimeout;
+        try {
+            while (measurementScheduler.getInFlightCount() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int abandoned = measurementScheduler.getInFlightCount();
+        if (abandoned > 0) log.warn("stopped {} sensors, {} measurements were still in flight after {} ms", stopped, abandoned, drainTimeout);
+        else if (stopped > 0) log.info("stopped {} sensors, all measurements in flight completed", stopped);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private synchronized void start(Sensor sensor) {
+        if (!running || activeSensors.containsKey(sensor.getId())) return;
+        sensor.setSimulationSlot(weatherSimulator.register());
+        ActiveSensor activeSensor = new ActiveSensor(sensor);
+        activeSensors.put(sensor.getId(), activeSensor);
+        tokenRefreshManager.track(sensor);
+        measurementScheduler.scheduleAsync(sensor, s -> measure(activeSensor));
+    }
+
+    private CompletableFuture<Void> measure(ActiveSensor activeSensor) {
+        if (!activeSensor.begin()) return CompletableFuture.completedFuture(null);
+        CompletableFuture<Void> measurement;
+        try {
+            measurement = measureSlot(activeSensor);
+        } catch (RuntimeException e) {
+            activeSensor.end();
+            throw e;
+        }
+        return measurement.whenComplete((ignored, error) -> activeSensor.end());
+    }
+
+    private CompletableFuture<Void> measureSlot(ActiveSensor activeSensor) {
+        Sensor sensor = activeSensor.sensor;
+        int slot = activeSensor.slot;
+        weatherSimulator.advance(slot);
+        double temperature = weatherSimulator.temperature(slot);
+        boolean raining = weatherSimulator.raining(slot);
+        measurementFeed.publish(sensor, temperature, raining);
+        measurementHistory.record(sensor, temperature, raining);
+
+        if (measurementAggregator.aggregates(sensor)) return completion(activeSensor, measurementAggregator.add(sensor, temperature, raining));
+        if (!deadbandFilter.passes(sensor, temperature, raining)) {
+            activeSensor.suppressed++;
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Void> send;
+        if (measurementOutbox.isEnabled()) send = measurementOutbox.append(sensor, temperature, raining);
+        else if (!serverRateController.admit(sensor, temperature, raining)) return CompletableFuture.completedFuture(null);
+        else send = send(sensor, temperature, raining);
+        return completion(activeSensor, send, temperature, raining);
+    }
+
+    private boolean release(Sensor sensor, double temperature, boolean raining) {
+        ActiveSensor activeSensor = activeSensors.get(sensor.getId());
+        if (activeSensor == null) return true;
+        return measurementScheduler.executeAsync(() -> completion(activeSensor, send(sensor, temperature, raining), temperature, raining));
+    }
+
+    private CompletableFuture<Void> send(Sensor sensor, double temperature, boolean raining) {
+        return measurementBatcher.isEnabled() ? measurementBatcher.add(sensor, temperature, raining) : measurementSender.send(sensor, temperature, raining);
+    }
+
+    /**
+     * Like {@link #completion(ActiveSensor, CompletableFuture)} for a reading that passed the deadband, which becomes
+     * the sensor's last sent reading only once its send succeeded.
+     */
+    private CompletableFuture<Void> completion(ActiveSensor activeSensor, CompletableFuture<Void> send, double temperature, boolean raining) {
+        return completion(activeSensor, send.whenComplete((ignored, error) -> {
+            if (error == null) deadbandFilter.sent(activeSensor.sensor, temperature, raining);
+        }));
+    }
+
+    private CompletableFuture<Void> completion(ActiveSensor activeSensor, CompletableFuture<Void> send) {
+        Sensor sensor = activeSensor.sensor;
+        return send.whenComplete((ignored, error) -> {
+            activeSensor.completed(error);
+            if (error != null && MeasurementTransport.unwrap(error) instanceof HttpClientErrorException.Unauthorized) tokenRefreshManager.expired(sensor.getId());
+        });
+    }
+
+    /**
+     * Schedules never overlap measurements of one sensor, but a reading released by the rate controller can complete
+     * alongside the next one, so completions are serialised per sensor. The slot is kept apart from the sensor, which
+     * may be activated again with a new slot while the release of the old one waits for its last measurement.
+     */
+    private static class ActiveSensor {
+        final Sensor sensor;
+        final int slot;
+        final long activeSince = System.currentTimeMillis();
+        volatile long lastSentAt;
+        volatile long sent;
+        volatile long failed;
+        volatile long suppressed;
+        volatile String lastError;
+
+        private boolean measuring;
+        private boolean stopped;
+        private Runnable release;
+
+        ActiveSensor(Sensor sensor) {
+            this.sensor = sensor;
+            this.slot = sensor.getSimulationSlot();
+        }
+
+        synchronized boolean begin() {
+            if (stopped) return false;
+            measuring = true;
+            return true;
+        }
+
+        void end() {
+            Runnable pending;
+            synchronized (this) {
+                measuring = false;
+                pending = release;
+                release = null;
+            }
+            if (pending != null) pending.run();
+        }
+
+        /**
+         * Runs {@code release} now, or when the measurement in flight completes.
+         */
+        void stop(Runnable release) {
+            synchronized (this) {
+                stopped = true;
+                if (measuring) {
+                    this.release = release;
+                    return;
+                }
+            }
+            release.run();
+        }
+
+        synchronized void completed(Throwable error) {
+            if (error == null) {
+                lastSentAt = System.currentTimeMillis();
+                sent++;
+            } else {
+                failed++;
+                lastError = MeasurementTransport.unwrap(error).getMessage();
+            }
+        }
+
+        ActiveSensorDTO toDTO() {
+            ActiveSensorDTO dto = new ActiveSensorDTO();
+            dto.setId(sensor.getId());
+            dto.setName(sensor.getName());
+            dto.setServerURL(sensor.getServerURL());
+            dto.setActiveSince(activeSince);
+            dto.setLastSentAt(lastSentAt == 0 ? null : lastSentAt);
+            dto.setSent(sent);
+            dto.setFailed(failed);
+            dto.setSuppressed(suppressed);
+            dto.setLastError(lastError);
+            return dto;
+        }
+    }
+}
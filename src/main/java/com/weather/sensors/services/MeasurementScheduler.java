@@ -0,0 +1,219 @@
+package com.weather.sensors.services;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.transport.MeasurementTransport;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Gives every active sensor its own measurement deadline. A single ticker thread only hands due sensors
+ * over to the workers (a bounded platform pool, or a virtual thread per measurement, see {@link ExecutionMode}),
+ * so a slow measurements server delays the sensors that target it and nothing else.
+ * A sensor whose previous measurement is still in flight skips its tick instead of queueing up behind itself; for
+ * {@link #scheduleAsync asynchronous} measurements that lasts until the returned stage completes, which is how a
+ * saturated send pipeline pushes back on the scheduler.
+ * <p>
+ * {@code sensors.measure.lag} is how long after its due time a measurement actually started (ticker delay plus
+ * worker queueing); skipped ticks are counted separately in {@code sensors.measure.skipped}.
+ */
+@Component
+public class MeasurementScheduler {
+    private static final Logger log = LoggerFactory.getLogger(MeasurementScheduler.class);
+
+    private final ScheduledExecutorService ticker;
+    private final ExecutorService workers;
+    private final long defaultInterval;
+    private final long startJitter;
+
+    private final Map<Integer, ScheduledSensor> scheduledSensors = new ConcurrentHashMap<>();
+    private final AtomicLong skippedTicks = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Timer lag;
+
+    public MeasurementScheduler(@Value("${sensors.measure.interval-ms:15000}") long defaultInterval,
+                                @Value("${sensors.measure.start-jitter-ms:-1}") long startJitter,
+                                @Value("${sensors.measure.workers:16}") int workers,
+                                @Value("${sensors.measure.queue-capacity:10000}") int queueCapacity,
+                                @Value("${sensors.execution.mode:platform}") ExecutionMode executionMode,
+                                MeterRegistry meterRegistry) {
+        this.defaultInterval = defaultInterval;
+        this.startJitter = startJitter < 0 ? defaultInterval : startJitter;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(ExecutionMode.platformThreads("measure-ticker"));
+        this.workers = executionMode.newExecutor("measure-worker", workers, queueCapacity);
+
+        this.lag = Timer.builder("sensors.measure.lag").description("Delay between a measurement's due time and its start").publishPercentileHistogram().register(meterRegistry);
+        Gauge.builder("sensors.measure.scheduled", scheduledSensors, Map::size).description("Sensors with a measurement schedule").register(meterRegistry);
+        Gauge.builder("sensors.measure.in-flight", inFlight, AtomicInteger::get).description("Measurements started and not yet completed").register(meterRegistry);
+        Gauge.builder("sensors.measure.queue", this, MeasurementScheduler::getQueueDepth).description("Measurements waiting for a worker").register(meterRegistry);
+        FunctionCounter.builder("sensors.measure.skipped", skippedTicks, AtomicLong::get).description("Ticks skipped because the sensor was busy or the workers were saturated").register(meterRegistry);
+    }
+
+    public void schedule(Sensor sensor, Consumer<Sensor> measurement) {
+        scheduleAsync(sensor, s -> {
+            measurement.accept(s);
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    public synchronized void scheduleAsync(Sensor sensor, Function<Sensor, CompletionStage<?>> measurement) {
+        long interval = intervalOf(sensor);
+        long initialDelay = startJitter > 0 ? ThreadLocalRandom.current().nextLong(startJitter) : 0;
+
+        ScheduledSensor scheduledSensor = new ScheduledSensor(sensor, measurement);
+        ScheduledSensor previous = scheduledSensors.put(sensor.getId(), scheduledSensor);
+        if (previous != null) previous.cancel();
+
+        scheduledSensor.firstDue = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(initialDelay);
+        scheduledSensor.intervalNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+        scheduledSensor.future = ticker.scheduleAtFixedRate(() -> dispatch(scheduledSensor), initialDelay, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void cancel(int sensorId) {
+        ScheduledSensor scheduledSensor = scheduledSensors.remove(sensorId);
+        if (scheduledSensor != null) scheduledSensor.cancel();
+    }
+
+    /**
+     * Runs a one-off asynchronous measurement on the workers, counted in flight until the returned stage completes.
+     * Returns false, without running it, when the workers are saturated.
+     */
+    public boolean executeAsync(Supplier<CompletionStage<?>> measurement) {
+        inFlight.incrementAndGet();
+        try {
+            workers.execute(() -> {
+                try {
+                    measurement.get().whenComplete((result, error) -> inFlight.decrementAndGet());
+                } catch (RuntimeException e) {
+                    log.warn("measurement failed: {}", e.getMessage());
+                    inFlight.decrementAndGet();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+    }
+
+    public void cancelAll() {
+        for (Integer sensorId : scheduledSensors.keySet()) cancel(sensorId);
+    }
+
+    public int getScheduledCount() {
+        return scheduledSensors.size();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    public long getSkippedTicks() {
+        return skippedTicks.get();
+    }
+
+    public int getQueueDepth() {
+        return workers instanceof ThreadPoolExecutor pool ? pool.getQueue().size() : 0;
+    }
+
+    public long intervalOf(Sensor sensor) {
+        Integer interval = sensor.getMeasureInterval();
+        return interval != null && interval > 0 ? interval : defaultInterval;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cancelAll();
+        ticker.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void dispatch(ScheduledSensor scheduledSensor) {
+        if (!scheduledSensor.inFlight.compareAndSet(false, true)) {
+            skippedTicks.incrementAndGet();
+            return;
+        }
+        inFlight.incrementAndGet();
+        try {
+            workers.execute(scheduledSensor);
+        } catch (RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            scheduledSensor.inFlight.set(false);
+            skippedTicks.incrementAndGet();
+        }
+    }
+
+    private class ScheduledSensor implements Runnable {
+        final Sensor sensor;
+        final Function<Sensor, CompletionStage<?>> measurement;
+        final AtomicBoolean inFlight = new AtomicBoolean();
+        volatile ScheduledFuture<?> future;
+        volatile long firstDue;
+        volatile long intervalNanos;
+
+        ScheduledSensor(Sensor sensor, Function<Sensor, CompletionStage<?>> measurement) {
+            this.sensor = sensor;
+            this.measurement = measurement;
+        }
+
+        @Override
+        public void run() {
+            long late = System.nanoTime() - firstDue;
+            if (late > 0) lag.record(late % intervalNanos, TimeUnit.NANOSECONDS);
+
+            CompletionStage<?> completion;
+            try {
+                completion = measurement.apply(sensor);
+            } catch (RuntimeException e) {
+                failed(e);
+                return;
+            }
+            completion.whenComplete((result, error) -> {
+                if (error != null) failed(MeasurementTransport.unwrap(error));
+                else done();
+            });
+        }
+
+        private void failed(Throwable error) {
+            log.warn("measurement of sensor {} failed: {}", sensor.getId(), error.getMessage());
+            done();
+        }
+
+        private void done() {
+            MeasurementScheduler.this.inFlight.decrementAndGet();
+            inFlight.set(false);
+        }
+
+        void cancel() {
+            ScheduledFuture<?> scheduled = future;
+            if (scheduled != null) scheduled.cancel(false);
+        }
+    }
+}
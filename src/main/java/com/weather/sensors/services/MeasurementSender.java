@@ -0,0 +1,51 @@
+package com.weather.sensors.services;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.stereotype.Service;
+
+import com.weather.sensors.metrics.ServerMeters;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.transport.MeasurementFrameWriter;
+import com.weather.sensors.transport.MeasurementJsonWriter;
+import com.weather.sensors.transport.MeasurementTransport;
+import com.weather.sensors.transport.WireFormat;
+import com.weather.sensors.transport.WireFormatNegotiator;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Service
+public class MeasurementSender {
+    private final MeasurementTransport measurementTransport;
+    private final ServerConcurrencyLimiter serverConcurrencyLimiter;
+    private final WireFormatNegotiator wireFormatNegotiator;
+    private final ServerMeters sendMeters;
+
+    static final String SEND_MEASURE_PATH = "/measurements/add";
+
+    public MeasurementSender(MeasurementTransport measurementTransport, ServerConcurrencyLimiter serverConcurrencyLimiter, WireFormatNegotiator wireFormatNegotiator, MeterRegistry meterRegistry) {
+        this.measurementTransport = measurementTransport;
+        this.serverConcurrencyLimiter = serverConcurrencyLimiter;
+        this.wireFormatNegotiator = wireFormatNegotiator;
+        this.sendMeters = new ServerMeters(meterRegistry, "send");
+    }
+
+    public CompletableFuture<Void> send(Sensor sensor, double temperature, boolean raining) {
+        String url = sensor.getServerURL();
+        long start = System.nanoTime();
+        CompletableFuture<Void> sent;
+        if (wireFormatNegotiator.formatFor(url) == WireFormat.BINARY) {
+            byte[] frame = MeasurementFrameWriter.forCurrentThread().writeSensor(sensor, temperature, raining, System.currentTimeMillis()).toByteArray();
+            sent = post(url, frame, WireFormat.BINARY).exceptionallyCompose(error -> wireFormatNegotiator.rejectsBinary(url, error)
+                    ? post(url, MeasurementJsonWriter.forCurrentThread().writeSensor(sensor, temperature, raining).toByteArray(), WireFormat.JSON)
+                    : CompletableFuture.failedFuture(error));
+        } else {
+            sent = post(url, MeasurementJsonWriter.forCurrentThread().writeSensor(sensor, temperature, raining).toByteArray(), WireFormat.JSON);
+        }
+        return sent.whenComplete((ignored, error) -> sendMeters.record(url, start, 1, error));
+    }
+
+    private CompletableFuture<Void> post(String url, byte[] body, WireFormat format) {
+        return serverConcurrencyLimiter.callAsync(url, 1, () -> measurementTransport.post(url + SEND_MEASURE_PATH, body, format.getMediaType()));
+    }
+}
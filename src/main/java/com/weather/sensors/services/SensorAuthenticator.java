@@ -0,0 +1,207 @@
+package com.weather.sensors.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.weather.sensors.dto.ActivationFailureDTO;
+import com.weather.sensors.dto.ActivationResultDTO;
+import com.weather.sensors.metrics.ServerMeters;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.util.SensorMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Authenticates sensors against their measurements servers concurrently. Sensors are queued per server and
+ * drained by at most {@code max-concurrency-per-server} lanes each, so a slow server only slows down its own
+ * sensors. Transient failures (I/O errors, 429, 5xx) are retried with jittered exponential backoff; whatever
+ * still fails ends up in the {@link ActivationResultDTO} instead of aborting the activation. All activations share one
+ * pool of {@code workers}; a lane that finds the pool saturated runs on the activating thread.
+ */
+@Service
+public class SensorAuthenticator {
+    private static final Logger log = LoggerFactory.getLogger(SensorAuthenticator.class);
+
+    private static final String AUTHENTICATION_PATH = "/measurements/authenticate";
+
+    private final RestTemplate restTemplate;
+    private final SensorMapper sensorMapper;
+    private final ServerConcurrencyLimiter serverConcurrencyLimiter;
+    private final ExecutorService executor;
+    private final int lanesPerServer;
+    private final int maxAttempts;
+    private final long backoff;
+    private final long maxBackoff;
+    private final ServerMeters authenticationMeters;
+    private final Timer activationTimer;
+    private final Counter activatedSensors;
+    private final Counter failedSensors;
+
+    public SensorAuthenticator(RestTemplate restTemplate, SensorMapper sensorMapper, ServerConcurrencyLimiter serverConcurrencyLimiter,
+                               @Value("${sensors.execution.mode:platform}") ExecutionMode executionMode,
+                               @Value("${sensors.activation.workers:32}") int workers,
+                               @Value("${sensors.activation.queue-capacity:10000}") int queueCapacity,
+                               @Value("${sensors.activation.max-concurrency-per-server:8}") int lanesPerServer,
+                               @Value("${sensors.activation.max-attempts:3}") int maxAttempts,
+                               @Value("${sensors.activation.backoff-ms:200}") long backoff,
+                               @Value("${sensors.activation.max-backoff-ms:5000}") long maxBackoff,
+                               MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.sensorMapper = sensorMapper;
+        this.serverConcurrencyLimiter = serverConcurrencyLimiter;
+        this.executor = executionMode.newExecutor("sensor-auth", workers, queueCapacity);
+        this.lanesPerServer = lanesPerServer;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.maxBackoff = maxBackoff;
+        this.authenticationMeters = new ServerMeters(meterRegistry, "authenticate");
+        this.activationTimer = Timer.builder("sensors.activation").description("Time to authenticate all sensors on activation").register(meterRegistry);
+        this.activatedSensors = Counter.builder("sensors.activation.sensors").tag("outcome", "activated").register(meterRegistry);
+        this.failedSensors = Counter.builder("sensors.activation.sensors").tag("outcome", "failed").register(meterRegistry);
+    }
+
+    /**
+     * Blocks until every sensor has either authenticated or given up. {@code onAuthenticated} is called from the
+     * authenticating thread as soon as a sensor has its session, so measuring can start before the others finish.
+     */
+    public ActivationResultDTO authenticateAll(List<Sensor> sensors, Consumer<Sensor> onAuthenticated) {
+        long start = System.currentTimeMillis();
+        Map<String, Queue<Sensor>> sensorsByServer = new LinkedHashMap<>();
+        for (Sensor sensor : sensors) {
+            sensorsByServer.computeIfAbsent(sensor.getServerURL(), url -> new ConcurrentLinkedQueue<>()).add(sensor);
+        }
+
+        List<ActivationFailureDTO> failures = new ArrayList<>();
+        AtomicInteger activated = new AtomicInteger();
+        List<CompletableFuture<Void>> lanes = new ArrayList<>();
+        for (Queue<Sensor> queue : sensorsByServer.values()) {
+            for (int lane = Math.min(lanesPerServer, queue.size()); lane > 0; lane--) {
+                Runnable drain = () -> drain(queue, onAuthenticated, activated, failures);
+                try {
+                    lanes.add(CompletableFuture.runAsync(drain, executor));
+                } catch (RejectedExecutionException e) {
+                    drain.run();
+                }
+            }
+        }
+        await(CompletableFuture.allOf(lanes.toArray(CompletableFuture<?>[]::new)), sensorsByServer.values());
+
+        ActivationResultDTO result = new ActivationResultDTO();
+        result.setRequested(sensors.size());
+        result.setActivated(activated.get());
+        synchronized (failures) {
+            result.setFailures(new ArrayList<>(failures));
+        }
+        result.setDurationMillis(System.currentTimeMillis() - start);
+        activationTimer.record(result.getDurationMillis(), TimeUnit.MILLISECONDS);
+        activatedSensors.increment(result.getActivated());
+        failedSensors.increment(result.getFailures().size());
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public void authenticate(Sensor sensor) {
+        String url = sensor.getServerURL();
+        String sessionCookie = authenticationMeters.time(url, () -> serverConcurrencyLimiter.call(url, () -> restTemplate.postForEntity(url + AUTHENTICATION_PATH, sensorMapper.toDTO(sensor), String.class))).getHeaders().getFirst(HttpHeaders.SET_COOKIE);
+        if (sessionCookie == null) throw new RuntimeException("cannot authenticate sensor with id " + sensor.getId() +". Please contact admin if it keeps happening");
+        sessionCookie = sessionCookie.replace("SESSION=", "");
+        double sessionId = Double.parseDouble(sessionCookie);
+        sensor.setSessionId(sessionId);
+    }
+
+    private void drain(Queue<Sensor> queue, Consumer<Sensor> onAuthenticated, AtomicInteger activated, List<ActivationFailureDTO> failures) {
+        Sensor sensor;
+        while ((sensor = queue.poll()) != null && !Thread.currentThread().isInterrupted()) {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    authenticate(sensor);
+                    onAuthenticated.accept(sensor);
+                    activated.incrementAndGet();
+                    break;
+                } catch (RuntimeException e) {
+                    if (attempt < maxAttempts && isTransient(e) && sleep(backoff(attempt))) continue;
+
+                    log.warn("sensor {} could not be authenticated after {} attempt(s): {}", sensor.getId(), attempt, e.getMessage());
+                    synchronized (failures) {
+                        failures.add(new ActivationFailureDTO(sensor.getId(), sensor.getName(), sensor.getServerURL(), attempt, e.getMessage()));
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    private long backoff(int attempt) {
+        long ceiling = Math.min(maxBackoff, backoff << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    private static boolean isTransient(RuntimeException e) {
+        if (e instanceof ResourceAccessException) return true;
+        if (e instanceof HttpStatusCodeException statusException) {
+            return statusException.getStatusCode().is5xxServerError() || statusException.getStatusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS);
+        }
+        return false;
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Waits for the lanes of one activation. If the activating thread is interrupted, the sensors not yet taken by a
+     * lane are dropped, so the lanes stop after their current sensor.
+     */
+    private static void await(CompletableFuture<Void> lanes, Iterable<Queue<Sensor>> queues) {
+        while (true) {
+            try {
+                lanes.get(1, TimeUnit.MINUTES);
+                return;
+            } catch (TimeoutException e) {
+                log.info("sensor authentication is still running");
+            } catch (ExecutionException e) {
+                return;
+            } catch (InterruptedException e) {
+                for (Queue<Sensor> queue : queues) queue.clear();
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.weather.sensors.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.weather.sensors.dto.BulkItemResultDTO;
+import com.weather.sensors.dto.BulkResultDTO;
+import com.weather.sensors.dto.SensorDTO;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.repositories.SensorCache;
+import com.weather.sensors.repositories.SensorsRepository;
+import com.weather.sensors.transport.MeasurementTransport;
+import com.weather.sensors.util.SensorMapper;
+import com.weather.sensors.util.validationGroup.CreationInfo;
+import com.weather.sensors.util.validationGroup.RegistrationInfo;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * Creates and registers sensors in bulk. Input is consumed in chunks of {@code chunk-size}: each chunk is validated
+ * with one query, written in one transaction (batched inserts through the sequence id generator) and, for
+ * registration, sent to the measurements servers in parallel before that transaction starts. Remote registrations of
+ * all bulk requests share one pool of {@code registration-workers}; one that finds the pool saturated runs on the
+ * requesting thread.
+ */
+@Service
+public class SensorBulkService {
+    private final SensorsRepository sensorsRepository;
+    private final SensorCache sensorCache;
+    private final SensorMapper sensorMapper;
+    private final SensorService sensorService;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final ExecutorService registrationExecutor;
+
+    public SensorBulkService(SensorsRepository sensorsRepository, SensorCache sensorCache, SensorMapper sensorMapper, SensorService sensorService, Validator validator, TransactionTemplate transactionTemplate,
+                             @Value("${sensors.execution.mode:platform}") ExecutionMode executionMode,
+                             @Value("${sensors.bulk.chunk-size:1000}") int chunkSize,
+                             @Value("${sensors.bulk.registration-workers:32}") int registrationWorkers,
+                             @Value("${sensors.bulk.queue-capacity:10000}") int queueCapacity) {
+        this.sensorsRepository = sensorsRepository;
+        this.sensorCache = sensorCache;
+        this.sensorMapper = sensorMapper;
+        this.sensorService = sensorService;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+        this.registrationExecutor = executionMode.newExecutor("sensor-registration", registrationWorkers, queueCapacity);
+    }
+
+    public BulkResultDTO createAll(Iterator<SensorDTO> sensorDTOs) {
+        BulkResultDTO result = new BulkResultDTO();
+        forEachChunk(sensorDTOs, (chunk, offset) -> createChunk(chunk, offset, result));
+        return result;
+    }
+
+    public BulkResultDTO registrateAll(Iterator<SensorDTO> sensorDTOs) {
+        BulkResultDTO result = new BulkResultDTO();
+        forEachChunk(sensorDTOs, (chunk, offset) -> registrateChunk(chunk, offset, result));
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        registrationExecutor.shutdownNow();
+    }
+
+    private void createChunk(List<SensorDTO> chunk, int offset, BulkResultDTO result) {
+        BulkItemResultDTO[] items = new BulkItemResultDTO[chunk.size()];
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            SensorDTO sensorDTO = chunk.get(i);
+            String violation = firstViolation(sensorDTO, CreationInfo.class);
+            if (violation == null && sensorDTO.getName() != null && !names.add(sensorDTO.getName())) violation = "Sensor name is repeated in this request: " + sensorDTO.getName();
+            if (violation != null) items[i] = rejected(offset + i, sensorDTO, violation);
+        }
+
+        Set<String> existing = new HashSet<>();
+        if (!names.isEmpty()) {
+            for (Sensor sensor : sensorsRepository.findByNameIn(names)) existing.add(sensor.getName());
+        }
+
+        List<Sensor> accepted = new ArrayList<>();
+        List<Integer> acceptedIndexes = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (items[i] != null) continue;
+            SensorDTO sensorDTO = chunk.get(i);
+            if (existing.contains(sensorDTO.getName())) {
+                items[i] = rejected(offset + i, sensorDTO, "Sensor with this name already exists: " + sensorDTO.getName());
+                continue;
+            }
+            Sensor sensor = sensorMapper.toSensor(sensorDTO);
+            sensor.setId(0);
+            sensor.setRegistered(false);
+            accepted.add(sensor);
+            acceptedIndexes.add(i);
+        }
+
+        save(accepted, acceptedIndexes, offset, BulkItemResultDTO.CREATED, items, chunk);
+        for (BulkItemResultDTO item : items) result.add(item);
+    }
+
+    private void registrateChunk(List<SensorDTO> chunk, int offset, BulkResultDTO result) {
+        BulkItemResultDTO[] items = new BulkItemResultDTO[chunk.size()];
+        Sensor[] sensors = resolveRegistrations(chunk, offset, items);
+
+        List<CompletableFuture<Sensor>> registrations = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            registrations.add(null);
+            if (sensors[i] == null) continue;
+            Sensor sensor = sensors[i];
+            SensorDTO sensorDTO = chunk.get(i);
+            registrations.set(i, registerRemotely(sensor, sensorDTO.getServerURL()));
+        }
+
+        List<Sensor> registered = new ArrayList<>();
+        List<Integer> registeredIndexes = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (registrations.get(i) == null) continue;
+            try {
+                registered.add(registrations.get(i).join());
+                registeredIndexes.add(i);
+            } catch (RuntimeException e) {
+                items[i] = new BulkItemResultDTO(offset + i, chunk.get(i).getId(), chunk.get(i).getName(), BulkItemResultDTO.FAILED, MeasurementTransport.unwrap(e).getMessage());
+            }
+        }
+
+        save(registered, registeredIndexes, offset, BulkItemResultDTO.REGISTERED, items, chunk);
+        for (BulkItemResultDTO item : items) result.add(item);
+    }
+
+    private CompletableFuture<Sensor> registerRemotely(Sensor sensor, String serverURL) {
+        try {
+            return CompletableFuture.supplyAsync(() -> sensorService.registerRemotely(sensor, serverURL), registrationExecutor);
+        } catch (RejectedExecutionException e) {
+            try {
+                return CompletableFuture.completedFuture(sensorService.registerRemotely(sensor, serverURL));
+            } catch (RuntimeException failure) {
+                return CompletableFuture.failedFuture(failure);
+            }
+        }
+    }
+
+    /**
+     * The local part of registering a chunk: validates it and looks its sensors up with at most two queries. Returns
+     * the sensor to register per index; invalid and unknown entries get a rejected item instead.
+     */
+    Sensor[] resolveRegistrations(List<SensorDTO> chunk, int offset, BulkItemResultDTO[] items) {
+        Set<Integer> ids = new HashSet<>();
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            SensorDTO sensorDTO = chunk.get(i);
+            String violation = firstViolation(sensorDTO, RegistrationInfo.class);
+            if (violation == null && sensorDTO.getId() == 0 && sensorDTO.getName() == null) violation = "Please provide sensor name or id (if you provide both a sensor will be found by id only)";
+            if (violation != null) items[i] = rejected(offset + i, sensorDTO, violation);
+            else if (sensorDTO.getId() != 0) ids.add(sensorDTO.getId());
+            else names.add(sensorDTO.getName());
+        }
+
+        Map<Integer, Sensor> byId = new HashMap<>();
+        Map<String, Sensor> byName = new HashMap<>();
+        if (!ids.isEmpty()) sensorsRepository.findAllById(ids).forEach(sensor -> byId.put(sensor.getId(), sensor));
+        if (!names.isEmpty()) sensorsRepository.findByNameIn(names).forEach(sensor -> byName.put(sensor.getName(), sensor));
+
+        Sensor[] sensors = new Sensor[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            if (items[i] != null) continue;
+            SensorDTO sensorDTO = chunk.get(i);
+            sensors[i] = sensorDTO.getId() != 0 ? byId.get(sensorDTO.getId()) : byName.get(sensorDTO.getName());
+            if (sensors[i] == null) items[i] = rejected(offset + i, sensorDTO, "Sensor was not found");
+        }
+        return sensors;
+    }
+
+    private void save(List<Sensor> sensors, List<Integer> indexes, int offset, String status, BulkItemResultDTO[] items, List<SensorDTO> chunk) {
+        if (sensors.isEmpty()) return;
+        try {
+            List<Sensor> saved = transactionTemplate.execute(transaction -> sensorCache.saveAll(sensors));
+            for (int i = 0; i < indexes.size(); i++) {
+                Sensor sensor = saved.get(i);
+                items[indexes.get(i)] = new BulkItemResultDTO(offset + indexes.get(i), sensor.getId(), sensor.getName(), status, null);
+            }
+        } catch (RuntimeException e) {
+            for (int index : indexes) {
+                items[index] = new BulkItemResultDTO(offset + index, chunk.get(index).getId(), chunk.get(index).getName(), BulkItemResultDTO.FAILED, e.getMessage());
+            }
+        }
+    }
+
+    private String firstViolation(SensorDTO sensorDTO, Class<?> group) {
+        if (sensorDTO == null) return "Sensor must not be null";
+        Set<ConstraintViolation<SensorDTO>> violations = validator.validate(sensorDTO, group);
+        return violations.isEmpty() ? null : violations.iterator().next().getMessage();
+    }
+
+    private static BulkItemResultDTO rejected(int index, SensorDTO sensorDTO, String message) {
+        return sensorDTO == null
+                ? new BulkItemResultDTO(index, 0, null, BulkItemResultDTO.REJECTED, message)
+                : new BulkItemResultDTO(index, sensorDTO.getId(), sensorDTO.getName(), BulkItemResultDTO.REJECTED, message);
+    }
+
+    void forEachChunk(Iterator<SensorDTO> sensorDTOs, ChunkHandler handler) {
+        List<SensorDTO> chunk = new ArrayList<>(chunkSize);
+        int offset = 0;
+        while (sensorDTOs.hasNext()) {
+            chunk.add(sensorDTOs.next());
+            if (chunk.size() == chunkSize) {
+                handler.handle(chunk, offset);
+                offset += chunk.size();
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) handler.handle(chunk, offset);
+    }
+
+    interface ChunkHandler {
+        void handle(List<SensorDTO> chunk, int offset);
+    }
+}
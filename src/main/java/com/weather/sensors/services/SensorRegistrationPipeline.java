@@ -0,0 +1,246 @@
+package com.weather.sensors.services;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.weather.sensors.dto.BulkItemResultDTO;
+import com.weather.sensors.dto.BulkResultDTO;
+import com.weather.sensors.dto.RegistrationJobDTO;
+import com.weather.sensors.dto.SensorDTO;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.repositories.SensorCache;
+import com.weather.sensors.transport.MeasurementTransport;
+import com.weather.sensors.util.SensorRegistrationException;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Registers sensors asynchronously. {@link #submit(Iterator)} does only the local part on the caller's thread
+ * (validation and one lookup per chunk), queues the sensors and returns a tracking id. {@code workers} workers call
+ * the measurements servers, bounded per server by the {@link ServerConcurrencyLimiter}, and hand successful
+ * registrations to a single committer, which saves whatever has accumulated, up to {@code batch-size}, in one
+ * transaction. No database connection is held while a remote call is in flight.
+ * <p>
+ * Jobs are tracked in memory and forgotten {@code retention-ms} after they complete; sensors still queued on
+ * restart stay unregistered and have to be submitted again.
+ */
+@Service
+public class SensorRegistrationPipeline {
+    private static final Logger log = LoggerFactory.getLogger(SensorRegistrationPipeline.class);
+
+    private final SensorBulkService sensorBulkService;
+    private final SensorService sensorService;
+    private final SensorCache sensorCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long retention;
+    private final long drainTimeout;
+
+    private final BlockingQueue<Registration> queued;
+    private final BlockingQueue<Registration> registered = new LinkedBlockingQueue<>();
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+    private final ExecutorService committer = Executors.newSingleThreadExecutor(ExecutionMode.platformThreads("registration-commit"));
+    private volatile boolean running = true;
+
+    public SensorRegistrationPipeline(SensorBulkService sensorBulkService, SensorService sensorService, SensorCache sensorCache, TransactionTemplate transactionTemplate,
+                                      @Value("${sensors.execution.mode:platform}") ExecutionMode executionMode,
+                                      @Value("${sensors.registration.workers:32}") int workers,
+                                      @Value("${sensors.registration.queue-capacity:100000}") int queueCapacity,
+                                      @Value("${sensors.registration.batch-size:500}") int batchSize,
+                                      @Value("${sensors.registration.retention-ms:3600000}") long retention,
+                                      @Value("${sensors.lifecycle.drain-timeout-ms:10000}") long drainTimeout,
+                                      MeterRegistry meterRegistry) {
+        this.sensorBulkService = sensorBulkService;
+        this.sensorService = sensorService;
+        this.sensorCache = sensorCache;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.retention = retention;
+        this.drainTimeout = drainTimeout;
+        this.queued = new LinkedBlockingQueue<>(queueCapacity);
+        this.workers = executionMode.newExecutor("registration-worker", workers, workers);
+        for (int i = 0; i < workers; i++) this.workers.execute(this::work);
+        committer.execute(this::commit);
+
+        Gauge.builder("sensors.registration.queued", queued, BlockingQueue::size).description("Sensors waiting for their remote registration").register(meterRegistry);
+        Gauge.builder("sensors.registration.uncommitted", registered, BlockingQueue::size).description("Remotely registered sensors waiting to be saved").register(meterRegistry);
+        Gauge.builder("sensors.registration.jobs", jobs, Map::size).description("Tracked registration jobs").register(meterRegistry);
+    }
+
+    /**
+     * Validates and queues the sensors; invalid and unknown ones are rejected at once. Refuses the whole request when
+     * the queue cannot take it.
+     */
+    public RegistrationJobDTO submit(Iterator<SensorDTO> sensorDTOs) {
+        purge();
+        List<SensorDTO> requested = new ArrayList<>();
+        sensorDTOs.forEachRemaining(requested::add);
+        int capacity = queued.remainingCapacity();
+        if (requested.size() > capacity) throw new SensorRegistrationException("Registration queue is full, " + capacity + " sensors can be queued right now");
+
+        Job job = new Job(requested.size());
+        List<Registration> accepted = new ArrayList<>();
+        sensorBulkService.forEachChunk(requested.iterator(), (chunk, offset) -> {
+            BulkItemResultDTO[] items = new BulkItemResultDTO[chunk.size()];
+            Sensor[] sensors = sensorBulkService.resolveRegistrations(chunk, offset, items);
+            for (int i = 0; i < chunk.size(); i++) {
+                if (sensors[i] != null) accepted.add(new Registration(job, offset + i, chunk.get(i), sensors[i]));
+                else job.items.set(offset + i, items[i]);
+            }
+        });
+
+        job.pending.set(accepted.size());
+        if (accepted.isEmpty()) job.completedAt = System.currentTimeMillis();
+        jobs.put(job.id, job);
+        for (Registration registration : accepted) {
+            if (!queued.offer(registration)) registration.failed("Registration queue is full");
+        }
+        return job.toDTO();
+    }
+
+    public RegistrationJobDTO getStatus(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) throw new SensorRegistrationException("Registration job " + jobId + " was not found");
+        return job.toDTO();
+    }
+
+    /**
+     * Stops the remote calls and saves the registrations that already succeeded, for up to {@code drain-timeout-ms}.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        workers.shutdownNow();
+        committer.shutdown();
+        try {
+            if (!committer.awaitTermination(drainTimeout, TimeUnit.MILLISECONDS)) log.warn("{} registered sensors were not saved on shutdown", registered.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void work() {
+        try {
+            while (running) {
+                Registration registration = queued.take();
+                try {
+                    registration.registered = sensorService.registerRemotely(registration.sensor, registration.sensorDTO.getServerURL());
+                    registered.put(registration);
+                } catch (RuntimeException e) {
+                    registration.failed(MeasurementTransport.unwrap(e).getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void commit() {
+        List<Registration> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !registered.isEmpty()) {
+                Registration first = registered.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                registered.drainTo(batch, batchSize - 1);
+                save(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void save(List<Registration> batch) {
+        List<Sensor> sensors = new ArrayList<>(batch.size());
+        for (Registration registration : batch) sensors.add(registration.registered);
+        try {
+            List<Sensor> saved = transactionTemplate.execute(transaction -> sensorCache.saveAll(sensors));
+            for (int i = 0; i < batch.size(); i++) {
+                Registration registration = batch.get(i);
+                Sensor sensor = saved.get(i);
+                registration.job.complete(registration.index, new BulkItemResultDTO(registration.index, sensor.getId(), sensor.getName(), BulkItemResultDTO.REGISTERED, null));
+            }
+        } catch (RuntimeException e) {
+            log.warn("cannot save {} registered sensors: {}", batch.size(), e.getMessage());
+            for (Registration registration : batch) registration.failed(e.getMessage());
+        }
+    }
+
+    private void purge() {
+        long expired = System.currentTimeMillis() - retention;
+        jobs.values().removeIf(job -> job.completedAt != null && job.completedAt < expired);
+    }
+
+    private static class Job {
+        final String id = UUID.randomUUID().toString();
+        final long submittedAt = System.currentTimeMillis();
+        final AtomicReferenceArray<BulkItemResultDTO> items;
+        final AtomicInteger pending = new AtomicInteger();
+        volatile Long completedAt;
+
+        Job(int size) {
+            this.items = new AtomicReferenceArray<>(size);
+        }
+
+        void complete(int index, BulkItemResultDTO item) {
+            items.set(index, item);
+            if (pending.decrementAndGet() == 0) completedAt = System.currentTimeMillis();
+        }
+
+        RegistrationJobDTO toDTO() {
+            RegistrationJobDTO dto = new RegistrationJobDTO();
+            dto.setId(id);
+            dto.setSubmittedAt(submittedAt);
+            dto.setCompletedAt(completedAt);
+            dto.setState(completedAt == null ? RegistrationJobDTO.PENDING : RegistrationJobDTO.COMPLETED);
+            dto.setPending(pending.get());
+            BulkResultDTO result = new BulkResultDTO();
+            for (int i = 0; i < items.length(); i++) {
+                BulkItemResultDTO item = items.get(i);
+                if (item != null) result.add(item);
+            }
+            dto.setResult(result);
+            return dto;
+        }
+    }
+
+    private static class Registration {
+        final Job job;
+        final int index;
+        final SensorDTO sensorDTO;
+        final Sensor sensor;
+        volatile Sensor registered;
+
+        Registration(Job job, int index, SensorDTO sensorDTO, Sensor sensor) {
+            this.job = job;
+            this.index = index;
+            this.sensorDTO = sensorDTO;
+            this.sensor = sensor;
+        }
+
+        void failed(String message) {
+            job.complete(index, new BulkItemResultDTO(index, sensorDTO.getId(), sensorDTO.getName(), BulkItemResultDTO.FAILED, message));
+        }
+    }
+}
@@ -2,11 +2,14 @@ package com.weather.sensors.services;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 
-import org.modelmapper.ModelMapper;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -14,36 +17,56 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.client.RestTemplate;
 
+import com.weather.sensors.dto.ActivationResultDTO;
+import com.weather.sensors.dto.MeasurementRunDTO;
 import com.weather.sensors.dto.SensorDTO;
+import com.weather.sensors.dto.SensorPageDTO;
+import com.weather.sensors.dto.ServerStatusDTO;
+import com.weather.sensors.metrics.ServerMeters;
 import com.weather.sensors.models.Sensor;
+import com.weather.sensors.repositories.SensorCache;
+import com.weather.sensors.repositories.SensorSpecifications;
 import com.weather.sensors.repositories.SensorsRepository;
+import com.weather.sensors.shard.ShardCoordinator;
 import com.weather.sensors.util.SensorDTOValidator;
+import com.weather.sensors.util.SensorMapper;
 import com.weather.sensors.util.SensorRegistrationException;
 import com.weather.sensors.util.SensorToRegistrateValidator;
 import com.weather.sensors.util.SensorNotValidException;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Service
 public class SensorService {
     private final SensorsRepository sensorsRepository;
+    private final SensorCache sensorCache;
     private final RestTemplate restTemplate;
-    private final ModelMapper modelMapper;
+    private final SensorMapper sensorMapper;
     private final SensorDTOValidator sensorDTOValidator;
     private final SensorToRegistrateValidator sensorToRegistrateValidator;
+    private final MeasurementRunManager measurementRunManager;
+    private final ServerConcurrencyLimiter serverConcurrencyLimiter;
+    private final ServerMeters registrationMeters;
+    private final int pageSize;
+    private final TokenRefreshManager tokenRefreshManager;
+    private final ShardCoordinator shardCoordinator;
     
-    private static final String SEND_MEASURE_PATH = "/measurements/add";
     private static final String REGISTRATION_PATH = "/sensors/registration";
-    private static final String AUTHENTICATION_PATH = "/measurements/authenticate";
-    private static final String UPDATE_TOKEN_PATH = "/update-token";
-    private static final int MEASURE_FREQUENCY = 15000;
-    
-    private Thread measuringThread;
     
-    public SensorService(SensorsRepository sensorsRepository, RestTemplate restTemplate, ModelMapper modelMapper, SensorDTOValidator sensorDTOValidator, SensorToRegistrateValidator sensorToRegistrateValidator) {
+    public SensorService(SensorsRepository sensorsRepository, SensorCache sensorCache, RestTemplate restTemplate, SensorMapper sensorMapper, SensorDTOValidator sensorDTOValidator, SensorToRegistrateValidator sensorToRegistrateValidator, MeasurementRunManager measurementRunManager, ServerConcurrencyLimiter serverConcurrencyLimiter, TokenRefreshManager tokenRefreshManager, ShardCoordinator shardCoordinator, MeterRegistry meterRegistry,
+                         @Value("${sensors.query.page-size:1000}") int pageSize) {
         this.sensorsRepository = sensorsRepository;
+        this.sensorCache = sensorCache;
         this.restTemplate = restTemplate;
-        this.modelMapper = modelMapper;
+        this.sensorMapper = sensorMapper;
         this.sensorDTOValidator = sensorDTOValidator;
         this.sensorToRegistrateValidator = sensorToRegistrateValidator;
+        this.measurementRunManager = measurementRunManager;
+        this.serverConcurrencyLimiter = serverConcurrencyLimiter;
+        this.registrationMeters = new ServerMeters(meterRegistry, "registrate");
+        this.tokenRefreshManager = tokenRefreshManager;
+        this.shardCoordinator = shardCoordinator;
+        this.pageSize = pageSize;
     }
 
     @Transactional
@@ -54,14 +77,13 @@ public class SensorService {
             throw new SensorNotValidException(bindingResult);
         }
 
-        Sensor sensor = modelMapper.map(sensorDTO, Sensor.class);
-        sensorsRepository.save(sensor);
+        Sensor sensor = sensorMapper.toSensor(sensorDTO);
+        sensorCache.save(sensor);
         
-        if (sensor.getId() != 0) return modelMapper.map(sensor, SensorDTO.class);
+        if (sensor.getId() != 0) return sensorMapper.toDTO(sensor);
         throw new RuntimeException("sensor id was not returned by database");
     }
 
-    @Transactional
     public void registrate(SensorDTO sensorDTO, BindingResult bindingResult) {
         sensorToRegistrateValidator.validate(sensorDTO, bindingResult);
 
@@ -69,12 +91,20 @@ public class SensorService {
             throw new SensorRegistrationException(bindingResult);
         }
 
-        String url = sensorDTO.getServerURL();
         Sensor sensor = initializeSensor(sensorDTO.getId(), sensorDTO.getName());
-        sensorDTO = modelMapper.map(sensor, SensorDTO.class);
-        sensorDTO.setServerURL(url);
+        sensorCache.save(registerRemotely(sensor, sensorDTO.getServerURL()));
+    }
+
+    /**
+     * Registers the sensor at the measurements server and returns the registered sensor without saving it, so
+     * callers can keep the remote call out of their database transaction.
+     */
+    public Sensor registerRemotely(Sensor sensor, String url) {
+        SensorDTO request = sensorMapper.toDTO(sensor);
+        request.setServerURL(url);
+        SensorDTO sensorDTO;
         try {
-            ResponseEntity<SensorDTO> response = restTemplate.postForEntity(sensorDTO.getServerURL() + REGISTRATION_PATH, sensorDTO, SensorDTO.class);
+            ResponseEntity<SensorDTO> response = registrationMeters.time(url, () -> serverConcurrencyLimiter.call(url, () -> restTemplate.postForEntity(url + REGISTRATION_PATH, request, SensorDTO.class)));
             if (!response.getStatusCode().equals(HttpStatus.OK)) {
                 throw new SensorRegistrationException(response.toString());
             }
@@ -83,67 +113,124 @@ public class SensorService {
             throw new SensorRegistrationException(e.getMessage());
         }
 
-        sensor = modelMapper.map(sensorDTO, Sensor.class);
-        sensor.setRegistered(true);
-        
-        sensorsRepository.save(sensor);
+        Sensor registered = sensorMapper.toSensor(sensorDTO);
+        registered.setRegistered(true);
+        return registered;
     }
 
-    public int activateAll() {
-        List<Sensor> sensors = sensorsRepository.findAll();
-        checkRegistration(sensors);
-        if (sensors.size() == 0) throw new NullPointerException("No registrated sensors found");
+    public ActivationResultDTO activateAll() {
+        ActivationResultDTO result = activateOwned();
+        if (result.getRequested() == 0) throw new NullPointerException("No registrated sensors found");
         
-        authenticateSensors(sensors);
-        
-        MeasureRunnable measureRunnable = new MeasureRunnable(sensors);
-        measuringThread = new Thread(measureRunnable);
-        
-        measuringThread.start();
-        
-        return sensors.size();
+        return result;
+    }
+
+    /**
+     * Activates the registered sensors this node owns; with sharding disabled that is all of them.
+     */
+    public ActivationResultDTO activateOwned() {
+        return activatePages(afterId -> sensorsRepository.findByIsRegisteredTrueAndIdGreaterThanOrderById(afterId, Limit.of(pageSize)));
+    }
+
+    public ActivationResultDTO activateServer(String serverURL) {
+        ActivationResultDTO result = activatePages(afterId -> sensorsRepository.findByServerURLAndIsRegisteredTrueAndIdGreaterThanOrderById(serverURL, afterId, Limit.of(pageSize)));
+        if (result.getRequested() == 0) throw new SensorRegistrationException("No registrated sensors found for server: " + serverURL);
+
+        return result;
+    }
+
+    public ActivationResultDTO activate(int id) {
+        Sensor sensor = initializeSensor(id);
+        if (!sensor.isRegistered()) throw new SensorRegistrationException("Sensor with id: " + id + " is not registered");
+        if (!shardCoordinator.owns(id)) throw new SensorRegistrationException("Sensor with id: " + id + " is owned by node " + shardCoordinator.ownerOf(id));
+
+        return measurementRunManager.activate(List.of(sensor));
     }
     
-    public void stopAll() {
-        measuringThread.interrupt();
+    public int stopAll() {
+        return measurementRunManager.deactivateAll();
+    }
+
+    public int stopServer(String serverURL) {
+        return measurementRunManager.deactivateServer(serverURL);
+    }
+
+    public boolean stop(int id) {
+        return measurementRunManager.deactivate(id);
+    }
+
+    public MeasurementRunDTO getStatus() {
+        return measurementRunManager.getStatus();
+    }
+
+    public List<ServerStatusDTO> getServers() {
+        return serverConcurrencyLimiter.getStatus();
     }
     
-    @Transactional
     public void updateToken(int id) {
         Sensor sensor = initializeSensor(id);
-        SensorDTO sensorDTO = restTemplate.postForEntity(sensor.getServerURL() + UPDATE_TOKEN_PATH , sensor, SensorDTO.class).getBody();
-        if (sensorDTO != null) {
-            sensor = modelMapper.map(sensorDTO, Sensor.class);
-            sensor.getToken();
-            sensorsRepository.save(sensor);
-        } else {
-            throw new RuntimeException();
-        }
+        Map<Integer, String> failures = tokenRefreshManager.refresh(List.of(sensor));
+        if (!failures.isEmpty()) throw new SensorRegistrationException("Cannot update token of sensor with id: " + id + ": " + failures.get(id));
     }
     
+    /**
+     * Returns up to {@code limit} sensors with an id above {@code afterId}, in id order. Pass the returned
+     * {@code next} as {@code afterId} to get the following page; it is null on the last page.
+     */
+    public SensorPageDTO list(int afterId, int limit, Boolean registered, String serverURL, String namePrefix) {
+        int size = Math.max(1, Math.min(limit, pageSize));
+        List<Sensor> sensors = page(afterId, size, registered, serverURL, namePrefix);
+        SensorPageDTO page = new SensorPageDTO();
+        List<SensorDTO> sensorDTOs = new ArrayList<>(sensors.size());
+        for (Sensor sensor : sensors) sensorDTOs.add(toListed(sensor));
+        page.setSensors(sensorDTOs);
+        if (sensors.size() == size) page.setNext(sensors.get(sensors.size() - 1).getId());
+        return page;
+    }
+
+    /**
+     * Hands every matching sensor to {@code consumer}, reading one page at a time.
+     */
+    public void forEach(Boolean registered, String serverURL, String namePrefix, Consumer<SensorDTO> consumer) {
+        List<Sensor> sensors = page(0, pageSize, registered, serverURL, namePrefix);
+        while (!sensors.isEmpty()) {
+            for (Sensor sensor : sensors) consumer.accept(toListed(sensor));
+            sensors = sensors.size() < pageSize ? List.of() : page(sensors.get(sensors.size() - 1).getId(), pageSize, registered, serverURL, namePrefix);
+        }
+    }
+
     @Transactional
     public void remove(SensorDTO sensorDTO) {
         Sensor sensor = initializeSensor(sensorDTO.getId(), sensorDTO.getName());
-        sensorsRepository.deleteById(sensor.getId());
+        measurementRunManager.deactivate(sensor.getId());
+        sensorCache.deleteById(sensor.getId());
     }
 
-    private void authenticateSensors(List<Sensor> sensors) {
-        for (Sensor sensor : sensors) {
-            
-            String sessionCookie = restTemplate.postForEntity(sensor.getServerURL() + AUTHENTICATION_PATH, modelMapper.map(sensor, SensorDTO.class), String.class).getHeaders().getFirst(HttpHeaders.SET_COOKIE);
-            if (sessionCookie == null) throw new RuntimeException("cannot authenticate sensor with id " + sensor.getId() +". Please contact admin if it keeps happening"); 
-            sessionCookie = sessionCookie.replace("SESSION=", "");
-            double sessionId = Double.parseDouble(sessionCookie);
-            sensor.setSessionId(sessionId);
+    private ActivationResultDTO activatePages(IntFunction<List<Sensor>> pageAfter) {
+        long start = System.currentTimeMillis();
+        ActivationResultDTO result = new ActivationResultDTO();
+        List<Sensor> sensors = pageAfter.apply(0);
+        while (!sensors.isEmpty()) {
+            List<Sensor> owned = new ArrayList<>(sensors.size());
+            for (Sensor sensor : sensors) {
+                if (shardCoordinator.owns(sensor.getId())) owned.add(sensor);
+            }
+            if (!owned.isEmpty()) result.add(measurementRunManager.activate(owned));
+            sensors = sensors.size() < pageSize ? List.of() : pageAfter.apply(sensors.get(sensors.size() - 1).getId());
         }
+        result.setDurationMillis(System.currentTimeMillis() - start);
+        return result;
     }
 
-    private void checkRegistration(List<Sensor> sensors) {
-        List<Sensor> sensorsToRemove = new ArrayList<>();
-        for (Sensor sensor : sensors) {
-            if (!sensor.isRegistered()) sensorsToRemove.add(sensor);
-        }
-        for (Sensor sensor : sensorsToRemove) sensors.remove(sensor);
+    private List<Sensor> page(int afterId, int size, Boolean registered, String serverURL, String namePrefix) {
+        return sensorsRepository.findBy(SensorSpecifications.page(afterId, registered, serverURL, namePrefix),
+                query -> query.sortBy(Sort.by("id")).limit(size).all());
+    }
+
+    private SensorDTO toListed(Sensor sensor) {
+        SensorDTO sensorDTO = sensorMapper.toDTO(sensor);
+        sensorDTO.setToken(null);
+        return sensorDTO;
     }
 
     private Sensor initializeSensor(int id, String name) {
@@ -152,42 +239,17 @@ public class SensorService {
     }
 
     private Sensor initializeSensor(int id) {
-        Optional<Sensor> sensor = sensorsRepository.findById(id);
+        Optional<Sensor> sensor = sensorCache.findById(id);
         
         return sensor.orElseThrow(() -> new SensorRegistrationException("Sensor with id: " + id + " was not found"));
     }
     
     private Sensor initializeSensor(String name) {
-        Optional<Sensor> sensor = sensorsRepository.findByName(name);
+        Optional<Sensor> sensor = sensorCache.findByName(name);
         
         return sensor.orElseThrow(() -> new SensorRegistrationException("Sensor with name: " + name + " was not found"));
     }
 
-    private class MeasureRunnable implements Runnable {
-        List<Sensor> sensors;
-
-        MeasureRunnable(List<Sensor> sensors) {
-            this.sensors = sensors;
-        }
-        
-        @Override
-        public void run() {
-            while( !Thread.currentThread().isInterrupted()) {
-                for (Sensor sensor : sensors) {
-                    sensor.measure();
-                    HttpEntity<SensorDTO> httpEntity = new HttpEntity<SensorDTO>(modelMapper.map(sensor, SensorDTO.class));
-                    restTemplate.postForLocation(sensor.getServerURL() + SEND_MEASURE_PATH, httpEntity);
-                }
-                try {
-                    Thread.sleep(MEASURE_FREQUENCY);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }
-    
-        }
-    }
-
 
 }
 
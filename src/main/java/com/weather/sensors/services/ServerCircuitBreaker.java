@@ -0,0 +1,171 @@
+package com.weather.sensors.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.weather.sensors.dto.ServerStatusDTO;
+import com.weather.sensors.transport.MeasurementTransport;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Stops calling a measurements server that keeps failing. After {@code failure-threshold} consecutive I/O errors,
+ * timeouts or 5xx answers the server's circuit opens and calls to it fail at once with {@link CircuitOpenException}.
+ * After {@code open-ms} up to {@code half-open-probes} calls are let through: a success closes the circuit, a failure
+ * opens it again. Other answers, 4xx included, show the server is up and count as successes.
+ */
+@Component
+public class ServerCircuitBreaker {
+    private static final Logger log = LoggerFactory.getLogger(ServerCircuitBreaker.class);
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final boolean enabled;
+    private final int failureThreshold;
+    private final long openDuration;
+    private final int halfOpenProbes;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    public ServerCircuitBreaker(@Value("${sensors.circuit.enabled:true}") boolean enabled,
+                                @Value("${sensors.circuit.failure-threshold:5}") int failureThreshold,
+                                @Value("${sensors.circuit.open-ms:10000}") long openDuration,
+                                @Value("${sensors.circuit.half-open-probes:1}") int halfOpenProbes,
+                                MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.halfOpenProbes = halfOpenProbes;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("sensors.circuit.open", this, breaker -> breaker.count(State.OPEN)).description("Servers whose circuit is open").register(meterRegistry);
+    }
+
+    /**
+     * Admits a call to {@code serverURL}, returning whether it is a half-open probe, or throws {@link CircuitOpenException}.
+     * Every admitted call must be reported to {@link #completed}.
+     */
+    public boolean acquire(String serverURL) {
+        if (!enabled) return false;
+        Circuit circuit = circuits.computeIfAbsent(serverURL, this::newCircuit);
+        if (circuit.state == State.CLOSED) return false;
+
+        synchronized (circuit) {
+            long now = System.currentTimeMillis();
+            if (circuit.state == State.OPEN) {
+                long retryIn = circuit.openedAt + openDuration - now;
+                if (retryIn > 0) {
+                    circuit.rejected.increment();
+                    throw new CircuitOpenException(serverURL, retryIn);
+                }
+                circuit.state = State.HALF_OPEN;
+                circuit.probes = 0;
+            }
+            if (circuit.state == State.HALF_OPEN) {
+                if (circuit.probes >= halfOpenProbes) {
+                    circuit.rejected.increment();
+                    throw new CircuitOpenException(serverURL, 0);
+                }
+                circuit.probes++;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public void completed(String serverURL, boolean probe, Throwable error) {
+        if (!enabled) return;
+        Circuit circuit = circuits.get(serverURL);
+        boolean failed = error != null && isServerFailure(error);
+        if (!failed && !probe && circuit.state == State.CLOSED) {
+            if (circuit.consecutiveFailures.get() != 0) circuit.consecutiveFailures.set(0);
+            return;
+        }
+
+        synchronized (circuit) {
+            if (probe) {
+                circuit.probes--;
+                if (circuit.state != State.HALF_OPEN) return;
+                if (failed) {
+                    open(serverURL, circuit, error);
+                } else {
+                    circuit.state = State.CLOSED;
+                    circuit.consecutiveFailures.set(0);
+                    log.info("circuit to {} closed", serverURL);
+                }
+            } else if (failed && circuit.state == State.CLOSED && circuit.consecutiveFailures.incrementAndGet() >= failureThreshold) {
+                open(serverURL, circuit, error);
+            }
+        }
+    }
+
+    public State getState(String serverURL) {
+        Circuit circuit = circuits.get(serverURL);
+        return circuit == null ? State.CLOSED : circuit.state;
+    }
+
+    /**
+     * Fills in the circuit of {@code serverURL} on its status.
+     */
+    public void describe(String serverURL, ServerStatusDTO status) {
+        Circuit circuit = circuits.get(serverURL);
+        if (circuit == null) {
+            status.setState(State.CLOSED.name());
+            return;
+        }
+        status.setState(circuit.state.name());
+        status.setConsecutiveFailures(circuit.consecutiveFailures.get());
+        status.setOpenedAt(circuit.state == State.CLOSED ? null : circuit.openedAt);
+        status.setTrips(circuit.trips);
+        status.setRejected(circuit.rejected.sum());
+        status.setLastError(circuit.lastError);
+    }
+
+    static boolean isServerFailure(Throwable error) {
+        Throwable cause = MeasurementTransport.unwrap(error);
+        return cause instanceof ResourceAccessException && !(cause instanceof CircuitOpenException) || cause instanceof HttpServerErrorException;
+    }
+
+    private void open(String serverURL, Circuit circuit, Throwable error) {
+        circuit.state = State.OPEN;
+        circuit.openedAt = System.currentTimeMillis();
+        circuit.trips++;
+        circuit.lastError = MeasurementTransport.unwrap(error).getMessage();
+        log.warn("circuit to {} opened for {} ms: {}", serverURL, openDuration, circuit.lastError);
+    }
+
+    private int count(State state) {
+        int count = 0;
+        for (Circuit circuit : circuits.values()) {
+            if (circuit.state == state) count++;
+        }
+        return count;
+    }
+
+    private Circuit newCircuit(String serverURL) {
+        Circuit circuit = new Circuit();
+        Gauge.builder("sensors.circuit.state", circuit, c -> c.state.ordinal()).tag("server", serverURL).description("Circuit state: 0 closed, 1 half-open, 2 open").register(meterRegistry);
+        FunctionCounter.builder("sensors.circuit.rejected", circuit.rejected, LongAdder::sum).tag("server", serverURL).description("Calls not made because the circuit was open").register(meterRegistry);
+        return circuit;
+    }
+
+    private static class Circuit {
+        final AtomicInteger consecutiveFailures = new AtomicInteger();
+        final LongAdder rejected = new LongAdder();
+        volatile State state = State.CLOSED;
+        volatile long openedAt;
+        volatile long trips;
+        volatile String lastError;
+        int probes;
+    }
+}
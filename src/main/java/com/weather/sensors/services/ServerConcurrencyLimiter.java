@@ -0,0 +1,157 @@
+package com.weather.sensors.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.weather.sensors.dto.ServerStatusDTO;
+
+/**
+ * Caps the number of concurrent outbound calls per measurements server, so that thousands of
+ * virtual threads cannot open thousands of connections to the same host. Calls first pass the
+ * server's {@link ServerCircuitBreaker}, so a dead server fails fast instead of holding slots until timeouts.
+ * Every call that was made is reported to the registered {@link CallObserver}s with its duration, outcome and the
+ * number of readings it carried (0 for calls that send no measurements).
+ */
+@Component
+public class ServerConcurrencyLimiter {
+    private final ServerCircuitBreaker serverCircuitBreaker;
+    private final int maxConcurrentPerServer;
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+    private final List<CallObserver> observers = new CopyOnWriteArrayList<>();
+
+    public ServerConcurrencyLimiter(ServerCircuitBreaker serverCircuitBreaker,
+                                    @Value("${sensors.execution.max-concurrency-per-server:64}") int maxConcurrentPerServer) {
+        this.serverCircuitBreaker = serverCircuitBreaker;
+        this.maxConcurrentPerServer = maxConcurrentPerServer;
+    }
+
+    public <T> T call(String serverURL, Supplier<T> call) {
+        boolean probe = serverCircuitBreaker.acquire(serverURL);
+        Semaphore semaphore = permits.computeIfAbsent(serverURL, url -> new Semaphore(maxConcurrentPerServer));
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            serverCircuitBreaker.completed(serverURL, probe, null);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for a connection slot to " + serverURL, e);
+        }
+        Throwable error = null;
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            semaphore.release();
+            serverCircuitBreaker.completed(serverURL, probe, error);
+            observe(serverURL, start, 0, error);
+        }
+    }
+
+    /**
+     * Holds the server's slot until the returned future completes rather than until {@code call} returns.
+     */
+    public <T> CompletableFuture<T> callAsync(String serverURL, Supplier<CompletableFuture<T>> call) {
+        return callAsync(serverURL, 0, call);
+    }
+
+    /**
+     * Like {@link #callAsync(String, Supplier)} for a call that sends {@code readings} measurements.
+     */
+    public <T> CompletableFuture<T> callAsync(String serverURL, int readings, Supplier<CompletableFuture<T>> call) {
+        boolean probe;
+        try {
+            probe = serverCircuitBreaker.acquire(serverURL);
+        } catch (CircuitOpenException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Semaphore semaphore = permits.computeIfAbsent(serverURL, url -> new Semaphore(maxConcurrentPerServer));
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            serverCircuitBreaker.completed(serverURL, probe, null);
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new IllegalStateException("interrupted while waiting for a connection slot to " + serverURL, e));
+        }
+        CompletableFuture<T> result;
+        long start = System.nanoTime();
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            semaphore.release();
+            serverCircuitBreaker.completed(serverURL, probe, e);
+            observe(serverURL, start, readings, e);
+            return CompletableFuture.failedFuture(e);
+        }
+        return result.whenComplete((value, error) -> {
+            semaphore.release();
+            serverCircuitBreaker.completed(serverURL, probe, error);
+            observe(serverURL, start, readings, error);
+        });
+    }
+
+    public void run(String serverURL, Runnable call) {
+        call(serverURL, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    public void addObserver(CallObserver observer) {
+        observers.add(observer);
+    }
+
+    public int getMaxConcurrentPerServer() {
+        return maxConcurrentPerServer;
+    }
+
+    /**
+     * Whether a call to the server would get a slot without waiting.
+     */
+    public boolean hasFreeSlot(String serverURL) {
+        Semaphore semaphore = permits.get(serverURL);
+        return semaphore == null || semaphore.availablePermits() > 0;
+    }
+
+    /**
+     * Returns the circuit and in-flight calls of every server called so far.
+     */
+    public List<ServerStatusDTO> getStatus() {
+        List<ServerStatusDTO> servers = new ArrayList<>(permits.size());
+        for (Map.Entry<String, Semaphore> entry : permits.entrySet()) {
+            ServerStatusDTO server = new ServerStatusDTO();
+            server.setServerURL(entry.getKey());
+            server.setMaxInFlight(maxConcurrentPerServer);
+            server.setInFlight(maxConcurrentPerServer - entry.getValue().availablePermits());
+            serverCircuitBreaker.describe(entry.getKey(), server);
+            for (CallObserver observer : observers) observer.describe(entry.getKey(), server);
+            servers.add(server);
+        }
+        servers.sort(Comparator.comparing(ServerStatusDTO::getServerURL));
+        return servers;
+    }
+
+    private void observe(String serverURL, long start, int readings, Throwable error) {
+        if (observers.isEmpty()) return;
+        long nanos = System.nanoTime() - start;
+        for (CallObserver observer : observers) observer.completed(serverURL, nanos, readings, error);
+    }
+
+    public interface CallObserver {
+        void completed(String serverURL, long nanos, int readings, Throwable error);
+
+        default void describe(String serverURL, ServerStatusDTO status) {
+        }
+    }
+}
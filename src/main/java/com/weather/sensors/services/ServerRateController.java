@@ -0,0 +1,294 @@
+package com.weather.sensors.services;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.weather.sensors.dto.ServerStatusDTO;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.transport.MeasurementTransport;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Adapts the rate of readings sent to each measurements server to how it copes (AIMD). Every server has a token
+ * bucket refilled at its current rate, starting at {@code max-per-second}. Calls observed through the
+ * {@link ServerConcurrencyLimiter} steer it, counting only the calls that send measurements: a success within
+ * {@code target-latency-ms} adds about {@code increase-per-second} readings/s per second (scaled by the readings
+ * the call carried, so a batch counts as much as the single sends it replaces), while a slower answer, a timeout or I/O error, 429 or 503
+ * multiplies the rate by {@code decrease-factor}, at most once per {@code target-latency-ms}. A {@code Retry-After}
+ * on 429 or 503 also pauses the server until then, for at most {@code max-pause-ms}.
+ * <p>
+ * A reading that finds no token, or finds readings of its server already waiting, is parked as the latest reading of
+ * its sensor, replacing (conflating) any older one, and keeps the place in line its sensor got when it was first
+ * parked. Once tokens are available again the drain thread hands parked readings to the {@link ReadingSink} in that
+ * order, so every parked sensor is eventually sent however many keep arriving. The sink must not block; it skips servers whose connection slots are all taken
+ * and stops at a server whose sink refuses a reading, keeping that reading parked. A server that falls behind thus
+ * gets fewer, fresher readings instead of a growing backlog, and cannot hold up the readings of other servers.
+ */
+@Component
+public class ServerRateController implements ServerConcurrencyLimiter.CallObserver {
+    private static final Logger log = LoggerFactory.getLogger(ServerRateController.class);
+
+    private final ServerConcurrencyLimiter serverConcurrencyLimiter;
+    private final boolean enabled;
+    private final double maxRate;
+    private final double minRate;
+    private final double increase;
+    private final double decreaseFactor;
+    private final long targetLatencyNanos;
+    private final long burst;
+    private final long maxPause;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService drainer;
+    private volatile ReadingSink sink = (sensor, temperature, raining) -> true;
+
+    public ServerRateController(ServerConcurrencyLimiter serverConcurrencyLimiter,
+                                @Value("${sensors.rate.enabled:false}") boolean enabled,
+                                @Value("${sensors.rate.max-per-second:10000}") double maxRate,
+                                @Value("${sensors.rate.min-per-second:1}") double minRate,
+                                @Value("${sensors.rate.increase-per-second:10}") double increase,
+                                @Value("${sensors.rate.decrease-factor:0.5}") double decreaseFactor,
+                                @Value("${sensors.rate.target-latency-ms:1000}") long targetLatency,
+                                @Value("${sensors.rate.burst-ms:1000}") long burst,
+                                @Value("${sensors.rate.max-pause-ms:60000}") long maxPause,
+                                @Value("${sensors.rate.drain-ms:50}") long drainInterval,
+                                MeterRegistry meterRegistry) {
+        this.serverConcurrencyLimiter = serverConcurrencyLimiter;
+        this.enabled = enabled;
+        this.maxRate = maxRate;
+        this.minRate = minRate;
+        this.increase = increase;
+        this.decreaseFactor = decreaseFactor;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatency);
+        this.burst = burst;
+        this.maxPause = maxPause;
+        this.meterRegistry = meterRegistry;
+        this.drainer = Executors.newSingleThreadScheduledExecutor(ExecutionMode.platformThreads("rate-drain"));
+        if (enabled) {
+            serverConcurrencyLimiter.addObserver(this);
+            drainer.scheduleWithFixedDelay(this::drain, drainInterval, drainInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets where parked readings go once their server has tokens again.
+     */
+    public void setSink(ReadingSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Returns whether the reading may be sent now; if not, it is parked as the latest reading of its sensor.
+     */
+    public boolean admit(Sensor sensor, double temperature, boolean raining) {
+        if (!enabled) return true;
+        Bucket bucket = bucket(sensor.getServerURL());
+        if (bucket.parked.isEmpty() && bucket.tryAcquire(System.nanoTime(), System.currentTimeMillis())) return true;
+        bucket.park(new ParkedReading(sensor, temperature, raining));
+        return false;
+    }
+
+    /**
+     * Drops the parked reading of a sensor that stopped measuring.
+     */
+    public void discard(Sensor sensor) {
+        if (!enabled) return;
+        Bucket bucket = buckets.get(sensor.getServerURL());
+        if (bucket != null) bucket.parked.remove(sensor.getId());
+    }
+
+    public double getRate(String serverURL) {
+        Bucket bucket = buckets.get(serverURL);
+        return bucket == null ? maxRate : bucket.rate;
+    }
+
+    @Override
+    public void completed(String serverURL, long nanos, int readings, Throwable error) {
+        if (readings == 0) return;
+        Bucket bucket = bucket(serverURL);
+        Throwable cause = error == null ? null : MeasurementTransport.unwrap(error);
+        boolean overloaded = cause instanceof HttpClientErrorException.TooManyRequests || cause instanceof HttpServerErrorException.ServiceUnavailable;
+        if (overloaded) {
+            long pause = retryAfter(((HttpStatusCodeException) cause).getResponseHeaders());
+            bucket.decrease(System.nanoTime(), pause > 0 ? System.currentTimeMillis() + Math.min(pause, maxPause) : 0);
+        } else if (cause instanceof ResourceAccessException || error == null && nanos > targetLatencyNanos) {
+            bucket.decrease(System.nanoTime(), 0);
+        } else if (error == null) {
+            bucket.increase(readings);
+        }
+    }
+
+    @Override
+    public void describe(String serverURL, ServerStatusDTO status) {
+        Bucket bucket = buckets.get(serverURL);
+        if (bucket == null) return;
+        status.setRateLimit(Math.round(bucket.rate * 100) / 100.0);
+        status.setPausedUntil(bucket.pausedUntil > System.currentTimeMillis() ? bucket.pausedUntil : null);
+        status.setPending(bucket.parked.size());
+        status.setConflated(bucket.conflated.sum());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        drainer.shutdownNow();
+    }
+
+    /**
+     * Sends parked readings while their servers have tokens.
+     */
+    void drain() {
+        try {
+            long nanos = System.nanoTime();
+            long millis = System.currentTimeMillis();
+            for (Bucket bucket : buckets.values()) {
+                if (!serverConcurrencyLimiter.hasFreeSlot(bucket.serverURL)) continue;
+                while (!bucket.parked.isEmpty() && bucket.tryAcquire(nanos, millis)) {
+                    ParkedReading reading = bucket.next();
+                    if (reading == null || !sink.release(reading.sensor, reading.temperature, reading.raining)) {
+                        if (reading != null) bucket.putBack(reading);
+                        bucket.refund();
+                        break;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("draining parked readings failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Milliseconds to wait according to a {@code Retry-After} header in seconds or as an HTTP date, 0 without one.
+     */
+    static long retryAfter(HttpHeaders headers) {
+        String value = headers == null ? null : headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null || value.isBlank()) return 0;
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            try {
+                return Math.max(0, ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() - System.currentTimeMillis());
+            } catch (DateTimeParseException ignored) {
+                return 0;
+            }
+        }
+    }
+
+    private Bucket bucket(String serverURL) {
+        return buckets.computeIfAbsent(serverURL, this::newBucket);
+    }
+
+    private Bucket newBucket(String serverURL) {
+        Bucket bucket = new Bucket(serverURL);
+        Gauge.builder("sensors.rate.limit", bucket, b -> b.rate).tag("server", serverURL).description("Readings per second currently allowed to the server").register(meterRegistry);
+        Gauge.builder("sensors.rate.parked", bucket.parked, Map::size).tag("server", serverURL).description("Readings waiting for the server's rate limit").register(meterRegistry);
+        FunctionCounter.builder("sensors.rate.conflated", bucket.conflated, LongAdder::sum).tag("server", serverURL).description("Parked readings replaced by a newer one of the same sensor").register(meterRegistry);
+        return bucket;
+    }
+
+    @FunctionalInterface
+    public interface ReadingSink {
+        /**
+         * Starts sending a released reading without waiting for it; returns false to keep it parked for later.
+         */
+        boolean release(Sensor sensor, double temperature, boolean raining);
+    }
+
+    private record ParkedReading(Sensor sensor, double temperature, boolean raining) {
+    }
+
+    private class Bucket {
+        final String serverURL;
+        final Map<Integer, ParkedReading> parked = new ConcurrentHashMap<>();
+        final ConcurrentLinkedDeque<Integer> order = new ConcurrentLinkedDeque<>();
+        final LongAdder conflated = new LongAdder();
+        volatile double rate = maxRate;
+        volatile long pausedUntil;
+        double tokens = 1;
+        long refilledAt = System.nanoTime();
+        long decreasedAt = System.nanoTime() - targetLatencyNanos;
+
+        Bucket(String serverURL) {
+            this.serverURL = serverURL;
+        }
+
+        synchronized boolean tryAcquire(long nanos, long millis) {
+            if (pausedUntil > millis) return false;
+            double capacity = Math.max(1, rate * burst / 1000);
+            tokens = Math.min(capacity, tokens + (nanos - refilledAt) / 1e9 * rate);
+            refilledAt = nanos;
+            if (tokens < 1) return false;
+            tokens--;
+            return true;
+        }
+
+        void park(ParkedReading reading) {
+            if (parked.put(reading.sensor.getId(), reading) != null) conflated.increment();
+            else order.add(reading.sensor.getId());
+        }
+
+        /**
+         * Takes the parked reading of the sensor that has waited longest; ids of discarded readings are skipped.
+         */
+        ParkedReading next() {
+            Integer sensorId;
+            while ((sensorId = order.poll()) != null) {
+                ParkedReading reading = parked.remove(sensorId);
+                if (reading != null) return reading;
+            }
+            return null;
+        }
+
+        /**
+         * Parks a reading the sink refused again at the head of the line, unless a newer one took its place meanwhile.
+         */
+        void putBack(ParkedReading reading) {
+            if (parked.putIfAbsent(reading.sensor.getId(), reading) == null) order.addFirst(reading.sensor.getId());
+        }
+
+        synchronized void refund() {
+            tokens++;
+        }
+
+        synchronized void increase(int readings) {
+            if (rate < maxRate) rate = Math.min(maxRate, rate + increase * readings / Math.max(rate, 1));
+        }
+
+        synchronized void decrease(long nanos, long pauseUntil) {
+            if (pauseUntil > pausedUntil) {
+                pausedUntil = pauseUntil;
+                log.info("{} asked to retry after {} ms", serverURL, pauseUntil - System.currentTimeMillis());
+            }
+            if (nanos - decreasedAt < targetLatencyNanos) return;
+            decreasedAt = nanos;
+            double previous = rate;
+            rate = Math.max(minRate, rate * decreaseFactor);
+            if (rate < previous) log.debug("rate to {} lowered to {} readings/s", serverURL, rate);
+        }
+    }
+}
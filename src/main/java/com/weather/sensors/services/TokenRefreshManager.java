@@ -0,0 +1,257 @@
+package com.weather.sensors.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weather.sensors.dto.SensorDTO;
+import com.weather.sensors.metrics.ServerMeters;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.repositories.SensorCache;
+import com.weather.sensors.repositories.SensorsRepository;
+import com.weather.sensors.transport.MeasurementTransport;
+import com.weather.sensors.util.SensorMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Renews the tokens of measuring sensors before they expire. A token expires at its JWT {@code exp} claim when it
+ * has one, otherwise {@code ttl-ms} after it was issued or first seen (never, if {@code ttl-ms} is 0). It is renewed
+ * {@code refresh-ahead-ms} before that, minus a random share of {@code jitter-ms}, so tokens issued together are not
+ * renewed together. A token that is issued with less than that to live is renewed halfway through its lifetime
+ * instead, and never sooner than {@code min-interval-ms} after it was issued, so short-lived tokens are not renewed on
+ * every scan. A sensor whose measurement is rejected with 401 is renewed at the next scan.
+ * <p>
+ * Every {@code scan-ms} up to {@code batch-size} due sensors are renewed, {@code workers} at a time and within the
+ * per-server limit. New tokens replace the token of the running sensor in place and are then saved in one
+ * transaction per batch. A failed renewal is retried after {@code retry-ms}.
+ */
+@Service
+public class TokenRefreshManager {
+    private static final Logger log = LoggerFactory.getLogger(TokenRefreshManager.class);
+
+    private static final String UPDATE_TOKEN_PATH = "/update-token";
+
+    private final RestTemplate restTemplate;
+    private final SensorMapper sensorMapper;
+    private final ServerConcurrencyLimiter serverConcurrencyLimiter;
+    private final SensorsRepository sensorsRepository;
+    private final SensorCache sensorCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final long ttl;
+    private final long refreshAhead;
+    private final long jitter;
+    private final long retry;
+    private final long minInterval;
+    private final int batchSize;
+    private final ServerMeters updateTokenMeters;
+
+    private final Map<Integer, TrackedToken> tracked = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+    private final ScheduledExecutorService scanner;
+
+    public TokenRefreshManager(RestTemplate restTemplate, SensorMapper sensorMapper, ServerConcurrencyLimiter serverConcurrencyLimiter, SensorsRepository sensorsRepository, SensorCache sensorCache, TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                               @Value("${sensors.token.refresh.enabled:true}") boolean enabled,
+                               @Value("${sensors.token.ttl-ms:0}") long ttl,
+                               @Value("${sensors.token.refresh-ahead-ms:300000}") long refreshAhead,
+                               @Value("${sensors.token.jitter-ms:60000}") long jitter,
+                               @Value("${sensors.token.retry-ms:30000}") long retry,
+                               @Value("${sensors.token.min-interval-ms:10000}") long minInterval,
+                               @Value("${sensors.token.batch-size:500}") int batchSize,
+                               @Value("${sensors.token.workers:16}") int workers,
+                               @Value("${sensors.token.scan-ms:1000}") long scan,
+                               @Value("${sensors.execution.mode:platform}") ExecutionMode executionMode,
+                               MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.sensorMapper = sensorMapper;
+        this.serverConcurrencyLimiter = serverConcurrencyLimiter;
+        this.sensorsRepository = sensorsRepository;
+        this.sensorCache = sensorCache;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.refreshAhead = refreshAhead;
+        this.jitter = jitter;
+        this.retry = retry;
+        this.minInterval = minInterval;
+        this.batchSize = batchSize;
+        this.updateTokenMeters = new ServerMeters(meterRegistry, "update-token");
+        this.workers = executionMode.newExecutor("token-refresh", workers, batchSize);
+        this.scanner = Executors.newSingleThreadScheduledExecutor(ExecutionMode.platformThreads("token-scanner"));
+        if (enabled) scanner.scheduleWithFixedDelay(this::refreshDue, scan, scan, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("sensors.token.tracked", tracked, Map::size).description("Measuring sensors whose tokens are renewed ahead of expiry").register(meterRegistry);
+    }
+
+    /**
+     * Starts renewing the token of {@code sensor}. The sensor object is the one the measurement loop sends with, so
+     * renewed tokens take effect on its next measurement.
+     */
+    public void track(Sensor sensor) {
+        tracked.put(sensor.getId(), new TrackedToken(sensor, refreshAt(sensor.getToken(), System.currentTimeMillis(), false)));
+    }
+
+    public void untrack(int sensorId) {
+        tracked.remove(sensorId);
+    }
+
+    /**
+     * Marks the token of a tracked sensor as rejected, so it is renewed at the next scan.
+     */
+    public void expired(int sensorId) {
+        TrackedToken token = tracked.get(sensorId);
+        if (token != null) token.refreshAt = 0;
+    }
+
+    public int getTrackedCount() {
+        return tracked.size();
+    }
+
+    /**
+     * Renews the tokens of {@code sensors} now, updating tracked sensors in place and saving the new tokens.
+     * Returns the reason for every sensor whose token could not be renewed.
+     */
+    public Map<Integer, String> refresh(Collection<Sensor> sensors) {
+        Map<Integer, String> failures = new LinkedHashMap<>();
+        List<Sensor> chunk = new ArrayList<>(Math.min(batchSize, sensors.size()));
+        for (Sensor sensor : sensors) {
+            chunk.add(sensor);
+            if (chunk.size() == batchSize) {
+                refreshChunk(chunk, failures);
+                chunk = new ArrayList<>(batchSize);
+            }
+        }
+        if (!chunk.isEmpty()) refreshChunk(chunk, failures);
+        return failures;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scanner.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    void refreshDue() {
+        long now = System.currentTimeMillis();
+        List<Sensor> due = new ArrayList<>();
+        for (TrackedToken token : tracked.values()) {
+            if (token.refreshAt <= now) due.add(token.sensor);
+            if (due.size() == batchSize) break;
+        }
+        if (due.isEmpty()) return;
+
+        try {
+            Map<Integer, String> failures = refresh(due);
+            if (!failures.isEmpty()) log.warn("cannot renew tokens of {} of {} sensors, retrying in {} ms: {}", failures.size(), due.size(), retry, failures.values().iterator().next());
+        } catch (RuntimeException e) {
+            log.warn("token renewal failed: {}", e.getMessage());
+        }
+    }
+
+    private void refreshChunk(List<Sensor> sensors, Map<Integer, String> failures) {
+        List<CompletableFuture<String>> renewals = new ArrayList<>(sensors.size());
+        for (Sensor sensor : sensors) renewals.add(CompletableFuture.supplyAsync(() -> renew(sensor), workers));
+
+        long now = System.currentTimeMillis();
+        Map<Integer, String> renewed = new HashMap<>();
+        for (int i = 0; i < sensors.size(); i++) {
+            Sensor sensor = sensors.get(i);
+            TrackedToken token = tracked.get(sensor.getId());
+            try {
+                String newToken = renewals.get(i).join();
+                renewed.put(sensor.getId(), newToken);
+                sensor.setToken(newToken);
+                if (token != null) {
+                    token.sensor.setToken(newToken);
+                    token.refreshAt = refreshAt(newToken, now, true);
+                }
+            } catch (RuntimeException e) {
+                failures.put(sensor.getId(), MeasurementTransport.unwrap(e).getMessage());
+                if (token != null) token.refreshAt = now + retry + ThreadLocalRandom.current().nextLong(Math.max(1, retry / 2));
+            }
+        }
+        if (!renewed.isEmpty()) save(renewed, failures);
+    }
+
+    private String renew(Sensor sensor) {
+        String url = sensor.getServerURL();
+        SensorDTO request = sensorMapper.toDTO(sensor);
+        SensorDTO response = updateTokenMeters.time(url, () -> serverConcurrencyLimiter.call(url, () -> restTemplate.postForEntity(url + UPDATE_TOKEN_PATH, request, SensorDTO.class))).getBody();
+        if (response == null || response.getToken() == null) throw new IllegalStateException("measurements server returned no token for sensor " + sensor.getId());
+        return response.getToken();
+    }
+
+    private void save(Map<Integer, String> renewed, Map<Integer, String> failures) {
+        try {
+            transactionTemplate.executeWithoutResult(transaction -> {
+                List<Sensor> sensors = sensorsRepository.findAllById(renewed.keySet());
+                for (Sensor sensor : sensors) sensor.setToken(renewed.get(sensor.getId()));
+                sensorCache.saveAll(sensors);
+            });
+        } catch (RuntimeException e) {
+            log.warn("renewed {} tokens but cannot save them: {}", renewed.size(), e.getMessage());
+            for (Integer sensorId : renewed.keySet()) failures.put(sensorId, "token renewed but not saved: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A token seen for the first time may be close to its end and is renewed as soon as it is due; one that was
+     * {@code issuedNow} gets at least half its lifetime.
+     */
+    private long refreshAt(String token, long now, boolean issuedNow) {
+        long expiresAt = expiresAt(token, now);
+        if (expiresAt == Long.MAX_VALUE) return Long.MAX_VALUE;
+        long ahead = refreshAhead + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter) : 0);
+        if (!issuedNow) return expiresAt - ahead;
+        return Math.max(expiresAt - Math.min(ahead, (expiresAt - now) / 2), now + minInterval);
+    }
+
+    private long expiresAt(String token, long issuedAt) {
+        if (token != null) {
+            String[] parts = token.split("\\.");
+            if (parts.length == 3) {
+                try {
+                    JsonNode exp = objectMapper.readTree(new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8)).get("exp");
+                    if (exp != null && exp.canConvertToLong()) return TimeUnit.SECONDS.toMillis(exp.asLong());
+                } catch (Exception e) {
+                    log.debug("token is not a JWT, using the configured lifetime: {}", e.getMessage());
+                }
+            }
+        }
+        return ttl > 0 ? issuedAt + ttl : Long.MAX_VALUE;
+    }
+
+    private static class TrackedToken {
+        final Sensor sensor;
+        volatile long refreshAt;
+
+        TrackedToken(Sensor sensor, long refreshAt) {
+            this.sensor = sensor;
+            this.refreshAt = refreshAt;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.weather.sensors.shard;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.weather.sensors.dto.ShardNodeDTO;
+import com.weather.sensors.dto.ShardStatusDTO;
+import com.weather.sensors.models.ShardNode;
+import com.weather.sensors.repositories.ShardNodeRepository;
+import com.weather.sensors.services.ExecutionMode;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Splits the registered sensors between the instances sharing one database. Every node renews a lease row in
+ * {@code sensor_node} each {@code heartbeat-ms}; the nodes whose lease is younger than {@code lease-ms} are the
+ * members, and each sensor belongs to one of them by rendezvous hashing of its id. A node joining or leaving only
+ * moves the sensors it gains or loses, and every member computes the same owners without talking to the others.
+ * <p>
+ * Leases are stamped and compared with the database's clock, so skew between the nodes' own clocks cannot make them
+ * disagree on who is live. Listeners run on the heartbeat thread whenever the membership changes. A node that could
+ * not renew its own lease for {@code lease-ms}, as measured by its own monotonic clock, owns nothing until it can,
+ * since the others have already taken its sensors over.
+ * With sharding disabled the node owns every sensor and never touches the table.
+ */
+@Component
+public class ShardCoordinator {
+    private static final Logger log = LoggerFactory.getLogger(ShardCoordinator.class);
+
+    private final ShardNodeRepository shardNodeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final String nodeId;
+    private final long lease;
+    private final long startedAt = System.currentTimeMillis();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService heartbeat;
+
+    private volatile Membership membership = new Membership(new String[0], new long[0]);
+    private volatile IntSupplier activeSensors = () -> 0;
+    private long lastRenewed;
+
+    public ShardCoordinator(ShardNodeRepository shardNodeRepository, TransactionTemplate transactionTemplate,
+                            @Value("${sensors.shard.enabled:false}") boolean enabled,
+                            @Value("${sensors.shard.node-id:}") String nodeId,
+                            @Value("${sensors.shard.heartbeat-ms:5000}") long heartbeatInterval,
+                            @Value("${sensors.shard.lease-ms:15000}") long lease) {
+        this.shardNodeRepository = shardNodeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.nodeId = nodeId == null || nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.lease = lease;
+        this.lastRenewed = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(lease);
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(ExecutionMode.platformThreads("shard-heartbeat"));
+        if (enabled) heartbeat.scheduleWithFixedDelay(this::heartbeat, 0, heartbeatInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean owns(int sensorId) {
+        return !enabled || nodeId.equals(ownerOf(sensorId));
+    }
+
+    /**
+     * Returns the member that owns {@code sensorId}, or null while this node is not a member.
+     */
+    public String ownerOf(int sensorId) {
+        Membership current = membership;
+        String owner = null;
+        long best = 0;
+        for (int i = 0; i < current.nodes.length; i++) {
+            long score = mix(current.hashes[i] ^ (sensorId * 0x9E3779B97F4A7C15L));
+            if (owner == null || Long.compareUnsigned(score, best) > 0) {
+                owner = current.nodes[i];
+                best = score;
+            }
+        }
+        return owner;
+    }
+
+    public List<String> getMembers() {
+        return List.of(membership.nodes);
+    }
+
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void setActiveSensors(IntSupplier activeSensors) {
+        this.activeSensors = activeSensors;
+    }
+
+    public ShardStatusDTO getStatus() {
+        ShardStatusDTO status = new ShardStatusDTO();
+        status.setEnabled(enabled);
+        status.setNodeId(nodeId);
+        if (!enabled) return status;
+
+        long liveSince = shardNodeRepository.currentTimeMillis() - lease;
+        List<ShardNodeDTO> nodes = new ArrayList<>();
+        for (ShardNode node : shardNodeRepository.findAllByOrderByNodeId()) {
+            ShardNodeDTO dto = new ShardNodeDTO();
+            dto.setNodeId(node.getNodeId());
+            dto.setStartedAt(node.getStartedAt());
+            dto.setHeartbeatAt(node.getHeartbeatAt());
+            dto.setActiveSensors(node.getActiveSensors());
+            dto.setLive(node.getHeartbeatAt() >= liveSince);
+            dto.setSelf(nodeId.equals(node.getNodeId()));
+            nodes.add(dto);
+        }
+        status.setNodes(nodes);
+        return status;
+    }
+
+    /**
+     * Renews this node's lease and reloads the members, notifying the listeners if they changed.
+     */
+    public synchronized void heartbeat() {
+        long renewing = System.nanoTime();
+        List<String> members;
+        try {
+            long now = shardNodeRepository.currentTimeMillis();
+            ShardNode node = new ShardNode();
+            node.setNodeId(nodeId);
+            node.setStartedAt(startedAt);
+            node.setHeartbeatAt(now);
+            node.setActiveSensors(activeSensors.getAsInt());
+            shardNodeRepository.save(node);
+            lastRenewed = renewing;
+
+            members = new ArrayList<>();
+            for (ShardNode member : shardNodeRepository.findByHeartbeatAtGreaterThanEqualOrderByNodeId(now - lease)) members.add(member.getNodeId());
+            transactionTemplate.executeWithoutResult(transaction -> shardNodeRepository.deleteByHeartbeatAtLessThan(now - 20 * lease));
+        } catch (RuntimeException e) {
+            log.warn("cannot renew the lease of node {}: {}", nodeId, e.getMessage());
+            if (renewing - lastRenewed < TimeUnit.MILLISECONDS.toNanos(lease)) return;
+            members = List.of();
+        }
+        update(members);
+    }
+
+    @PreDestroy
+    public void leave() {
+        heartbeat.shutdownNow();
+        if (!enabled) return;
+        try {
+            shardNodeRepository.deleteById(nodeId);
+        } catch (RuntimeException e) {
+            log.warn("cannot remove the lease of node {}, the others take its sensors over after {} ms: {}", nodeId, lease, e.getMessage());
+        }
+    }
+
+    private void update(List<String> members) {
+        if (members.equals(List.of(membership.nodes))) return;
+
+        String[] nodes = members.toArray(new String[0]);
+        long[] hashes = new long[nodes.length];
+        for (int i = 0; i < nodes.length; i++) hashes[i] = hash(nodes[i]);
+        membership = new Membership(nodes, hashes);
+        log.info("node {} sees {} members: {}", nodeId, nodes.length, members);
+
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                log.warn("shard listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static long hash(String nodeId) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : nodeId.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+
+    private static String defaultNodeId() {
+        return ManagementFactory.getRuntimeMXBean().getName() + "-" + Integer.toHexString(ThreadLocalRandom.current().nextInt());
+    }
+
+    private record Membership(String[] nodes, long[] hashes) {
+    }
+}
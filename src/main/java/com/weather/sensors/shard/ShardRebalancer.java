@@ -0,0 +1,70 @@
+package com.weather.sensors.shard;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.weather.sensors.dto.ActivationResultDTO;
+import com.weather.sensors.services.ExecutionMode;
+import com.weather.sensors.services.MeasurementRunManager;
+import com.weather.sensors.services.SensorService;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Moves sensors when the shard membership changes: stops the sensors this node no longer owns and, if the node
+ * is measuring (or {@code sensors.shard.auto-activate} is set), activates the ones it gained. Rebalancing runs
+ * off the heartbeat thread, so a long activation cannot let the lease lapse; changes arriving meanwhile are
+ * folded into one more pass.
+ */
+@Component
+public class ShardRebalancer {
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private final ShardCoordinator shardCoordinator;
+    private final SensorService sensorService;
+    private final MeasurementRunManager measurementRunManager;
+    private final boolean autoActivate;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(ExecutionMode.platformThreads("shard-rebalance"));
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    public ShardRebalancer(ShardCoordinator shardCoordinator, SensorService sensorService, MeasurementRunManager measurementRunManager,
+                           @Value("${sensors.shard.auto-activate:false}") boolean autoActivate) {
+        this.shardCoordinator = shardCoordinator;
+        this.sensorService = sensorService;
+        this.measurementRunManager = measurementRunManager;
+        this.autoActivate = autoActivate;
+        shardCoordinator.setActiveSensors(measurementRunManager::getActiveCount);
+        shardCoordinator.addListener(this::requestRebalance);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void requestRebalance() {
+        if (pending.compareAndSet(false, true)) executor.execute(this::rebalance);
+    }
+
+    private void rebalance() {
+        pending.set(false);
+        int released = measurementRunManager.deactivateIf(sensorId -> !shardCoordinator.owns(sensorId));
+        if (released > 0) log.info("node {} released {} sensors to other nodes", shardCoordinator.getNodeId(), released);
+        if (!autoActivate && !measurementRunManager.isMeasuring()) return;
+
+        try {
+            ActivationResultDTO result = sensorService.activateOwned();
+            if (result.getActivated() > 0 || !result.getFailures().isEmpty()) {
+                log.info("node {} took over {} sensors, {} failed to activate", shardCoordinator.getNodeId(), result.getActivated(), result.getFailures().size());
+            }
+        } catch (RuntimeException e) {
+            log.warn("node {} cannot activate its sensors: {}", shardCoordinator.getNodeId(), e.getMessage());
+        }
+    }
+}
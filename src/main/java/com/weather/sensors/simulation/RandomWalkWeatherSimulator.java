@@ -0,0 +1,149 @@
+package com.weather.sensors.simulation;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The original sensor model: temperature is a bounded random walk rounded to {@value #ACCURACY} decimals, rain is a
+ * two-state Markov chain. State lives in structure-of-arrays {@link SlotPages} (temperatures in a {@code double[]},
+ * rain in a bit set), so growing the simulator does not disturb concurrent readers. Each slot draws from its own
+ * SplitMix64 stream, derived from the seed and the slot number: there is no shared generator to contend on, and a
+ * seeded simulator replays the same readings per slot.
+ */
+public class RandomWalkWeatherSimulator implements WeatherSimulator {
+    private static final int MIN_TEMP = -40;
+    private static final int MAX_TEMP = +40;
+    private static final int ACCURACY = 2;
+    private static final int TEMP_STEP = 8;
+    private static final double CHANCE_CLEAR = 0.8;
+    private static final double CHANCE_RAIN_CONTINUES = 0.7;
+    private static final double SCALE = Math.pow(10, ACCURACY);
+
+    private static final int PAGE_SIZE = SlotPages.PAGE_SIZE;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final long seed;
+    private final AtomicInteger activeSlots = new AtomicInteger();
+
+    private final SlotPages<Page> pages = new SlotPages<>(Page::new, Page[]::new);
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+    private int nextSlot;
+
+    public RandomWalkWeatherSimulator() {
+        this(ThreadLocalRandom.current().nextLong());
+    }
+
+    public RandomWalkWeatherSimulator(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public synchronized int register() {
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : nextSlot++;
+        Page page = pages.page(slot);
+        int index = SlotPages.index(slot);
+
+        page.temperature[index] = Double.NaN;
+        page.rng[index] = mix64(seed + slot * GOLDEN_GAMMA);
+        clearBit(page.raining, index);
+        setBit(page.active, index);
+        activeSlots.incrementAndGet();
+        return slot;
+    }
+
+    @Override
+    public synchronized void release(int slot) {
+        Page page = pages.pageIfAllocated(slot);
+        if (page == null || !clearBit(page.active, SlotPages.index(slot))) return;
+
+        if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        freeSlots[freeCount++] = slot;
+        activeSlots.decrementAndGet();
+    }
+
+    @Override
+    public void advance(int slot) {
+        Page page = pages.page(slot);
+        int index = SlotPages.index(slot);
+
+        long state = page.rng[index] + GOLDEN_GAMMA;
+        double temperatureDraw = unit(mix64(state));
+        state += GOLDEN_GAMMA;
+        double rainDraw = unit(mix64(state));
+        page.rng[index] = state;
+
+        double previous = page.temperature[index];
+        page.temperature[index] = Double.isNaN(previous)
+                ? initialTemperature(temperatureDraw)
+                : nextTemperature(previous, temperatureDraw);
+
+        int word = index >>> 6;
+        long mask = 1L << index;
+        long bits;
+        long updated;
+        do {
+            bits = page.raining.get(word);
+            boolean raining = (bits & mask) != 0 ? rainDraw < CHANCE_RAIN_CONTINUES : rainDraw > CHANCE_CLEAR;
+            updated = raining ? bits | mask : bits & ~mask;
+        } while (!page.raining.compareAndSet(word, bits, updated));
+    }
+
+    @Override
+    public double temperature(int slot) {
+        return pages.page(slot).temperature[SlotPages.index(slot)];
+    }
+
+    @Override
+    public boolean raining(int slot) {
+        int index = SlotPages.index(slot);
+        return (pages.page(slot).raining.get(index >>> 6) & 1L << index) != 0;
+    }
+
+    @Override
+    public int activeSlots() {
+        return activeSlots.get();
+    }
+
+    // "+ 0.0" turns the -0.0 that Math.ceil yields for small negative temperatures into 0.0
+    private static double initialTemperature(double draw) {
+        return Math.ceil((MIN_TEMP + draw * (MAX_TEMP - MIN_TEMP)) * SCALE) / SCALE + 0.0;
+    }
+
+    private static double nextTemperature(double previous, double draw) {
+        double rounded = Math.ceil((previous + draw * TEMP_STEP * 2 - TEMP_STEP) * SCALE) / SCALE + 0.0;
+        return Math.max(MIN_TEMP, Math.min(MAX_TEMP, rounded));
+    }
+
+    private static double unit(long random) {
+        return (random >>> 11) * 0x1.0p-53;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static void setBit(AtomicLongArray bits, int index) {
+        bits.getAndUpdate(index >>> 6, word -> word | 1L << index);
+    }
+
+    private static boolean clearBit(AtomicLongArray bits, int index) {
+        long mask = 1L << index;
+        return (bits.getAndUpdate(index >>> 6, word -> word & ~mask) & mask) != 0;
+    }
+
+    private static final class Page {
+        final double[] temperature = new double[PAGE_SIZE];
+        final long[] rng = new long[PAGE_SIZE];
+        final AtomicLongArray raining = new AtomicLongArray(PAGE_SIZE / 64);
+        final AtomicLongArray active = new AtomicLongArray(PAGE_SIZE / 64);
+
+        Page() {
+            Arrays.fill(temperature, Double.NaN);
+        }
+    }
+}
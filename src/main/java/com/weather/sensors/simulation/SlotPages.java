@@ -0,0 +1,66 @@
+package com.weather.sensors.simulation;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Per-slot state kept in pages of {@value #PAGE_SIZE} simulation slots, each page usually a structure of arrays.
+ * Pages are allocated on first use and never moved or freed, so a reader holding a page keeps seeing the same arrays
+ * while the table grows, and growing only takes a lock when a slot falls beyond the allocated pages.
+ */
+public final class SlotPages<P> {
+    public static final int PAGE_BITS = 12;
+    public static final int PAGE_SIZE = 1 << PAGE_BITS;
+    public static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final Supplier<P> newPage;
+    private volatile P[] pages;
+
+    public SlotPages(Supplier<P> newPage, IntFunction<P[]> newArray) {
+        this.newPage = newPage;
+        this.pages = newArray.apply(0);
+    }
+
+    /**
+     * The position of {@code slot} within its page.
+     */
+    public static int index(int slot) {
+        return slot & PAGE_MASK;
+    }
+
+    /**
+     * Returns the page of {@code slot}, allocating it and any page before it first.
+     */
+    public P page(int slot) {
+        int pageIndex = slot >>> PAGE_BITS;
+        P[] current = pages;
+        if (pageIndex < current.length) return current[pageIndex];
+        synchronized (this) {
+            current = pages;
+            if (pageIndex >= current.length) {
+                P[] grown = Arrays.copyOf(current, pageIndex + 1);
+                for (int i = current.length; i < grown.length; i++) grown[i] = newPage.get();
+                pages = grown;
+                current = grown;
+            }
+            return current[pageIndex];
+        }
+    }
+
+    /**
+     * Returns the page of {@code slot}, or null if it was never allocated.
+     */
+    public P pageIfAllocated(int slot) {
+        int pageIndex = slot >>> PAGE_BITS;
+        P[] current = pages;
+        return slot >= 0 && pageIndex < current.length ? current[pageIndex] : null;
+    }
+
+    /**
+     * The pages allocated so far, in slot order.
+     */
+    public P[] pages() {
+        return pages;
+    }
+}
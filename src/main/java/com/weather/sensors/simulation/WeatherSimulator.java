@@ -0,0 +1,22 @@
+package com.weather.sensors.simulation;
+
+/**
+ * Produces the readings of simulated sensors. Every active sensor owns a slot; the simulator keeps the state of
+ * all slots itself, so a sensor needs no weather object of its own.
+ *
+ * <p>{@link #advance(int)} may be called concurrently for different slots.
+ */
+public interface WeatherSimulator {
+
+    int register();
+
+    void release(int slot);
+
+    void advance(int slot);
+
+    double temperature(int slot);
+
+    boolean raining(int slot);
+
+    int activeSlots();
+}
@@ -0,0 +1,110 @@
+package com.weather.sensors.transport;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Non-blocking transport on the JDK {@link HttpClient}: one client keeps pooled keep-alive connections per
+ * measurements host. It speaks HTTP/1.1 like the RestTemplate client; {@code http2} negotiates HTTP/2 instead, which
+ * over plain http means an h2c upgrade attempt on every new connection. At most {@code max-in-flight} posts are
+ * outstanding; beyond that {@link #post} blocks the measurement worker, which in turn makes the scheduler skip ticks.
+ */
+@Component
+@ConditionalOnProperty(name = "sensors.transport.type", havingValue = "http-client")
+public class HttpClientTransport implements MeasurementTransport {
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Duration readTimeout;
+    private final Semaphore inFlight;
+
+    public HttpClientTransport(ObjectMapper objectMapper,
+                               @Value("${sensors.transport.connect-timeout-ms:2000}") long connectTimeout,
+                               @Value("${sensors.transport.read-timeout-ms:5000}") long readTimeout,
+                               @Value("${sensors.transport.http2:false}") boolean http2,
+                               @Value("${sensors.transport.max-in-flight:1024}") int maxInFlight) {
+        this.objectMapper = objectMapper;
+        this.readTimeout = Duration.ofMillis(readTimeout);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.httpClient = HttpClient.newBuilder()
+                .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeout))
+                .build();
+    }
+
+    @Override
+    public CompletableFuture<Void> post(String url, Object body) {
+        try {
+            return post(url, body instanceof byte[] json ? json : objectMapper.writeValueAsBytes(body), MediaType.APPLICATION_JSON);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(new ResourceAccessException("cannot build request to " + url + ": " + e.getMessage()));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> post(String url, byte[] body, MediaType contentType) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(readTimeout)
+                    .header(HttpHeaders.CONTENT_TYPE, contentType.toString())
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(new ResourceAccessException("cannot build request to " + url + ": " + e.getMessage()));
+        }
+
+        if (!acquire()) return CompletableFuture.failedFuture(new ResourceAccessException("interrupted while waiting to send to " + url));
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .whenComplete((response, error) -> inFlight.release())
+                .handle((response, error) -> {
+                    if (error != null) throw new ResourceAccessException("I/O error on POST request for \"" + url + "\": " + error.getMessage());
+                    checkStatus(response);
+                    return null;
+                });
+    }
+
+    public int getAvailableSlots() {
+        return inFlight.availablePermits();
+    }
+
+    private boolean acquire() {
+        try {
+            inFlight.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void checkStatus(HttpResponse<byte[]> response) {
+        HttpStatusCode status = HttpStatusCode.valueOf(response.statusCode());
+        if (!status.isError()) return;
+
+        HttpHeaders headers = new HttpHeaders();
+        response.headers().map().forEach(headers::addAll);
+        if (status.is4xxClientError()) {
+            throw HttpClientErrorException.create(status, "", headers, response.body(), StandardCharsets.UTF_8);
+        }
+        throw HttpServerErrorException.create(status, "", headers, response.body(), StandardCharsets.UTF_8);
+    }
+}
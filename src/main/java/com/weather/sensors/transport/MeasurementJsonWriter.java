@@ -0,0 +1,225 @@
+package com.weather.sensors.transport;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.weather.sensors.dto.MeasurementDTO;
+import com.weather.sensors.models.Sensor;
+
+/**
+ * Hand-written JSON encoder for the measurement hot path. Each thread owns one growable buffer that is reset on
+ * {@link #forCurrentThread()}, so encoding a reading does not allocate once the buffer has grown to its working size.
+ * The output matches what Jackson produces for {@link com.weather.sensors.dto.SensorDTO} and {@link MeasurementDTO}.
+ */
+public final class MeasurementJsonWriter {
+    private static final ThreadLocal<MeasurementJsonWriter> WRITERS = ThreadLocal.withInitial(MeasurementJsonWriter::new);
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private byte[] buffer = new byte[512];
+    private int length;
+    private int elements = -1;
+
+    private MeasurementJsonWriter() {
+    }
+
+    public static MeasurementJsonWriter forCurrentThread() {
+        MeasurementJsonWriter writer = WRITERS.get();
+        writer.length = 0;
+        writer.elements = -1;
+        return writer;
+    }
+
+    /**
+     * Writes the sensor in the {@code SensorDTO} layout expected by {@code /measurements/add}, carrying the given reading.
+     */
+    public MeasurementJsonWriter writeSensor(Sensor sensor, double temperature, boolean raining) {
+        ascii("{\"id\":");
+        number(sensor.getId());
+        ascii(",\"name\":");
+        string(sensor.getName());
+        ascii(",\"description\":");
+        string(sensor.getDescription());
+        ascii(",\"token\":");
+        string(sensor.getToken());
+        ascii(",\"serverURL\":");
+        string(sensor.getServerURL());
+        ascii(",\"weatherData\":{\"temperature\":");
+        number(temperature);
+        ascii(",\"raining\":");
+        bool(raining);
+        ascii("},\"sessionId\":");
+        number(sensor.getSessionId());
+        ascii(",\"measureInterval\":");
+        if (sensor.getMeasureInterval() == null) raw(NULL);
+        else number(sensor.getMeasureInterval());
+        ascii(",\"deadbandTemperature\":");
+        if (sensor.getDeadbandTemperature() == null) raw(NULL);
+        else number(sensor.getDeadbandTemperature());
+        ascii(",\"registered\":");
+        bool(sensor.isRegistered());
+        put('}');
+        return this;
+    }
+
+    public MeasurementJsonWriter writeMeasurements(List<MeasurementDTO> measurements) {
+        beginArray();
+        for (MeasurementDTO measurement : measurements) writeMeasurement(measurement);
+        return endArray();
+    }
+
+    /**
+     * Opens a JSON array; the measurements written until {@link #endArray()} become its elements.
+     */
+    public MeasurementJsonWriter beginArray() {
+        put('[');
+        elements = 0;
+        return this;
+    }
+
+    public MeasurementJsonWriter endArray() {
+        put(']');
+        elements = -1;
+        return this;
+    }
+
+    public MeasurementJsonWriter writeMeasurement(MeasurementDTO measurement) {
+        return writeMeasurement(measurement.getSensorId(), measurement.getSessionId(), measurement.getTemperature(), measurement.isRaining());
+    }
+
+    public MeasurementJsonWriter writeMeasurement(int sensorId, double sessionId, double temperature, boolean raining) {
+        if (elements > 0) put(',');
+        if (elements >= 0) elements++;
+        ascii("{\"sensorId\":");
+        number(sensorId);
+        ascii(",\"sessionId\":");
+        number(sessionId);
+        ascii(",\"temperature\":");
+        number(temperature);
+        ascii(",\"raining\":");
+        bool(raining);
+        put('}');
+        return this;
+    }
+
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private void ascii(String value) {
+        ensure(value.length());
+        for (int i = 0; i < value.length(); i++) buffer[length++] = (byte) value.charAt(i);
+    }
+
+    private void raw(byte[] value) {
+        ensure(value.length);
+        System.arraycopy(value, 0, buffer, length, value.length);
+        length += value.length;
+    }
+
+    private void bool(boolean value) {
+        raw(value ? TRUE : FALSE);
+    }
+
+    private void number(long value) {
+        if (value == Long.MIN_VALUE) {
+            ascii(Long.toString(value));
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int start = length;
+        do {
+            buffer[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            byte swap = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = swap;
+        }
+    }
+
+    /**
+     * Readings carry at most two decimals, which are written without going through {@link Double#toString}.
+     * Anything else falls back to it and produces the same text Jackson would.
+     */
+    private void number(double value) {
+        long hundredths = Math.round(value * 100);
+        if (Double.isFinite(value) && Math.abs(value) < 1e7 && hundredths / 100.0 == value && !(value == 0 && 1 / value < 0)) {
+            if (hundredths < 0) {
+                put('-');
+                hundredths = -hundredths;
+            }
+            number(hundredths / 100);
+            put('.');
+            long fraction = hundredths % 100;
+            put((byte) ('0' + fraction / 10));
+            if (fraction % 10 != 0) put((byte) ('0' + fraction % 10));
+            return;
+        }
+        ascii(Double.toString(value));
+    }
+
+    private void string(String value) {
+        if (value == null) {
+            raw(NULL);
+            return;
+        }
+        ensure(value.length() + 2);
+        buffer[length++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                put('\\');
+                put((byte) c);
+            } else if (c < 0x20) {
+                ascii("\\u00");
+                put(HEX[c >> 4]);
+                put(HEX[c & 0xF]);
+            } else if (c < 0x80) {
+                put((byte) c);
+            } else if (c < 0x800) {
+                put((byte) (0xC0 | c >> 6));
+                put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                put((byte) (0xF0 | codePoint >> 18));
+                put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                put((byte) (0x80 | codePoint & 0x3F));
+            } else {
+                put((byte) (0xE0 | c >> 12));
+                put((byte) (0x80 | c >> 6 & 0x3F));
+                put((byte) (0x80 | c & 0x3F));
+            }
+        }
+        put('"');
+    }
+
+    private void put(char c) {
+        put((byte) c);
+    }
+
+    private void put(byte b) {
+        ensure(1);
+        buffer[length++] = b;
+    }
+
+    private void ensure(int additional) {
+        if (length + additional > buffer.length) buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + additional));
+    }
+}
@@ -0,0 +1,32 @@
+package com.weather.sensors.transport;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Outbound path for measurement payloads. Failed posts complete exceptionally with Spring's
+ * {@link org.springframework.web.client.RestClientException} hierarchy whatever the implementation,
+ * so callers can react to e.g. {@code HttpClientErrorException.NotFound} uniformly.
+ * A {@code byte[]} body passed to {@link #post(String, Object)} is taken as already encoded JSON
+ * (see {@link MeasurementJsonWriter}); other encodings go through {@link #post(String, byte[], MediaType)}.
+ */
+public interface MeasurementTransport {
+
+    CompletableFuture<Void> post(String url, Object body);
+
+    default CompletableFuture<Void> post(String url, byte[] body, MediaType contentType) {
+        if (MediaType.APPLICATION_JSON.equals(contentType)) return post(url, (Object) body);
+        return CompletableFuture.failedFuture(new ResourceAccessException("transport cannot send " + contentType + " to " + url));
+    }
+
+    static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+}
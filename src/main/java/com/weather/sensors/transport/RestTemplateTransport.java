@@ -0,0 +1,49 @@
+package com.weather.sensors.transport;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Blocking transport: posts on the calling thread and returns an already completed future.
+ */
+@Component
+@ConditionalOnProperty(name = "sensors.transport.type", havingValue = "rest-template", matchIfMissing = true)
+public class RestTemplateTransport implements MeasurementTransport {
+    private static final HttpHeaders JSON_HEADERS = HttpHeaders.readOnlyHttpHeaders(headers(MediaType.APPLICATION_JSON));
+    private static final HttpHeaders BINARY_HEADERS = HttpHeaders.readOnlyHttpHeaders(headers(WireFormat.BINARY.getMediaType()));
+
+    private final RestTemplate restTemplate;
+
+    public RestTemplateTransport(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    @Override
+    public CompletableFuture<Void> post(String url, Object body) {
+        try {
+            restTemplate.postForLocation(url, body instanceof byte[] json ? new HttpEntity<>(json, JSON_HEADERS) : body);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> post(String url, byte[] body, MediaType contentType) {
+        HttpHeaders headers = MediaType.APPLICATION_JSON.equals(contentType) ? JSON_HEADERS
+                : WireFormat.BINARY.getMediaType().equals(contentType) ? BINARY_HEADERS : headers(contentType);
+        return post(url, new HttpEntity<>(body, headers));
+    }
+
+    private static HttpHeaders headers(MediaType contentType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+        return headers;
+    }
+}
@@ -0,0 +1,22 @@
+package com.weather.sensors.transport;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Encoding of measurement payloads: the {@code SensorDTO}/{@code MeasurementDTO} JSON every measurements server
+ * accepts, or the fixed-layout frame of {@link MeasurementFrameWriter}.
+ */
+public enum WireFormat {
+    JSON(MediaType.APPLICATION_JSON),
+    BINARY(MediaType.valueOf("application/vnd.weather.measurements.v1"));
+
+    private final MediaType mediaType;
+
+    WireFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+}
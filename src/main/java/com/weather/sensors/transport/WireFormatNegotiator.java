@@ -0,0 +1,44 @@
+package com.weather.sensors.transport;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+/**
+ * Chooses the payload encoding per measurements server. With {@code sensors.transport.encoding=binary} every server
+ * is sent {@link WireFormat#BINARY} frames until it answers 415 Unsupported Media Type; it is then remembered and gets
+ * JSON from then on, and the rejected payload is resent as JSON by the caller.
+ */
+@Component
+public class WireFormatNegotiator {
+    private static final Logger log = LoggerFactory.getLogger(WireFormatNegotiator.class);
+
+    private final WireFormat preferred;
+    private final Set<String> jsonOnly = ConcurrentHashMap.newKeySet();
+
+    public WireFormatNegotiator(@Value("${sensors.transport.encoding:json}") WireFormat preferred) {
+        this.preferred = preferred;
+    }
+
+    public WireFormat formatFor(String serverURL) {
+        return preferred == WireFormat.BINARY && !jsonOnly.contains(serverURL) ? WireFormat.BINARY : WireFormat.JSON;
+    }
+
+    /**
+     * Returns whether {@code error} is {@code serverURL} rejecting a binary payload, falling back to JSON for it if so.
+     */
+    public boolean rejectsBinary(String serverURL, Throwable error) {
+        if (!(MeasurementTransport.unwrap(error) instanceof HttpClientErrorException.UnsupportedMediaType)) return false;
+        if (jsonOnly.add(serverURL)) log.info("{} does not accept {}, falling back to JSON", serverURL, WireFormat.BINARY.getMediaType());
+        return true;
+    }
+
+    public int getJsonOnlyCount() {
+        return jsonOnly.size();
+    }
+}
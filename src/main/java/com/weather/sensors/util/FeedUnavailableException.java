@@ -0,0 +1,8 @@
+package com.weather.sensors.util;
+
+public class FeedUnavailableException extends RuntimeException {
+
+    public FeedUnavailableException(String message) {
+        super(message);
+    }
+}
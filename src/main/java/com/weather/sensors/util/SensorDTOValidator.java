@@ -8,14 +8,14 @@ import org.springframework.validation.Validator;
 
 import com.weather.sensors.dto.SensorDTO;
 import com.weather.sensors.models.Sensor;
-import com.weather.sensors.repositories.SensorsRepository;
+import com.weather.sensors.repositories.SensorCache;
 
 @Component
 public class SensorDTOValidator implements Validator {
-    private final SensorsRepository sensorRepository;
+    private final SensorCache sensorCache;
 
-    public SensorDTOValidator(SensorsRepository sensorRepository) {
-        this.sensorRepository = sensorRepository;
+    public SensorDTOValidator(SensorCache sensorCache) {
+        this.sensorCache = sensorCache;
     }
 
     @Override
@@ -27,7 +27,7 @@ public class SensorDTOValidator implements Validator {
     public void validate(Object target, Errors errors) {
         SensorDTO sensorDTO = (SensorDTO) target;
 
-        Optional<Sensor> sensorOptional = sensorRepository.findByName(sensorDTO.getName());
+        Optional<Sensor> sensorOptional = sensorCache.findByName(sensorDTO.getName());
         if (sensorOptional.isPresent()) errors.rejectValue("name", null, "Sensor with this name already exists: " + sensorDTO.getName());
 
         
@@ -0,0 +1,64 @@
+package com.weather.sensors.util;
+
+import org.springframework.stereotype.Component;
+
+import com.weather.sensors.dto.MeasurementDTO;
+import com.weather.sensors.dto.SensorDTO;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.models.WeatherData;
+
+/**
+ * Hand-written replacement for the reflective ModelMapper: plain field copies, no per-call type lookups.
+ */
+@Component
+public class SensorMapper {
+
+    public SensorDTO toDTO(Sensor sensor) {
+        SensorDTO sensorDTO = new SensorDTO();
+        sensorDTO.setId(sensor.getId());
+        sensorDTO.setName(sensor.getName());
+        sensorDTO.setDescription(sensor.getDescription());
+        sensorDTO.setToken(sensor.getToken());
+        sensorDTO.setServerURL(sensor.getServerURL());
+        sensorDTO.setRegistered(sensor.isRegistered());
+        sensorDTO.setWeatherData(copy(sensor.getWeatherData()));
+        sensorDTO.setSessionId(sensor.getSessionId());
+        sensorDTO.setMeasureInterval(sensor.getMeasureInterval());
+        sensorDTO.setDeadbandTemperature(sensor.getDeadbandTemperature());
+        return sensorDTO;
+    }
+
+    public Sensor toSensor(SensorDTO sensorDTO) {
+        Sensor sensor = new Sensor();
+        sensor.setId(sensorDTO.getId());
+        sensor.setName(sensorDTO.getName());
+        sensor.setDescription(sensorDTO.getDescription());
+        sensor.setToken(sensorDTO.getToken());
+        sensor.setServerURL(sensorDTO.getServerURL());
+        sensor.setRegistered(sensorDTO.isRegistered());
+        sensor.setWeatherData(copy(sensorDTO.getWeatherData()));
+        sensor.setSessionId(sensorDTO.getSessionId());
+        sensor.setMeasureInterval(sensorDTO.getMeasureInterval());
+        sensor.setDeadbandTemperature(sensorDTO.getDeadbandTemperature());
+        return sensor;
+    }
+
+    /**
+     * Fills {@code target} with a reading of the sensor so that callers can reuse one record per sensor or thread.
+     */
+    public MeasurementDTO toMeasurement(Sensor sensor, double temperature, boolean raining, MeasurementDTO target) {
+        target.setSensorId(sensor.getId());
+        target.setSessionId(sensor.getSessionId());
+        target.setTemperature(temperature);
+        target.setRaining(raining);
+        return target;
+    }
+
+    private static WeatherData copy(WeatherData weatherData) {
+        if (weatherData == null) return null;
+        WeatherData copy = new WeatherData();
+        copy.setTemperature(weatherData.getTemperature());
+        copy.setRaining(weatherData.isRaining());
+        return copy;
+    }
+}
@@ -8,15 +8,15 @@ import org.springframework.validation.Validator;
 
 import com.weather.sensors.dto.SensorDTO;
 import com.weather.sensors.models.Sensor;
-import com.weather.sensors.repositories.SensorsRepository;
+import com.weather.sensors.repositories.SensorCache;
 
 @Component
 public class SensorToRegistrateValidator implements Validator {
-    private final SensorsRepository sensorRepository;
+    private final SensorCache sensorCache;
 
     
-    public SensorToRegistrateValidator(SensorsRepository sensorRepository) {
-        this.sensorRepository = sensorRepository;
+    public SensorToRegistrateValidator(SensorCache sensorCache) {
+        this.sensorCache = sensorCache;
     }
 
     @Override
@@ -38,11 +38,11 @@ public class SensorToRegistrateValidator implements Validator {
         
         Optional<Sensor> sensor;
         if (id != 0) {
-            sensor = sensorRepository.findById(id);
+            sensor = sensorCache.findById(id);
             if (sensor.isEmpty()) errors.rejectValue("id", null, "Sensor was not found"); 
             return;
         } else {
-            sensor = sensorRepository.findByName(name);
+            sensor = sensorCache.findByName(name);
             if (sensor.isEmpty()) errors.rejectValue("id", null, "Sensor was not found");
             return;
         }
@@ -0,0 +1,9 @@
+-- the sensor table as it was before schema changes were versioned; existing databases are baselined at this version
+CREATE TABLE sensor (
+    id            serial PRIMARY KEY,
+    name          varchar(255),
+    description   varchar(255),
+    token         varchar(255),
+    server_url    varchar(255),
+    is_registered boolean NOT NULL DEFAULT false
+);
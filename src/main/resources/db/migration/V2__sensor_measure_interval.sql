@@ -0,0 +1,2 @@
+-- per-sensor measurement interval in milliseconds; null uses sensors.measure.interval-ms
+ALTER TABLE sensor ADD COLUMN measure_interval integer;
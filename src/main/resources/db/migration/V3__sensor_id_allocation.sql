@@ -0,0 +1,3 @@
+-- Sensor ids come from sensor_id_seq through Hibernate's pooled optimizer with allocationSize = 50, which expects
+-- the sequence to step by the same amount; each nextval then reserves the 50 ids below it
+ALTER SEQUENCE sensor_id_seq INCREMENT BY 50;
@@ -0,0 +1,5 @@
+-- keyset pages of registered sensors, overall and per server
+CREATE INDEX sensor_registered_id_idx ON sensor (is_registered, id);
+CREATE INDEX sensor_server_url_id_idx ON sensor (server_url, id);
+-- name lookups and name prefix filters (LIKE 'x%'), which a default-collation btree cannot serve
+CREATE INDEX sensor_name_idx ON sensor (name text_pattern_ops);
@@ -0,0 +1,8 @@
+-- shard membership leases; times are epoch milliseconds on the database's clock
+CREATE TABLE sensor_node (
+    node_id        varchar(255) PRIMARY KEY,
+    started_at     bigint       NOT NULL,
+    heartbeat_at   bigint       NOT NULL,
+    active_sensors integer      NOT NULL
+);
+CREATE INDEX sensor_node_heartbeat_at_idx ON sensor_node (heartbeat_at);
@@ -0,0 +1,2 @@
+-- per-sensor deadband in degrees; null uses sensors.deadband.temperature
+ALTER TABLE sensor ADD COLUMN deadband_temperature double precision;
@@ -0,0 +1,65 @@
+package com.weather.sensors;
+
+import com.weather.sensors.models.Sensor;
+
+/**
+ * Builds the sensors the tests work with: {@code sensor(7)} is sensor 7 named {@code sensor-7}, with no token, server or
+ * slot until one is set.
+ */
+public final class SensorBuilder {
+
+	private final Sensor sensor = new Sensor();
+
+	private SensorBuilder(int id) {
+		sensor.setId(id);
+		sensor.setName("sensor-" + id);
+	}
+
+	public static SensorBuilder sensor(int id) {
+		return new SensorBuilder(id);
+	}
+
+	public SensorBuilder name(String name) {
+		sensor.setName(name);
+		return this;
+	}
+
+	public SensorBuilder token(String token) {
+		sensor.setToken(token);
+		return this;
+	}
+
+	public SensorBuilder serverURL(String serverURL) {
+		sensor.setServerURL(serverURL);
+		return this;
+	}
+
+	public SensorBuilder registered() {
+		sensor.setRegistered(true);
+		return this;
+	}
+
+	public SensorBuilder sessionId(double sessionId) {
+		sensor.setSessionId(sessionId);
+		return this;
+	}
+
+	public SensorBuilder slot(int slot) {
+		sensor.setSimulationSlot(slot);
+		return this;
+	}
+
+	public SensorBuilder measureInterval(int measureInterval) {
+		sensor.setMeasureInterval(measureInterval);
+		return this;
+	}
+
+	public SensorBuilder deadbandTemperature(double deadbandTemperature) {
+		sensor.setDeadbandTemperature(deadbandTemperature);
+		return this;
+	}
+
+	public Sensor build() {
+		return sensor;
+	}
+}
@@ -3,7 +3,8 @@ package com.weather.sensors;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// no database in the test environment, so the migrations cannot run
+@SpringBootTest(properties = "spring.flyway.enabled=false")
 class SensorsApplicationTests {
 
 	@Test
@@ -0,0 +1,149 @@
+package com.weather.sensors.aggregation;
+
+import static com.weather.sensors.SensorBuilder.sensor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import com.weather.sensors.dto.AggregateDTO;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.services.ServerCircuitBreaker;
+import com.weather.sensors.services.ServerConcurrencyLimiter;
+import com.weather.sensors.transport.MeasurementTransport;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MeasurementAggregatorTests {
+
+	private static final String AGGREGATED = "http://aggregated:8080";
+	private static final String LEGACY = "http://legacy:8080";
+	private static final String REJECTING = "http://rejecting:8080";
+
+	private final Map<String, List<AggregateDTO>> posted = new ConcurrentHashMap<>();
+	private final AtomicInteger unavailable = new AtomicInteger();
+	private final AtomicBoolean legacyUpgraded = new AtomicBoolean();
+	private final AtomicInteger legacyPosts = new AtomicInteger();
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	@SuppressWarnings("unchecked")
+	private final MeasurementTransport transport = (url, body) -> {
+		if (url.startsWith(LEGACY)) {
+			legacyPosts.incrementAndGet();
+			if (!legacyUpgraded.get()) return CompletableFuture.failedFuture(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "", null, null, null));
+		}
+		if (url.startsWith(AGGREGATED) && unavailable.getAndDecrement() > 0) return CompletableFuture.failedFuture(HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE, "", null, null, null));
+		if (url.startsWith(REJECTING)) return CompletableFuture.failedFuture(HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "", null, null, null));
+		posted.computeIfAbsent(url, u -> new CopyOnWriteArrayList<>()).addAll((List<AggregateDTO>) body);
+		return CompletableFuture.completedFuture(null);
+	};
+	private final MeasurementAggregator aggregator = new MeasurementAggregator(transport,
+			new ServerConcurrencyLimiter(new ServerCircuitBreaker(true, 5, 10000, 1, new SimpleMeterRegistry()), 4),
+			true, 1000, List.of(AGGREGATED, LEGACY, REJECTING), 60_000, 1000, 1000, 4000, registry);
+
+	@AfterEach
+	void tearDown() {
+		aggregator.shutdown();
+	}
+
+	@Test
+	void summarisesEachWindowOfEachSensor() {
+		Sensor roof = sensor(1).sessionId(10).slot(0).serverURL(AGGREGATED).build();
+		Sensor cellar = sensor(2).sessionId(20).slot(5000).serverURL(AGGREGATED).build();
+		double[] temperatures = {10.5, 12.25, 9.75, 11.5};
+		for (int i = 0; i < temperatures.length; i++) {
+			aggregator.add(roof, temperatures[i], i % 2 == 0, 10_000 + i * 250);
+			aggregator.add(cellar, -temperatures[i], false, 10_000 + i * 250);
+		}
+		aggregator.add(roof, 20, true, 11_100);
+		aggregator.closeWindows(11_500);
+		aggregator.post();
+
+		List<AggregateDTO> aggregates = posted.get(AGGREGATED + MeasurementAggregator.SEND_AGGREGATES_PATH);
+		assertEquals(2, aggregates.size());
+		AggregateDTO first = aggregates.stream().filter(a -> a.getSensorId() == 1).findFirst().orElseThrow();
+		assertEquals(10_000, first.getFrom());
+		assertEquals(11_000, first.getTo());
+		assertEquals(4, first.getCount());
+		assertEquals(9.75, first.getMinTemperature());
+		assertEquals(12.25, first.getMaxTemperature());
+		assertEquals(11.0, first.getMeanTemperature());
+		assertEquals(0.5, first.getRainingFraction());
+		assertEquals(0.0, aggregates.stream().filter(a -> a.getSensorId() == 2).findFirst().orElseThrow().getRainingFraction());
+
+		aggregator.release(roof);
+		aggregator.post();
+		AggregateDTO partial = aggregates.get(2);
+		assertEquals(11_000, partial.getFrom());
+		assertEquals(1, partial.getCount());
+		assertEquals(20.0, partial.getMeanTemperature());
+		assertEquals(1.0, partial.getRainingFraction());
+	}
+
+	@Test
+	void unlistedServersAndServersWithoutAggregatesStayRaw() {
+		Sensor legacy = sensor(3).sessionId(30).slot(0).serverURL(LEGACY).build();
+		assertTrue(aggregator.aggregates(legacy));
+		assertFalse(aggregator.aggregates(sensor(4).sessionId(40).slot(1).serverURL("http://other:8080").build()));
+
+		aggregator.add(legacy, 1, false, 1000);
+		aggregator.add(sensor(5).sessionId(50).slot(2).serverURL(LEGACY).build(), 2, false, 1000);
+		aggregator.flush();
+
+		assertFalse(aggregator.aggregates(legacy));
+		assertEquals(0, aggregator.getPendingCount());
+		assertEquals(2, registry.get("sensors.aggregation.dropped").functionCounter().count());
+
+		aggregator.flush();
+		aggregator.probe(System.currentTimeMillis());
+		assertEquals(1, legacyPosts.get());
+	}
+
+	@Test
+	void serversWithoutAggregatesAreProbedAgainOnABackoff() {
+		Sensor legacy = sensor(3).sessionId(30).slot(0).serverURL(LEGACY).build();
+		aggregator.add(legacy, 1, false, 1000);
+		aggregator.flush();
+		assertFalse(aggregator.aggregates(legacy));
+
+		aggregator.probe(System.currentTimeMillis() + 1000);
+		assertEquals(2, legacyPosts.get());
+		assertFalse(aggregator.aggregates(legacy));
+		aggregator.probe(System.currentTimeMillis() + 500);
+		assertEquals(2, legacyPosts.get());
+
+		legacyUpgraded.set(true);
+		aggregator.probe(System.currentTimeMillis() + 2000);
+		assertEquals(3, legacyPosts.get());
+		assertTrue(aggregator.aggregates(legacy));
+	}
+
+	@Test
+	void aggregatesOfAFailedPostAreRetriedUnlessTheServerRejectsThem() {
+		Sensor roof = sensor(1).sessionId(10).slot(0).serverURL(AGGREGATED).build();
+		aggregator.add(roof, 10, false, 1000);
+		aggregator.add(sensor(2).sessionId(20).slot(1).serverURL(REJECTING).build(), 10, false, 1000);
+		unavailable.set(1);
+		aggregator.flush();
+
+		assertEquals(1, aggregator.getPendingCount());
+		assertNull(posted.get(AGGREGATED + MeasurementAggregator.SEND_AGGREGATES_PATH));
+
+		aggregator.post();
+		assertEquals(0, aggregator.getPendingCount());
+		assertEquals(1, posted.get(AGGREGATED + MeasurementAggregator.SEND_AGGREGATES_PATH).size());
+	}
+}
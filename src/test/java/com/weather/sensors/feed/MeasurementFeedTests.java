@@ -0,0 +1,89 @@
+package com.weather.sensors.feed;
+
+import static com.weather.sensors.SensorBuilder.sensor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.weather.sensors.services.ExecutionMode;
+import com.weather.sensors.util.FeedUnavailableException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MeasurementFeedTests {
+
+	private final MeasurementFeed feed = new MeasurementFeed(8, 60_000, 60_000, 0, 10, 1, ExecutionMode.PLATFORM, new SimpleMeterRegistry());
+
+	@AfterEach
+	void tearDown() {
+		feed.shutdown();
+	}
+
+	@Test
+	void sendsOnlyTheLatestReadingOfEachSubscribedSensor() throws InterruptedException {
+		RecordingEmitter emitter = new RecordingEmitter();
+		feed.subscribe(emitter, Set.of(1), Set.of("attic"), null);
+
+		feed.publish(sensor(1).name("roof").build(), 1.0, false);
+		feed.publish(sensor(2).name("cellar").build(), 5.0, false);
+		feed.publish(sensor(3).name("attic").build(), 7.0, true);
+		feed.publish(sensor(1).name("roof").build(), 2.0, true);
+		feed.dispatch();
+
+		List<String> events = emitter.await(2);
+		assertEquals(2, events.size(), events.toString());
+		assertTrue(events.get(0).startsWith("id:2\n") && events.get(0).contains("\"sensorId\":3,\"name\":\"attic\""), events.get(0));
+		assertTrue(events.get(1).startsWith("id:3\n") && events.get(1).contains("\"sensorId\":1,\"name\":\"roof\",\"temperature\":2.0,\"raining\":true"), events.get(1));
+	}
+
+	@Test
+	void subscribersBeyondTheLimitAreRefused() {
+		for (int i = 0; i < 10; i++) feed.subscribe(new RecordingEmitter(), Set.of(), Set.of(), null);
+
+		assertThrows(FeedUnavailableException.class, () -> feed.subscribe(new RecordingEmitter(), Set.of(), Set.of(), null));
+		assertEquals(10, feed.getSubscriberCount());
+	}
+
+	@Test
+	void slowSubscriberSkipsOverwrittenReadings() throws InterruptedException {
+		RecordingEmitter emitter = new RecordingEmitter();
+		feed.subscribe(emitter, Set.of(), Set.of(), null);
+
+		for (int i = 0; i < 20; i++) feed.publish(sensor(i).name("sensor-" + i).build(), i, false);
+		feed.dispatch();
+
+		List<String> events = emitter.await(7);
+		assertEquals(7, events.size(), events.toString());
+		assertTrue(events.get(0).contains("\"sensorId\":13,"), events.get(0));
+		assertEquals(13, feed.getDropped());
+	}
+
+
+	static class RecordingEmitter extends SseEmitter {
+		private final List<String> events = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			StringBuilder event = new StringBuilder();
+			for (DataWithMediaType data : builder.build()) event.append(data.getData());
+			events.add(event.toString());
+		}
+
+		List<String> await(int count) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + 2000;
+			while (events.size() < count && System.currentTimeMillis() < deadline) Thread.sleep(5);
+			Thread.sleep(50);
+			return events;
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package com.weather.sensors.history;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.weather.sensors.dto.AggregateDTO;
+import com.weather.sensors.dto.HistoryDTO;
+import com.weather.sensors.dto.HistoryPointDTO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MeasurementHistoryTests {
+
+	private static final long HOUR = 3_600_000;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void readingsSurviveRestartAndCompress() {
+		double[] temperatures = new double[3000];
+		Random random = new Random(7);
+		double temperature = 12;
+		for (int i = 0; i < temperatures.length; i++) {
+			temperature = Math.round((temperature + random.nextGaussian() * 0.2) * 100) / 100.0;
+			temperatures[i] = temperature;
+		}
+
+		MeasurementHistory history = history();
+		for (int i = 0; i < temperatures.length; i++) {
+			history.record(1, HOUR + i * 1000L, temperatures[i], i % 10 < 3);
+			history.record(2, HOUR + i * 1000L, 0, false);
+		}
+		history.close();
+		long bytes = history.getStoredBytes();
+		assertTrue(bytes < temperatures.length * 2 * 8, "stored " + bytes + " bytes for " + 2 * temperatures.length + " readings");
+
+		MeasurementHistory reopened = history();
+		try {
+			HistoryDTO result = reopened.query(1, HOUR + 1500, HOUR + 3_000_000, null);
+			List<HistoryPointDTO> points = result.getPoints();
+			assertEquals(2998, points.size());
+			assertFalse(result.isTruncated());
+			for (int i = 0; i < points.size(); i++) {
+				HistoryPointDTO point = points.get(i);
+				assertEquals(HOUR + (i + 2) * 1000L, point.getTimestamp());
+				assertEquals(temperatures[i + 2], point.getTemperature());
+				assertEquals((i + 2) % 10 < 3, point.isRaining());
+			}
+		} finally {
+			reopened.close();
+		}
+	}
+
+	@Test
+	void bucketsSpanPartitionsAndOpenBlocks() {
+		MeasurementHistory history = history();
+		try {
+			for (int i = 0; i < 7200; i++) history.record(5, HOUR / 2 + i * 1000L, i % 60, i % 4 == 0);
+
+			HistoryDTO result = history.query(5, HOUR / 2, HOUR / 2 + 7_200_000, 1_800_000L);
+			List<AggregateDTO> buckets = result.getBuckets();
+			assertEquals(4, buckets.size());
+			for (AggregateDTO bucket : buckets) {
+				assertEquals(1800, bucket.getCount());
+				assertEquals(0.0, bucket.getMinTemperature());
+				assertEquals(59.0, bucket.getMaxTemperature());
+				assertEquals(29.5, bucket.getMeanTemperature());
+				assertEquals(0.25, bucket.getRainingFraction());
+			}
+			assertEquals(HOUR / 2 + 5_400_000, buckets.get(3).getFrom());
+		} finally {
+			history.close();
+		}
+	}
+
+	@Test
+	void partitionsPastRetentionAreDropped() throws Exception {
+		MeasurementHistory history = history();
+		try {
+			long now = System.currentTimeMillis();
+			history.record(1, now - 10 * HOUR, 1, false);
+			history.record(1, now, 2, false);
+			history.close();
+			try (var partitions = Files.list(dir)) {
+				assertEquals(2, partitions.count());
+			}
+
+			history.maintain();
+			try (var partitions = Files.list(dir)) {
+				assertEquals(1, partitions.count());
+			}
+			assertEquals(1, history.query(1, now - 11 * HOUR, now + 1, null).getPoints().size());
+		} finally {
+			history.close();
+		}
+	}
+
+	private MeasurementHistory history() {
+		return new MeasurementHistory(true, dir, HOUR, 5 * HOUR, 256, 1 << 20, 60_000, 10_000, new SimpleMeterRegistry());
+	}
+}
@@ -0,0 +1,164 @@
+package com.weather.sensors.loadgen;
+
+import static com.weather.sensors.SensorBuilder.sensor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+
+import com.weather.sensors.dto.LoadRequestDTO;
+import com.weather.sensors.dto.LoadRunDTO;
+import com.weather.sensors.dto.ReplayRequestDTO;
+import com.weather.sensors.history.MeasurementHistory;
+import com.weather.sensors.services.ExecutionMode;
+import com.weather.sensors.services.MeasurementBatcher;
+import com.weather.sensors.services.MeasurementSender;
+import com.weather.sensors.services.ServerCircuitBreaker;
+import com.weather.sensors.services.ServerConcurrencyLimiter;
+import com.weather.sensors.transport.MeasurementTransport;
+import com.weather.sensors.transport.WireFormat;
+import com.weather.sensors.transport.WireFormatNegotiator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LoadGeneratorTests {
+
+	private static final String SERVER = "http://measurements:8080";
+
+	@TempDir
+	Path dir;
+
+	private final List<String> posted = new CopyOnWriteArrayList<>();
+	private final MeasurementTransport transport = new MeasurementTransport() {
+		@Override
+		public CompletableFuture<Void> post(String url, Object body) {
+			return post(url, (byte[]) body, MediaType.APPLICATION_JSON);
+		}
+
+		@Override
+		public CompletableFuture<Void> post(String url, byte[] body, MediaType contentType) {
+			posted.add(new String(body, StandardCharsets.UTF_8));
+			return CompletableFuture.completedFuture(null);
+		}
+	};
+	private final ServerConcurrencyLimiter limiter = new ServerConcurrencyLimiter(new ServerCircuitBreaker(true, 5, 10000, 1, new SimpleMeterRegistry()), 16);
+	private final WireFormatNegotiator negotiator = new WireFormatNegotiator(WireFormat.JSON);
+	private final MeasurementSender sender = new MeasurementSender(transport, limiter, negotiator, new SimpleMeterRegistry());
+	private final MeasurementBatcher batcher = new MeasurementBatcher(transport, sender, limiter, negotiator, false, 500, 1000, 1, 16, ExecutionMode.PLATFORM, new SimpleMeterRegistry());
+	private MeasurementHistory history;
+	private LoadGenerator generator;
+
+	@AfterEach
+	void tearDown() {
+		if (generator != null) generator.shutdown();
+		if (history != null) history.close();
+		batcher.shutdown();
+	}
+
+	@Test
+	void rampRisesLinearlyThenHoldsTheRate() {
+		// 100 readings/s reached after 2 s: the first 100 readings take the whole ramp, 25 of them its first second
+		assertEquals(0, LoadGenerator.rampOffsetNanos(0, 100, 2000));
+		assertEquals(TimeUnit.SECONDS.toNanos(1), LoadGenerator.rampOffsetNanos(25, 100, 2000));
+		assertEquals(TimeUnit.SECONDS.toNanos(2), LoadGenerator.rampOffsetNanos(100, 100, 2000));
+		assertEquals(TimeUnit.SECONDS.toNanos(3), LoadGenerator.rampOffsetNanos(200, 100, 2000));
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(250), LoadGenerator.rampOffsetNanos(25, 100, 0));
+	}
+
+	@Test
+	void seededRunsSendTheSameReadingsAndReportLatency() throws Exception {
+		generator = generator(false);
+		LoadRunDTO first = await(generator.start(load(7)));
+		List<String> firstReadings = sortedPosts();
+		posted.clear();
+		LoadRunDTO second = await(generator.start(load(7)));
+
+		assertEquals("completed", first.getState());
+		assertEquals(100, first.getScheduled());
+		assertEquals(100, first.getSent());
+		assertEquals(100, second.getSent());
+		assertEquals(firstReadings, sortedPosts());
+		assertTrue(firstReadings.get(0).contains("\"name\":\"loadgen-"));
+		assertTrue(Files.readString(Path.of(first.getReport())).contains("Percentile"));
+	}
+
+	@Test
+	void batchedReadingsAreTimedUntilTheirBatchIsPosted() throws Exception {
+		MeasurementBatcher batching = new MeasurementBatcher(transport, sender, limiter, negotiator, true, 1000, 300, 1, 16, ExecutionMode.PLATFORM, new SimpleMeterRegistry());
+		try {
+			generator = new LoadGenerator(sender, batching, new MeasurementHistory(false, dir, 1, 1, 1, 1, 1, 1, new SimpleMeterRegistry()),
+					true, dir.resolve("reports"), "token", 1000, 1000, 5000, new SimpleMeterRegistry());
+			LoadRunDTO run = await(generator.start(load(7)));
+
+			assertEquals(100, run.getSent());
+			// the first reading of the only batch waits for the whole window before it is posted
+			assertTrue(run.getMaxMs() >= 300, "max latency " + run.getMaxMs());
+		} finally {
+			batching.shutdown();
+		}
+	}
+
+	@Test
+	void replaySendsEveryRecordedReading() throws Exception {
+		history = new MeasurementHistory(true, dir.resolve("history"), 3_600_000, 86_400_000, 256, 1 << 20, 60_000, 10_000, new SimpleMeterRegistry());
+		long from = System.currentTimeMillis();
+		for (int i = 0; i < 20; i++) history.record(sensor(i % 2 + 1).build(), i, false);
+		generator = generator(true);
+
+		ReplayRequestDTO request = new ReplayRequestDTO();
+		request.setServerURL(SERVER);
+		request.setFrom(from);
+		request.setTo(System.currentTimeMillis() + 1);
+		request.setSpeed(10);
+		LoadRunDTO run = await(generator.replay(request));
+
+		assertEquals(20, run.getScheduled());
+		assertEquals(20, run.getSent());
+		assertTrue(posted.get(0).contains("\"name\":\"replay-"));
+	}
+
+	private LoadGenerator generator(boolean withHistory) {
+		MeasurementHistory source = withHistory ? history : new MeasurementHistory(false, dir, 1, 1, 1, 1, 1, 1, new SimpleMeterRegistry());
+		return new LoadGenerator(sender, batcher, source, true, dir.resolve("reports"), "token", 1000, 1000, 5000, new SimpleMeterRegistry());
+	}
+
+	private static LoadRequestDTO load(long seed) {
+		LoadRequestDTO request = new LoadRequestDTO();
+		request.setServerURL(SERVER);
+		request.setSeed(seed);
+		request.setSensors(10);
+		request.setRate(500);
+		request.setRampMs(100);
+		request.setDurationMs(250);
+		return request;
+	}
+
+	private LoadRunDTO await(LoadRunDTO started) throws InterruptedException {
+		assertEquals("running", started.getState());
+		long deadline = System.currentTimeMillis() + 5000;
+		LoadRunDTO status = generator.getStatus();
+		while (status.getFinishedAt() == null && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+			status = generator.getStatus();
+		}
+		return status;
+	}
+
+	private List<String> sortedPosts() {
+		List<String> readings = new ArrayList<>(posted);
+		readings.sort(null);
+		return readings;
+	}
+}
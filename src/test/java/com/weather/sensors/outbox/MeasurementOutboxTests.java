@@ -0,0 +1,142 @@
+package com.weather.sensors.outbox;
+
+import static com.weather.sensors.SensorBuilder.sensor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.services.ExecutionMode;
+import com.weather.sensors.services.ServerCircuitBreaker;
+import com.weather.sensors.services.ServerConcurrencyLimiter;
+import com.weather.sensors.transport.MeasurementTransport;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MeasurementOutboxTests {
+
+	@TempDir
+	Path dir;
+
+	private final List<String> delivered = new CopyOnWriteArrayList<>();
+	private final List<String> posted = new CopyOnWriteArrayList<>();
+	private final AtomicBoolean serverUp = new AtomicBoolean(false);
+	private final CountDownLatch slowServer = new CountDownLatch(1);
+	private final MeasurementTransport transport = (url, body) -> {
+		if (!serverUp.get()) return CompletableFuture.failedFuture(new ResourceAccessException("connection refused"));
+		if (url.startsWith("http://slow")) await(slowServer);
+		if (url.startsWith("http://legacy") && url.endsWith(MeasurementOutbox.SEND_BATCH_PATH)) {
+			return CompletableFuture.failedFuture(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "", null, null, null));
+		}
+		posted.add(url);
+		String json = new String((byte[]) body, StandardCharsets.UTF_8);
+		if (url.endsWith(MeasurementOutbox.SEND_BATCH_PATH)) delivered.addAll(List.of(json.substring(1, json.length() - 1).split("(?<=}),")));
+		else delivered.add(json);
+		return CompletableFuture.completedFuture(null);
+	};
+
+	@Test
+	void buffersWhileServerIsDownAndDeliversInOrderOnceItIsBack() throws InterruptedException {
+		MeasurementOutbox outbox = outbox();
+		try {
+			for (int i = 0; i < 20; i++) outbox.append(roof(), i, false).join();
+			Thread.sleep(100);
+			assertTrue(delivered.isEmpty());
+
+			serverUp.set(true);
+			awaitDelivered(20);
+			for (int i = 0; i < 20; i++) assertTrue(delivered.get(i).contains("\"temperature\":" + i + ".0,"), delivered.get(i));
+			assertEquals(List.of("http://measurements:8080" + MeasurementOutbox.SEND_BATCH_PATH), posted.stream().distinct().toList());
+			assertTrue(posted.size() <= 20 / 8 + 1, posted.toString());
+		} finally {
+			outbox.shutdown();
+		}
+	}
+
+	@Test
+	void replaysUnsentReadingsAfterRestart() throws InterruptedException {
+		MeasurementOutbox first = outbox();
+		for (int i = 0; i < 5; i++) first.append(roof(), i, true).join();
+		first.shutdown();
+
+		serverUp.set(true);
+		MeasurementOutbox second = outbox();
+		try {
+			awaitDelivered(5);
+			awaitCommitted(second);
+		} finally {
+			second.shutdown();
+		}
+	}
+
+	@Test
+	void serversWithoutBatchesAreDrainedOneReadingAtATime() throws InterruptedException {
+		serverUp.set(true);
+		MeasurementOutbox outbox = outbox();
+		try {
+			for (int i = 0; i < 10; i++) outbox.append(sensor(2).serverURL("http://legacy:8080").build(), i, false).join();
+			awaitDelivered(10);
+			for (int i = 0; i < 10; i++) assertTrue(delivered.get(i).contains("\"id\":2,") && delivered.get(i).contains("\"temperature\":" + i + ".0,"), delivered.get(i));
+			assertEquals(List.of("http://legacy:8080" + MeasurementOutbox.SEND_MEASURE_PATH), posted.stream().distinct().toList());
+		} finally {
+			outbox.shutdown();
+		}
+	}
+
+	@Test
+	void aServerThatHangsDoesNotHoldUpTheOthers() throws InterruptedException {
+		serverUp.set(true);
+		MeasurementOutbox outbox = outbox();
+		try {
+			outbox.append(sensor(3).serverURL("http://slow:8080").build(), 1, false).join();
+			Thread.sleep(50);
+			for (int i = 0; i < 5; i++) outbox.append(roof(), i, false).join();
+			awaitDelivered(5);
+		} finally {
+			slowServer.countDown();
+			outbox.shutdown();
+		}
+	}
+
+	private MeasurementOutbox outbox() {
+		return new MeasurementOutbox(transport, new ServerConcurrencyLimiter(new ServerCircuitBreaker(true, 5, 50, 1, new SimpleMeterRegistry()), 8), true, dir, 4096, 1 << 20, 8, 10, 100, 20, 40, 4, 100, ExecutionMode.PLATFORM, new SimpleMeterRegistry());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void awaitDelivered(int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (delivered.size() < count && System.currentTimeMillis() < deadline) Thread.sleep(10);
+		assertEquals(count, delivered.size());
+	}
+
+	// the cursor is committed after the last send completes, so it can trail the deliveries the server has seen
+	private static void awaitCommitted(MeasurementOutbox outbox) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (outbox.getPendingBytes() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+		assertEquals(0, outbox.getPendingBytes());
+	}
+
+	private static Sensor roof() {
+		return sensor(1).name("roof").serverURL("http://measurements:8080").build();
+	}
+}
@@ -0,0 +1,95 @@
+package com.weather.sensors.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SegmentLogTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void readsRecordsAcrossSegments() {
+		SegmentLog log = new SegmentLog(dir, 64, 1 << 20);
+		for (int i = 0; i < 10; i++) append(log, "reading-" + i);
+
+		assertEquals(List.of("reading-0", "reading-1", "reading-2", "reading-3", "reading-4", "reading-5", "reading-6", "reading-7", "reading-8", "reading-9"), read(log, 100));
+	}
+
+	@Test
+	void replaysFromCursorAfterReopen() throws IOException {
+		SegmentLog log = new SegmentLog(dir, 64, 1 << 20);
+		for (int i = 0; i < 6; i++) append(log, "reading-" + i);
+		List<SegmentLog.Record> records = new ArrayList<>();
+		log.read(log.committed(), 4, records);
+		log.commit(records.get(3).next());
+		log.close();
+
+		SegmentLog reopened = new SegmentLog(dir, 64, 1 << 20);
+		assertEquals(List.of("reading-4", "reading-5"), read(reopened, 100));
+
+		append(reopened, "reading-6");
+		assertEquals(List.of("reading-4", "reading-5", "reading-6"), read(reopened, 100));
+		assertTrue(segmentFiles() <= 3, "consumed segments are deleted");
+	}
+
+	@Test
+	void cutsOffTornRecordOnRecovery() throws IOException {
+		SegmentLog log = new SegmentLog(dir, 1024, 1 << 20);
+		append(log, "complete");
+		append(log, "torn");
+		log.close();
+
+		Path segment;
+		try (Stream<Path> files = Files.list(dir)) {
+			segment = files.filter(file -> file.toString().endsWith(".seg")).findFirst().orElseThrow();
+		}
+		byte[] bytes = Files.readAllBytes(segment);
+		bytes[8 + "complete".length() + 8] ^= 1;
+		Files.write(segment, bytes);
+
+		SegmentLog reopened = new SegmentLog(dir, 1024, 1 << 20);
+		assertEquals(List.of("complete"), read(reopened, 100));
+	}
+
+	@Test
+	void dropsOldestUnreadSegmentBeyondRetention() throws IOException {
+		SegmentLog log = new SegmentLog(dir, 64, 128);
+		for (int i = 0; i < 12; i++) append(log, "reading-" + i);
+
+		assertTrue(log.dropped() > 0);
+		assertTrue(segmentFiles() <= 2);
+		List<String> remaining = read(log, 100);
+		assertEquals("reading-11", remaining.get(remaining.size() - 1));
+		assertFalse(remaining.contains("reading-0"));
+	}
+
+	private long segmentFiles() throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.filter(file -> file.toString().endsWith(".seg")).count();
+		}
+	}
+
+	private static void append(SegmentLog log, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		log.append(bytes, 0, bytes.length);
+	}
+
+	private static List<String> read(SegmentLog log, int max) {
+		List<SegmentLog.Record> records = new ArrayList<>();
+		log.read(log.committed(), max, records);
+		return records.stream().map(record -> new String(record.payload(), StandardCharsets.UTF_8)).toList();
+	}
+}
@@ -0,0 +1,109 @@
+package com.weather.sensors.repositories;
+
+import static com.weather.sensors.SensorBuilder.sensor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import com.weather.sensors.models.Sensor;
+
+class SensorCacheTests {
+
+	private final SensorsRepository repository = mock(SensorsRepository.class);
+
+	@Test
+	void lookupsByIdAndNameShareOneDatabaseRead() {
+		SensorCache cache = new SensorCache(repository, true, 10, 60_000);
+		when(repository.findById(1)).thenReturn(Optional.of(sensor(1).name("roof").build()));
+
+		assertEquals("roof", cache.findById(1).orElseThrow().getName());
+		assertEquals(1, cache.findByName("roof").orElseThrow().getId());
+		assertEquals(1, cache.findById(1).orElseThrow().getId());
+
+		verify(repository, times(1)).findById(1);
+		verify(repository, times(0)).findByName("roof");
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	void returnsCopiesThatDoNotLeakIntoTheCache() {
+		SensorCache cache = new SensorCache(repository, true, 10, 60_000);
+		when(repository.findById(1)).thenReturn(Optional.of(sensor(1).name("roof").build()));
+
+		cache.findById(1).orElseThrow().setServerURL("http://elsewhere");
+
+		assertNull(cache.findById(1).orElseThrow().getServerURL());
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedAndExpiredEntries() throws InterruptedException {
+		SensorCache cache = new SensorCache(repository, true, 2, 60_000);
+		for (int id = 1; id <= 3; id++) when(repository.findById(id)).thenReturn(Optional.of(sensor(id).name("s" + id).build()));
+
+		cache.findById(1);
+		cache.findById(2);
+		cache.findById(1);
+		cache.findById(3);
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+		cache.findById(2);
+		verify(repository, times(2)).findById(2);
+
+		SensorCache shortLived = new SensorCache(repository, true, 10, 10);
+		shortLived.findById(1);
+		Thread.sleep(30);
+		shortLived.findById(1);
+		verify(repository, times(3)).findById(1);
+	}
+
+	@Test
+	void writesRefreshAndDeletesInvalidate() {
+		SensorCache cache = new SensorCache(repository, true, 10, 60_000);
+		when(repository.findById(1)).thenReturn(Optional.of(sensor(1).name("roof").build()));
+		when(repository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+		cache.findById(1);
+
+		Sensor renamed = sensor(1).name("attic").build();
+		renamed.setToken("new-token");
+		cache.save(renamed);
+
+		assertEquals("new-token", cache.findByName("attic").orElseThrow().getToken());
+		assertTrue(cache.findByName("roof").isEmpty());
+
+		cache.deleteById(1);
+		assertEquals(0, cache.size());
+		verify(repository).deleteById(1);
+	}
+
+	@Test
+	void readThatRacesASaveDoesNotCacheTheRowTheSaveReplaced() {
+		SensorCache cache = new SensorCache(repository, true, 10, 60_000);
+		when(repository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+		when(repository.findById(1)).thenAnswer(invocation -> {
+			cache.save(sensor(1).name("attic").build());
+			return Optional.of(sensor(1).name("roof").build());
+		});
+		when(repository.findByName("cellar")).thenAnswer(invocation -> {
+			cache.save(sensor(2).name("basement").build());
+			return Optional.of(sensor(2).name("cellar").build());
+		});
+
+		assertEquals("roof", cache.findById(1).orElseThrow().getName());
+		assertEquals("attic", cache.findById(1).orElseThrow().getName());
+		assertEquals("cellar", cache.findByName("cellar").orElseThrow().getName());
+		assertEquals("basement", cache.findById(2).orElseThrow().getName());
+		verify(repository, times(1)).findById(1);
+		verify(repository, times(0)).findById(2);
+	}
+}
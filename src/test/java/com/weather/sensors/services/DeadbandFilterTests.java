@@ -0,0 +1,86 @@
+package com.weather.sensors.services;
+
+import static com.weather.sensors.SensorBuilder.sensor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.weather.sensors.models.Sensor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DeadbandFilterTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final DeadbandFilter filter = new DeadbandFilter(true, 0.5, 60_000, meterRegistry);
+
+	@Test
+	void onlyReadingsThatMovedPastTheDeadbandFlippedOrHitTheHeartbeatAreSent() {
+		Sensor sensor = sensor(1).slot(4100).build();
+
+		assertTrue(send(sensor, 10.0, false, 0));
+		assertFalse(send(sensor, 10.3, false, 1000));
+		assertFalse(send(sensor, 9.7, false, 2000));
+		assertTrue(send(sensor, 10.5, false, 3000));
+		assertTrue(send(sensor, 10.5, true, 4000));
+		assertFalse(send(sensor, 10.6, true, 63_999));
+		assertTrue(send(sensor, 10.6, true, 64_000));
+
+		assertEquals(3, filter.getSuppressedCount());
+		assertEquals(1, count("first"));
+		assertEquals(1, count("temperature"));
+		assertEquals(1, count("raining"));
+		assertEquals(1, count("heartbeat"));
+	}
+
+	@Test
+	void aReleasedSlotStartsAfreshForTheNextSensor() {
+		Sensor first = sensor(1).slot(7).build();
+		Sensor second = sensor(2).slot(7).build();
+
+		assertTrue(send(first, 10.0, false, 0));
+		filter.release(first);
+		assertTrue(send(second, 10.0, false, 1000));
+		assertFalse(send(second, 10.1, false, 2000));
+		assertEquals(2, count("first"));
+	}
+
+	@Test
+	void aReadingWhoseSendFailedIsNotTheBaseline() {
+		Sensor sensor = sensor(1).slot(3).build();
+
+		assertTrue(filter.passes(sensor, 10.0, false, 0));
+		assertTrue(filter.passes(sensor, 10.1, false, 1000));
+		filter.sent(sensor, 10.1, false, 1000);
+
+		assertTrue(filter.passes(sensor, 10.7, false, 2000));
+		assertTrue(filter.passes(sensor, 10.6, false, 3000));
+		filter.sent(sensor, 10.6, false, 3000);
+		assertFalse(filter.passes(sensor, 10.7, false, 4000));
+		assertEquals(2, count("first"));
+	}
+
+	@Test
+	void sensorsWithTheirOwnDeadbandUseItInsteadOfTheDefault() {
+		Sensor roof = sensor(1).slot(0).build();
+		Sensor cellar = sensor(2).slot(1).deadbandTemperature(2.0).build();
+
+		assertTrue(send(roof, 10.0, false, 0));
+		assertTrue(send(cellar, 10.0, false, 0));
+		assertTrue(send(roof, 11.0, false, 1000));
+		assertFalse(send(cellar, 11.0, false, 1000));
+		assertTrue(send(cellar, 12.0, false, 2000));
+	}
+
+	private boolean send(Sensor sensor, double temperature, boolean raining, long now) {
+		if (!filter.passes(sensor, temperature, raining, now)) return false;
+		filter.sent(sensor, temperature, raining, now);
+		return true;
+	}
+
+	private double count(String outcome) {
+		return meterRegistry.get("sensors.deadband.readings").tag("outcome", outcome).functionCounter().count();
+	}
+}
@@ -0,0 +1,102 @@
+package com.weather.sensors.services;
+
+import static com.weather.sensors.SensorBuilder.sensor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import com.weather.sensors.transport.MeasurementTransport;
+import com.weather.sensors.transport.WireFormat;
+import com.weather.sensors.transport.WireFormatNegotiator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MeasurementBatcherTests {
+
+	private final List<String> posted = new CopyOnWriteArrayList<>();
+	private final MeasurementTransport transport = new MeasurementTransport() {
+		@Override
+		public CompletableFuture<Void> post(String url, Object body) {
+			return post(url, (byte[]) body, MediaType.APPLICATION_JSON);
+		}
+
+		@Override
+		public CompletableFuture<Void> post(String url, byte[] body, MediaType contentType) {
+			posted.add(url);
+			if (url.equals("http://legacy:8080" + MeasurementBatcher.SEND_BATCH_PATH)) {
+				return CompletableFuture.failedFuture(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "", null, null, null));
+			}
+			if (url.startsWith("http://down")) {
+				return CompletableFuture.failedFuture(HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE, "", null, null, null));
+			}
+			return CompletableFuture.completedFuture(null);
+		}
+	};
+	private final WireFormatNegotiator negotiator = new WireFormatNegotiator(WireFormat.JSON);
+	private final ServerConcurrencyLimiter limiter = new ServerConcurrencyLimiter(new ServerCircuitBreaker(false, 5, 10000, 1, new SimpleMeterRegistry()), 4);
+	private final MeasurementSender sender = new MeasurementSender(transport, limiter, negotiator, new SimpleMeterRegistry());
+	private final MeasurementBatcher batcher = new MeasurementBatcher(transport, sender, limiter, negotiator,
+			true, 3, 100, 2, 10, ExecutionMode.PLATFORM, new SimpleMeterRegistry());
+
+	@AfterEach
+	void tearDown() {
+		batcher.shutdown();
+	}
+
+	@Test
+	void fullBatchIsPostedAtOnceAndAPartialOneWhenItsWindowHasPassed() throws Exception {
+		CompletableFuture<Void> first = batcher.add(sensor(1).token("token").serverURL("http://measurements:8080").build(), 10, false);
+		CompletableFuture<Void> second = batcher.add(sensor(2).token("token").serverURL("http://measurements:8080").build(), 11, false);
+		assertFalse(first.isDone());
+		assertTrue(posted.isEmpty());
+
+		CompletableFuture<Void> third = batcher.add(sensor(3).token("token").serverURL("http://measurements:8080").build(), 12, true);
+		assertTrue(first.isDone() && second.isDone() && third.isDone());
+		assertEquals(List.of("http://measurements:8080" + MeasurementBatcher.SEND_BATCH_PATH), posted);
+
+		CompletableFuture<Void> partial = batcher.add(sensor(4).token("token").serverURL("http://measurements:8080").build(), 13, false);
+		assertFalse(partial.isDone());
+		assertEquals(1, batcher.getPendingCount());
+		partial.get(5, TimeUnit.SECONDS);
+		assertEquals(2, posted.size());
+		assertEquals(0, batcher.getPendingCount());
+	}
+
+	@Test
+	void serverWithoutBatchesGetsSingleReadingsAndFailuresReachEveryReading() {
+		List<CompletableFuture<Void>> legacy = List.of(
+				batcher.add(sensor(1).token("token").serverURL("http://legacy:8080").build(), 10, false),
+				batcher.add(sensor(2).token("token").serverURL("http://legacy:8080").build(), 11, false),
+				batcher.add(sensor(3).token("token").serverURL("http://legacy:8080").build(), 12, false));
+		legacy.forEach(CompletableFuture::join);
+		batcher.add(sensor(4).token("token").serverURL("http://legacy:8080").build(), 13, false).join();
+
+		assertEquals(List.of("http://legacy:8080" + MeasurementBatcher.SEND_BATCH_PATH, "http://legacy:8080" + MeasurementSender.SEND_MEASURE_PATH,
+				"http://legacy:8080" + MeasurementSender.SEND_MEASURE_PATH, "http://legacy:8080" + MeasurementSender.SEND_MEASURE_PATH,
+				"http://legacy:8080" + MeasurementSender.SEND_MEASURE_PATH), posted);
+
+		List<CompletableFuture<Void>> down = List.of(
+				batcher.add(sensor(5).token("token").serverURL("http://down:8080").build(), 10, false),
+				batcher.add(sensor(6).token("token").serverURL("http://down:8080").build(), 11, false),
+				batcher.add(sensor(7).token("token").serverURL("http://down:8080").build(), 12, false));
+		for (CompletableFuture<Void> reading : down) {
+			ExecutionException error = assertThrows(ExecutionException.class, () -> reading.get(5, TimeUnit.SECONDS));
+			assertInstanceOf(HttpServerErrorException.ServiceUnavailable.class, error.getCause());
+		}
+	}
+}
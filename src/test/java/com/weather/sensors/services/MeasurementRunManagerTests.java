@@ -0,0 +1,140 @@
+package com.weather.sensors.services;
+
+import static com.weather.sensors.SensorBuilder.sensor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.weather.sensors.aggregation.MeasurementAggregator;
+import com.weather.sensors.dto.ActivationResultDTO;
+import com.weather.sensors.dto.MeasurementRunDTO;
+import com.weather.sensors.feed.MeasurementFeed;
+import com.weather.sensors.history.MeasurementHistory;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.outbox.MeasurementOutbox;
+import com.weather.sensors.simulation.RandomWalkWeatherSimulator;
+import com.weather.sensors.simulation.WeatherSimulator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MeasurementRunManagerTests {
+
+	private final SensorAuthenticator authenticator = mock(SensorAuthenticator.class);
+	private final MeasurementSender sender = mock(MeasurementSender.class);
+	private final MeasurementScheduler scheduler = new MeasurementScheduler(20, 0, 2, 10, ExecutionMode.PLATFORM, new SimpleMeterRegistry());
+	private final WeatherSimulator simulator = new RandomWalkWeatherSimulator(7);
+	private final MeasurementRunManager manager = new MeasurementRunManager(authenticator, scheduler, sender, mock(MeasurementBatcher.class), mock(MeasurementOutbox.class), mock(MeasurementAggregator.class), simulator, mock(MeasurementFeed.class), mock(MeasurementHistory.class),
+			new DeadbandFilter(false, 0.5, 300000, new SimpleMeterRegistry()), new ServerRateController(mock(ServerConcurrencyLimiter.class), false, 10000, 1, 10, 0.5, 1000, 1000, 60000, 50, new SimpleMeterRegistry()), mock(TokenRefreshManager.class), 2000);
+
+	MeasurementRunManagerTests() {
+		when(authenticator.authenticateAll(anyList(), any())).thenAnswer(invocation -> {
+			List<Sensor> sensors = invocation.getArgument(0);
+			Consumer<Sensor> onAuthenticated = invocation.getArgument(1);
+			sensors.forEach(onAuthenticated);
+			ActivationResultDTO result = new ActivationResultDTO();
+			result.setActivated(sensors.size());
+			return result;
+		});
+		manager.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		scheduler.shutdown();
+	}
+
+	@Test
+	void activatingTwiceKeepsOneScheduleAndSlotPerSensor() throws InterruptedException {
+		when(sender.send(any(), anyDouble(), anyBoolean())).thenReturn(CompletableFuture.completedFuture(null));
+
+		manager.activate(List.of(running(1), running(2)));
+		ActivationResultDTO second = manager.activate(List.of(running(1), running(2), running(3)));
+
+		assertEquals(3, second.getRequested());
+		assertEquals(2, second.getAlreadyActive());
+		assertEquals(1, second.getActivated());
+		assertEquals(3, scheduler.getScheduledCount());
+		assertEquals(3, simulator.activeSlots());
+
+		assertTrue(manager.deactivate(2));
+		assertFalse(manager.deactivate(2));
+		assertEquals(2, scheduler.getScheduledCount());
+		awaitActiveSlots(2);
+	}
+
+	@Test
+	void stoppedSensorKeepsItsSlotUntilItsMeasurementInFlightCompletes() throws InterruptedException {
+		CompletableFuture<Void> slowSend = new CompletableFuture<>();
+		when(sender.send(any(), anyDouble(), anyBoolean())).thenReturn(slowSend);
+
+		manager.activate(List.of(running(1)));
+		verify(sender, timeout(2000)).send(any(), anyDouble(), anyBoolean());
+
+		assertTrue(manager.deactivate(1));
+		assertEquals(1, simulator.activeSlots());
+		// the measurement may still be chaining its completion onto the send
+		slowSend.complete(null);
+		awaitActiveSlots(0);
+	}
+
+	@Test
+	void statusReportsLastSendAndStopWaitsForMeasurementsInFlight() throws InterruptedException {
+		CompletableFuture<Void> slowSend = new CompletableFuture<>();
+		when(sender.send(any(), anyDouble(), anyBoolean())).thenReturn(CompletableFuture.completedFuture(null), slowSend);
+
+		manager.activate(List.of(running(1)));
+		awaitSentAndInFlight();
+
+		MeasurementRunDTO status = manager.getStatus();
+		assertEquals(1, status.getActive());
+		assertEquals(1, status.getSensors().get(0).getSent());
+		assertNotNull(status.getSensors().get(0).getLastSentAt());
+
+		new Thread(() -> {
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				return;
+			}
+			slowSend.complete(null);
+		}).start();
+		manager.stop();
+
+		assertFalse(manager.isRunning());
+		assertEquals(0, scheduler.getInFlightCount());
+		assertEquals(0, manager.getStatus().getActive());
+		assertEquals(0, simulator.activeSlots());
+	}
+
+	// the first send completes before the second measurement starts, and the scheduler counts it in flight only then
+	private void awaitSentAndInFlight() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 2000;
+		while ((manager.getStatus().getSensors().get(0).getSent() == 0 || scheduler.getInFlightCount() == 0) && System.currentTimeMillis() < deadline) Thread.sleep(5);
+	}
+
+	private void awaitActiveSlots(int slots) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 2000;
+		while (simulator.activeSlots() != slots && System.currentTimeMillis() < deadline) Thread.sleep(5);
+		assertEquals(slots, simulator.activeSlots());
+	}
+
+	private static Sensor running(int id) {
+		return sensor(id).serverURL("http://measurements:8080").registered().build();
+	}
+}
@@ -0,0 +1,91 @@
+package com.weather.sensors.services;
+
+import static com.weather.sensors.SensorBuilder.sensor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.weather.sensors.models.Sensor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MeasurementSchedulerTests {
+
+	private final MeasurementScheduler scheduler = new MeasurementScheduler(20, 0, 2, 10, ExecutionMode.PLATFORM, new SimpleMeterRegistry());
+
+	@AfterEach
+	void shutdown() {
+		scheduler.shutdown();
+	}
+
+	@Test
+	void slowSensorDoesNotStallOthers() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger slowRuns = new AtomicInteger();
+		AtomicInteger fastRuns = new AtomicInteger();
+
+		scheduler.schedule(sensor(1).build(), sensor -> {
+			slowRuns.incrementAndGet();
+			await(release);
+		});
+		scheduler.schedule(sensor(2).build(), sensor -> fastRuns.incrementAndGet());
+
+		Thread.sleep(300);
+		release.countDown();
+
+		assertEquals(1, slowRuns.get());
+		assertTrue(fastRuns.get() >= 5, "fast sensor kept its cadence: " + fastRuns.get());
+		assertTrue(scheduler.getSkippedTicks() > 0);
+	}
+
+	@Test
+	void oneOffMeasurementsCountAsInFlightUntilTheirStageCompletes() throws InterruptedException {
+		CompletableFuture<Void> send = new CompletableFuture<>();
+		CountDownLatch started = new CountDownLatch(1);
+		assertTrue(scheduler.executeAsync(() -> {
+			started.countDown();
+			return send;
+		}));
+		await(started);
+		assertEquals(1, scheduler.getInFlightCount());
+
+		send.complete(null);
+		long deadline = System.currentTimeMillis() + 5000;
+		while (scheduler.getInFlightCount() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+		assertEquals(0, scheduler.getInFlightCount());
+	}
+
+	@Test
+	void perSensorIntervalOverridesDefault() {
+		Sensor sensor = sensor(3).build();
+		assertEquals(20, scheduler.intervalOf(sensor));
+
+		sensor.setMeasureInterval(500);
+		assertEquals(500, scheduler.intervalOf(sensor));
+	}
+
+	@Test
+	void cancelAllIsIdempotent() {
+		scheduler.schedule(sensor(4).build(), sensor -> {});
+		scheduler.cancelAll();
+		scheduler.cancelAll();
+
+		assertEquals(0, scheduler.getScheduledCount());
+	}
+
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package com.weather.sensors.services;
+
+import static com.weather.sensors.SensorBuilder.sensor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+
+import com.weather.sensors.transport.MeasurementTransport;
+import com.weather.sensors.transport.WireFormat;
+import com.weather.sensors.transport.WireFormatNegotiator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MeasurementSenderTests {
+
+	private final List<MediaType> posted = new CopyOnWriteArrayList<>();
+	private final MeasurementTransport transport = new MeasurementTransport() {
+		@Override
+		public CompletableFuture<Void> post(String url, Object body) {
+			return post(url, (byte[]) body, MediaType.APPLICATION_JSON);
+		}
+
+		@Override
+		public CompletableFuture<Void> post(String url, byte[] body, MediaType contentType) {
+			posted.add(contentType);
+			if (url.startsWith("http://legacy") && !MediaType.APPLICATION_JSON.equals(contentType)) {
+				return CompletableFuture.failedFuture(HttpClientErrorException.create(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "", null, null, null));
+			}
+			return CompletableFuture.completedFuture(null);
+		}
+	};
+	private final WireFormatNegotiator negotiator = new WireFormatNegotiator(WireFormat.BINARY);
+	private final MeasurementSender sender = new MeasurementSender(transport, new ServerConcurrencyLimiter(new ServerCircuitBreaker(true, 5, 10000, 1, new SimpleMeterRegistry()), 4), negotiator, new SimpleMeterRegistry());
+
+	@Test
+	void serverRejectingBinaryGetsTheReadingAsJsonAndJsonFromThenOn() {
+		sender.send(sensor(1).name("roof").token("token").serverURL("http://legacy:8080").build(), 12.5, false).join();
+		sender.send(sensor(1).name("roof").token("token").serverURL("http://legacy:8080").build(), 13.0, false).join();
+		sender.send(sensor(1).name("roof").token("token").serverURL("http://current:8080").build(), 14.0, true).join();
+
+		MediaType binary = WireFormat.BINARY.getMediaType();
+		assertEquals(List.of(binary, MediaType.APPLICATION_JSON, MediaType.APPLICATION_JSON, binary), posted);
+		assertEquals(1, negotiator.getJsonOnlyCount());
+	}
+}
@@ -0,0 +1,105 @@
+package com.weather.sensors.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.weather.sensors.dto.ActivationResultDTO;
+import com.weather.sensors.SensorBuilder;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.util.SensorMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SensorAuthenticatorTests {
+
+	private static final int LANES = 3;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+	private final Set<String> failedOnce = ConcurrentHashMap.newKeySet();
+	private HttpServer server;
+	private SensorAuthenticator authenticator;
+
+	@BeforeEach
+	void start() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/flaky/measurements/authenticate", exchange -> respond(exchange, failedOnce.add(body(exchange)) ? 503 : 200));
+		server.createContext("/rejecting/measurements/authenticate", exchange -> respond(exchange, 400));
+		server.start();
+
+		ServerConcurrencyLimiter limiter = new ServerConcurrencyLimiter(new ServerCircuitBreaker(true, 5, 10000, 1, new SimpleMeterRegistry()), 64);
+		authenticator = new SensorAuthenticator(new RestTemplate(), new SensorMapper(), limiter, ExecutionMode.PLATFORM, 8, 100, LANES, 3, 5, 20, new SimpleMeterRegistry());
+	}
+
+	@AfterEach
+	void stop() {
+		authenticator.shutdown();
+		server.stop(0);
+	}
+
+	@Test
+	void retriesTransientFailuresAndReportsTheRest() {
+		List<Sensor> sensors = new ArrayList<>();
+		for (int id = 1; id <= 12; id++) sensors.add(sensor(id, "flaky"));
+		sensors.add(sensor(100, "rejecting"));
+		Set<Integer> started = ConcurrentHashMap.newKeySet();
+
+		ActivationResultDTO result = authenticator.authenticateAll(sensors, sensor -> started.add(sensor.getId()));
+
+		assertEquals(13, result.getRequested());
+		assertEquals(12, result.getActivated());
+		assertEquals(12, started.size());
+		assertEquals(1, result.getFailures().size());
+		assertEquals(100, result.getFailures().get(0).getSensorId());
+		assertEquals(1, result.getFailures().get(0).getAttempts(), "client errors are not retried");
+		assertTrue(maxInFlight.get() <= LANES + 1, "fan-out per server is bounded: " + maxInFlight.get());
+	}
+
+	@Test
+	void setsSessionBeforeStartingSensor() {
+		List<Double> sessions = new ArrayList<>();
+
+		authenticator.authenticateAll(List.of(sensor(7, "flaky")), sensor -> sessions.add(sensor.getSessionId()));
+
+		assertEquals(List.of(42.0), sessions);
+	}
+
+	private void respond(HttpExchange exchange, int status) throws IOException {
+		int current = inFlight.incrementAndGet();
+		maxInFlight.accumulateAndGet(current, Math::max);
+		try {
+			Thread.sleep(20);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		inFlight.decrementAndGet();
+		if (status == 200) exchange.getResponseHeaders().add("Set-Cookie", "SESSION=42");
+		exchange.sendResponseHeaders(status, -1);
+		exchange.close();
+	}
+
+	private static String body(HttpExchange exchange) throws IOException {
+		return new String(exchange.getRequestBody().readAllBytes());
+	}
+
+	private Sensor sensor(int id, String path) {
+		return SensorBuilder.sensor(id).serverURL("http://127.0.0.1:" + server.getAddress().getPort() + "/" + path).registered().build();
+	}
+}
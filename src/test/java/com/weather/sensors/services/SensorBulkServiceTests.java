@@ -0,0 +1,112 @@
+package com.weather.sensors.services;
+
+import static com.weather.sensors.SensorBuilder.sensor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.weather.sensors.dto.BulkItemResultDTO;
+import com.weather.sensors.dto.BulkResultDTO;
+import com.weather.sensors.dto.SensorDTO;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.repositories.SensorCache;
+import com.weather.sensors.repositories.SensorsRepository;
+import com.weather.sensors.util.SensorMapper;
+import com.weather.sensors.util.SensorRegistrationException;
+
+import jakarta.validation.Validation;
+
+class SensorBulkServiceTests {
+
+	private final SensorsRepository repository = mock(SensorsRepository.class);
+	private final SensorCache cache = mock(SensorCache.class);
+	private final SensorService sensorService = mock(SensorService.class);
+	private final SensorBulkService bulkService = new SensorBulkService(repository, cache, new SensorMapper(), sensorService,
+			Validation.buildDefaultValidatorFactory().getValidator(), new TransactionTemplate(mock(PlatformTransactionManager.class)),
+			ExecutionMode.PLATFORM, 3, 4, 100);
+
+	@AfterEach
+	void tearDown() {
+		bulkService.shutdown();
+	}
+
+	@Test
+	void createValidatesEachChunkWithOneQueryAndSavesItInOneBatch() {
+		AtomicInteger ids = new AtomicInteger(100);
+		when(repository.findByNameIn(any())).thenReturn(List.of(sensor(1).name("taken").build()));
+		when(cache.saveAll(anyList())).thenAnswer(invocation -> {
+			List<Sensor> saved = new ArrayList<>(invocation.getArgument(0));
+			saved.forEach(sensor -> sensor.setId(ids.incrementAndGet()));
+			return saved;
+		});
+
+		BulkResultDTO result = bulkService.createAll(List.of(dto(0, "roof"), dto(0, "taken"), dto(0, "roof"), dto(0, "x"), dto(0, "attic")).iterator());
+
+		assertEquals(5, result.getTotal());
+		assertEquals(2, result.getSucceeded());
+		assertEquals(List.of(BulkItemResultDTO.CREATED, BulkItemResultDTO.REJECTED, BulkItemResultDTO.REJECTED, BulkItemResultDTO.REJECTED, BulkItemResultDTO.CREATED), statuses(result));
+		assertEquals(101, result.getItems().get(0).getId());
+		assertEquals(4, result.getItems().get(4).getIndex());
+		verify(repository, times(2)).findByNameIn(any());
+		verify(cache, times(2)).saveAll(anyList());
+	}
+
+	@Test
+	void registrateReportsRemoteFailuresAndSavesTheRest() {
+		when(repository.findAllById(any())).thenReturn(List.of(sensor(1).name("roof").build(), sensor(2).name("attic").build()));
+		when(repository.findByNameIn(any())).thenReturn(List.of());
+		when(sensorService.registerRemotely(any(), eq("http://ok"))).thenAnswer(invocation -> {
+			Sensor sensor = invocation.getArgument(0);
+			sensor.setRegistered(true);
+			return sensor;
+		});
+		when(sensorService.registerRemotely(any(), eq("http://down"))).thenThrow(new SensorRegistrationException("I/O error"));
+		when(cache.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+		BulkResultDTO result = bulkService.registrateAll(List.of(withServer(dto(1, null), "http://ok"), withServer(dto(2, null), "http://down"), withServer(dto(0, "ghost"), "http://ok"), dto(1, null)).iterator());
+
+		assertEquals(List.of(BulkItemResultDTO.REGISTERED, BulkItemResultDTO.FAILED, BulkItemResultDTO.REJECTED, BulkItemResultDTO.REJECTED), statuses(result));
+		assertEquals("I/O error", result.getItems().get(1).getMessage());
+		verify(cache).saveAll(argThat(sensors -> sensors.size() == 1 && sensors.get(0).getId() == 1));
+	}
+
+	@Test
+	void nothingIsSavedWhenTheWholeChunkIsRejected() {
+		BulkResultDTO result = bulkService.createAll(List.of(dto(0, "ab")).iterator());
+
+		assertEquals(1, result.getFailed());
+		verify(cache, never()).saveAll(anyList());
+	}
+
+	private static List<String> statuses(BulkResultDTO result) {
+		return result.getItems().stream().map(BulkItemResultDTO::getStatus).toList();
+	}
+
+	private static SensorDTO dto(int id, String name) {
+		SensorDTO sensorDTO = new SensorDTO();
+		sensorDTO.setId(id);
+		sensorDTO.setName(name);
+		return sensorDTO;
+	}
+
+	private static SensorDTO withServer(SensorDTO sensorDTO, String serverURL) {
+		sensorDTO.setServerURL(serverURL);
+		return sensorDTO;
+	}
+}
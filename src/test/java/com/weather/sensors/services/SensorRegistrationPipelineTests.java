@@ -0,0 +1,104 @@
+package com.weather.sensors.services;
+
+import static com.weather.sensors.SensorBuilder.sensor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.weather.sensors.dto.BulkItemResultDTO;
+import com.weather.sensors.dto.RegistrationJobDTO;
+import com.weather.sensors.dto.SensorDTO;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.repositories.SensorCache;
+import com.weather.sensors.repositories.SensorsRepository;
+import com.weather.sensors.util.SensorMapper;
+import com.weather.sensors.util.SensorRegistrationException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+
+class SensorRegistrationPipelineTests {
+
+	private final SensorsRepository repository = mock(SensorsRepository.class);
+	private final SensorCache cache = mock(SensorCache.class);
+	private final SensorService sensorService = mock(SensorService.class);
+	private final TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+	private final SensorBulkService bulkService = new SensorBulkService(repository, cache, new SensorMapper(), sensorService,
+			Validation.buildDefaultValidatorFactory().getValidator(), transactionTemplate, ExecutionMode.PLATFORM, 3, 4, 100);
+	private final SensorRegistrationPipeline pipeline = new SensorRegistrationPipeline(bulkService, sensorService, cache, transactionTemplate,
+			ExecutionMode.PLATFORM, 4, 5, 10, 60_000, 1000, new SimpleMeterRegistry());
+
+	@AfterEach
+	void tearDown() {
+		pipeline.shutdown();
+		bulkService.shutdown();
+	}
+
+	@Test
+	void submitAnswersBeforeTheRemoteCallsAndSavesTheResultsInBatches() throws Exception {
+		CountDownLatch remote = new CountDownLatch(1);
+		when(repository.findAllById(any())).thenReturn(List.of(sensor(1).build(), sensor(2).build(), sensor(3).build()));
+		when(sensorService.registerRemotely(any(), eq("http://ok"))).thenAnswer(invocation -> {
+			remote.await();
+			return invocation.getArgument(0);
+		});
+		when(sensorService.registerRemotely(any(), eq("http://down"))).thenAnswer(invocation -> {
+			remote.await();
+			throw new SensorRegistrationException("I/O error");
+		});
+		List<Integer> batchSizes = new ArrayList<>();
+		when(cache.saveAll(anyList())).thenAnswer(invocation -> {
+			List<Sensor> sensors = invocation.getArgument(0);
+			batchSizes.add(sensors.size());
+			return sensors;
+		});
+
+		RegistrationJobDTO job = pipeline.submit(List.of(dto(1, "http://ok"), dto(2, "http://ok"), dto(3, "http://down"), dto(4, "http://ok")).iterator());
+
+		assertEquals(RegistrationJobDTO.PENDING, job.getState());
+		assertEquals(3, job.getPending());
+		assertEquals(BulkItemResultDTO.REJECTED, job.getResult().getItems().get(0).getStatus());
+
+		remote.countDown();
+		long deadline = System.currentTimeMillis() + 5000;
+		while (pipeline.getStatus(job.getId()).getCompletedAt() == null && System.currentTimeMillis() < deadline) Thread.sleep(10);
+
+		RegistrationJobDTO completed = pipeline.getStatus(job.getId());
+		assertEquals(RegistrationJobDTO.COMPLETED, completed.getState());
+		assertEquals(List.of(BulkItemResultDTO.REGISTERED, BulkItemResultDTO.REGISTERED, BulkItemResultDTO.FAILED, BulkItemResultDTO.REJECTED),
+				completed.getResult().getItems().stream().map(BulkItemResultDTO::getStatus).toList());
+		assertEquals("I/O error", completed.getResult().getItems().get(2).getMessage());
+		assertEquals(2, batchSizes.stream().mapToInt(Integer::intValue).sum());
+	}
+
+	@Test
+	void requestsBeyondTheQueueCapacityAreRefusedWhole() {
+		List<SensorDTO> sensorDTOs = new ArrayList<>();
+		for (int i = 1; i <= 6; i++) sensorDTOs.add(dto(i, "http://ok"));
+
+		assertThrows(SensorRegistrationException.class, () -> pipeline.submit(sensorDTOs.iterator()));
+		verify(repository, never()).findAllById(any());
+	}
+
+	private static SensorDTO dto(int id, String serverURL) {
+		SensorDTO sensorDTO = new SensorDTO();
+		sensorDTO.setId(id);
+		sensorDTO.setServerURL(serverURL);
+		return sensorDTO;
+	}
+}
@@ -0,0 +1,78 @@
+package com.weather.sensors.services;
+
+import static com.weather.sensors.SensorBuilder.sensor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.web.client.RestTemplate;
+
+import com.weather.sensors.dto.ActivationResultDTO;
+import com.weather.sensors.dto.SensorPageDTO;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.repositories.SensorCache;
+import com.weather.sensors.repositories.SensorsRepository;
+import com.weather.sensors.shard.ShardCoordinator;
+import com.weather.sensors.util.SensorDTOValidator;
+import com.weather.sensors.util.SensorMapper;
+import com.weather.sensors.util.SensorToRegistrateValidator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SensorServiceTests {
+
+	private final SensorsRepository repository = mock(SensorsRepository.class);
+	private final MeasurementRunManager runManager = mock(MeasurementRunManager.class);
+	private final SensorService sensorService = new SensorService(repository, mock(SensorCache.class), mock(RestTemplate.class), new SensorMapper(),
+			mock(SensorDTOValidator.class), mock(SensorToRegistrateValidator.class), runManager, new ServerConcurrencyLimiter(new ServerCircuitBreaker(true, 5, 10000, 1, new SimpleMeterRegistry()), 4), mock(TokenRefreshManager.class),
+			new ShardCoordinator(null, null, false, "single", 1000, 1000), new SimpleMeterRegistry(), 2);
+
+	@Test
+	void activationReadsRegisteredSensorsPageByPage() {
+		when(repository.findByIsRegisteredTrueAndIdGreaterThanOrderById(0, Limit.of(2))).thenReturn(List.of(registered(3), registered(7)));
+		when(repository.findByIsRegisteredTrueAndIdGreaterThanOrderById(7, Limit.of(2))).thenReturn(List.of(registered(9), registered(12)));
+		when(repository.findByIsRegisteredTrueAndIdGreaterThanOrderById(12, Limit.of(2))).thenReturn(List.of(registered(15)));
+		when(runManager.activate(anyList())).thenAnswer(invocation -> {
+			List<Sensor> page = invocation.getArgument(0);
+			ActivationResultDTO result = new ActivationResultDTO();
+			result.setRequested(page.size());
+			result.setActivated(page.size());
+			return result;
+		});
+
+		ActivationResultDTO result = sensorService.activateAll();
+
+		assertEquals(5, result.getRequested());
+		assertEquals(5, result.getActivated());
+		verify(runManager, times(3)).activate(anyList());
+		verify(repository, times(3)).findByIsRegisteredTrueAndIdGreaterThanOrderById(any(Integer.class), eq(Limit.of(2)));
+	}
+
+	@Test
+	void listingHidesTokensAndPointsToTheNextPage() {
+		List<Sensor> page = new ArrayList<>(List.of(registered(4), registered(8)));
+		when(repository.findBy(any(Specification.class), any())).thenReturn(page);
+
+		SensorPageDTO result = sensorService.list(0, 50, true, null, "roof");
+
+		assertEquals(2, result.getSensors().size());
+		assertEquals(8, result.getNext());
+		assertNull(result.getSensors().get(0).getToken());
+	}
+
+	private static Sensor registered(int id) {
+		return sensor(id).name("roof-" + id).token("secret").registered().build();
+	}
+}
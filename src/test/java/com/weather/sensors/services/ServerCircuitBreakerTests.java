@@ -0,0 +1,80 @@
+package com.weather.sensors.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.weather.sensors.dto.ServerStatusDTO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ServerCircuitBreakerTests {
+
+	private static final String DEAD = "http://dead:8080";
+	private static final String ALIVE = "http://alive:8080";
+
+	private final ServerCircuitBreaker breaker = new ServerCircuitBreaker(true, 3, 100, 1, new SimpleMeterRegistry());
+	private final ServerConcurrencyLimiter limiter = new ServerConcurrencyLimiter(breaker, 4);
+
+	@Test
+	void failingServerTripsItsOwnCircuitOnly() {
+		for (int i = 0; i < 3; i++) {
+			assertThrows(CompletionException.class, () -> limiter.callAsync(DEAD, () -> CompletableFuture.failedFuture(new ResourceAccessException("connect timed out"))).join());
+			limiter.callAsync(ALIVE, () -> CompletableFuture.completedFuture(null)).join();
+		}
+		assertThrows(HttpClientErrorException.class, () -> limiter.call(ALIVE, () -> {
+			throw HttpClientErrorException.create(HttpStatus.NOT_FOUND, "", null, null, null);
+		}));
+
+		int[] calls = new int[1];
+		CompletionException rejected = assertThrows(CompletionException.class, () -> limiter.callAsync(DEAD, () -> {
+			calls[0]++;
+			return CompletableFuture.completedFuture(null);
+		}).join());
+		assertTrue(rejected.getCause() instanceof CircuitOpenException);
+		assertThrows(CircuitOpenException.class, () -> limiter.call(DEAD, () -> calls[0]++));
+		assertEquals(0, calls[0]);
+
+		assertEquals(ServerCircuitBreaker.State.OPEN, breaker.getState(DEAD));
+		assertEquals(ServerCircuitBreaker.State.CLOSED, breaker.getState(ALIVE));
+		ServerStatusDTO dead = limiter.getStatus().get(1);
+		assertEquals(DEAD, dead.getServerURL());
+		assertEquals(1, dead.getTrips());
+		assertEquals(2, dead.getRejected());
+		assertEquals(0, dead.getInFlight());
+	}
+
+	@Test
+	void halfOpenLetsOneProbeThroughAndClosesOnSuccess() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			assertThrows(HttpServerErrorException.class, () -> limiter.call(DEAD, () -> {
+				throw HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE, "", null, null, null);
+			}));
+		}
+		Thread.sleep(150);
+
+		CompletableFuture<Void> probe = new CompletableFuture<>();
+		CompletableFuture<Void> probed = limiter.callAsync(DEAD, () -> probe);
+		assertEquals(ServerCircuitBreaker.State.HALF_OPEN, breaker.getState(DEAD));
+		assertThrows(CircuitOpenException.class, () -> limiter.call(DEAD, () -> null));
+
+		probe.completeExceptionally(new ResourceAccessException("still down"));
+		assertTrue(probed.isCompletedExceptionally());
+		assertEquals(ServerCircuitBreaker.State.OPEN, breaker.getState(DEAD));
+		Thread.sleep(150);
+
+		limiter.call(DEAD, () -> null);
+		assertEquals(ServerCircuitBreaker.State.CLOSED, breaker.getState(DEAD));
+		assertFalse(limiter.callAsync(DEAD, () -> CompletableFuture.completedFuture(null)).isCompletedExceptionally());
+	}
+}
@@ -0,0 +1,154 @@
+package com.weather.sensors.services;
+
+import static com.weather.sensors.SensorBuilder.sensor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import com.weather.sensors.dto.ServerStatusDTO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ServerRateControllerTests {
+
+	private static final String SERVER = "http://measurements:8080";
+
+	private final List<String> released = new CopyOnWriteArrayList<>();
+	private final AtomicBoolean sinkAccepts = new AtomicBoolean(true);
+	private final ServerConcurrencyLimiter limiter = new ServerConcurrencyLimiter(new ServerCircuitBreaker(true, 5, 10000, 1, new SimpleMeterRegistry()), 2);
+	private ServerRateController controller;
+
+	@AfterEach
+	void tearDown() {
+		controller.shutdown();
+	}
+
+	@Test
+	void overloadCutsTheRateOnceAndRetryAfterPausesTheServer() {
+		controller = controller(100);
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.RETRY_AFTER, "30");
+		HttpClientErrorException tooManyRequests = HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "", headers, null, null);
+
+		controller.completed(SERVER, 1_000_000, 1, tooManyRequests);
+		controller.completed(SERVER, 1_000_000, 1, tooManyRequests);
+		assertEquals(50, controller.getRate(SERVER));
+		assertFalse(controller.admit(sensor(1).serverURL(SERVER).build(), 10, false));
+
+		controller.completed(SERVER, 1_000_000, 1, null);
+		assertTrue(controller.getRate(SERVER) > 50);
+
+		ServerStatusDTO status = new ServerStatusDTO();
+		controller.describe(SERVER, status);
+		assertNotNull(status.getPausedUntil());
+		assertTrue(status.getPausedUntil() > System.currentTimeMillis() + 25_000);
+		assertEquals(1, status.getPending());
+	}
+
+	@Test
+	void rateGrowsWithTheReadingsSentAndIgnoresOtherCalls() {
+		controller = controller(100);
+		controller.completed(SERVER, 1_000_000, 1, HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "", null, null, null));
+		assertEquals(50, controller.getRate(SERVER));
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.RETRY_AFTER, "30");
+		controller.completed(SERVER, 1_000_000, 0, HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "", headers, null, null));
+		controller.completed(SERVER, 1_000_000, 0, null);
+		assertEquals(50, controller.getRate(SERVER));
+		ServerStatusDTO status = new ServerStatusDTO();
+		controller.describe(SERVER, status);
+		assertNull(status.getPausedUntil());
+
+		// a batch of 25 readings raises the rate as much as 25 single sends: by 10 * 25 / 50
+		controller.completed(SERVER, 1_000_000, 25, null);
+		assertEquals(55, controller.getRate(SERVER));
+	}
+
+	@Test
+	void readingsOverTheLimitAreConflatedToTheLatestPerSensor() throws InterruptedException {
+		controller = controller(2);
+		assertTrue(controller.admit(sensor(1).serverURL(SERVER).build(), 10, false));
+		assertFalse(controller.admit(sensor(1).serverURL(SERVER).build(), 11, false));
+		assertFalse(controller.admit(sensor(1).serverURL(SERVER).build(), 12, true));
+		assertFalse(controller.admit(sensor(2).serverURL(SERVER).build(), 20, false));
+
+		Thread.sleep(1100);
+		controller.drain();
+
+		assertEquals(List.of("1:12.0:true", "2:20.0:false"), released.stream().sorted().toList());
+		ServerStatusDTO status = new ServerStatusDTO();
+		controller.describe(SERVER, status);
+		assertEquals(1, status.getConflated());
+		assertEquals(0, status.getPending());
+	}
+
+	@Test
+	void parkedSensorsAreReleasedInTurnWhileEarlierOnesKeepReporting() throws InterruptedException {
+		controller = new ServerRateController(limiter, true, 20, 1, 10, 0.5, 1000, 100, 60_000, 3_600_000, new SimpleMeterRegistry());
+		controller.setSink((sensor, temperature, raining) -> released.add(String.valueOf(sensor.getId())));
+		assertTrue(controller.admit(sensor(1).serverURL(SERVER).build(), 0, false));
+		for (int id = 1; id <= 10; id++) assertFalse(controller.admit(sensor(id).serverURL(SERVER).build(), 1, false));
+
+		// two tokens per pass for ten parked sensors, while sensors 1 and 2 report again before every pass
+		for (int pass = 0; pass < 20 && released.stream().distinct().count() < 10; pass++) {
+			controller.admit(sensor(1).serverURL(SERVER).build(), pass, false);
+			controller.admit(sensor(2).serverURL(SERVER).build(), pass, false);
+			Thread.sleep(100);
+			controller.drain();
+		}
+
+		assertEquals(10, released.stream().distinct().count(), released.toString());
+	}
+
+	@Test
+	void drainSkipsServersWithoutAFreeSlotAndKeepsReadingsTheSinkRefuses() throws InterruptedException {
+		controller = controller(10);
+		assertTrue(controller.admit(sensor(1).serverURL(SERVER).build(), 10, false));
+		assertFalse(controller.admit(sensor(1).serverURL(SERVER).build(), 11, false));
+		Thread.sleep(200);
+
+		CompletableFuture<Void> first = new CompletableFuture<>();
+		CompletableFuture<Void> second = new CompletableFuture<>();
+		limiter.callAsync(SERVER, () -> first);
+		limiter.callAsync(SERVER, () -> second);
+		controller.drain();
+		assertTrue(released.isEmpty());
+
+		first.complete(null);
+		sinkAccepts.set(false);
+		controller.drain();
+		assertTrue(released.isEmpty());
+		ServerStatusDTO status = new ServerStatusDTO();
+		controller.describe(SERVER, status);
+		assertEquals(1, status.getPending());
+
+		sinkAccepts.set(true);
+		controller.drain();
+		assertEquals(List.of("1:11.0:false"), released);
+		second.complete(null);
+	}
+
+	private ServerRateController controller(double maxRate) {
+		ServerRateController rateController = new ServerRateController(limiter, true, maxRate, 1, 10, 0.5, 1000, 1000, 60_000, 3_600_000, new SimpleMeterRegistry());
+		rateController.setSink((sensor, temperature, raining) -> {
+			if (!sinkAccepts.get()) return false;
+			released.add(sensor.getId() + ":" + temperature + ":" + raining);
+			return true;
+		});
+		return rateController;
+	}
+}
@@ -0,0 +1,113 @@
+package com.weather.sensors.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weather.sensors.dto.SensorDTO;
+import com.weather.sensors.SensorBuilder;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.repositories.SensorCache;
+import com.weather.sensors.repositories.SensorsRepository;
+import com.weather.sensors.util.SensorMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TokenRefreshManagerTests {
+
+	private final RestTemplate restTemplate = mock(RestTemplate.class);
+	private final SensorsRepository repository = mock(SensorsRepository.class);
+	private final SensorCache cache = mock(SensorCache.class);
+	private final TokenRefreshManager manager = new TokenRefreshManager(restTemplate, new SensorMapper(), new ServerConcurrencyLimiter(new ServerCircuitBreaker(true, 5, 10000, 1, new SimpleMeterRegistry()), 4), repository, cache,
+			new TransactionTemplate(mock(PlatformTransactionManager.class)), new ObjectMapper(), false, 0, 60_000, 0, 60_000, 10_000, 2, 4, 1000, ExecutionMode.PLATFORM, new SimpleMeterRegistry());
+
+	TokenRefreshManagerTests() {
+		when(restTemplate.postForEntity(eq("http://measurements:8080/update-token"), any(), eq(SensorDTO.class))).thenAnswer(invocation -> {
+			SensorDTO request = invocation.getArgument(1);
+			if (request.getId() == 13) throw new ResourceAccessException("connection reset");
+			SensorDTO response = new SensorDTO();
+			response.setId(request.getId());
+			response.setToken(request.getId() == 20 ? jwt(System.currentTimeMillis() / 1000 + 20) : "renewed-" + request.getId());
+			return ResponseEntity.ok(response);
+		});
+		when(repository.findAllById(any())).thenAnswer(invocation -> {
+			List<Sensor> sensors = new ArrayList<>();
+			for (Integer id : invocation.<Iterable<Integer>>getArgument(0)) sensors.add(sensor(id, "stored"));
+			return sensors;
+		});
+	}
+
+	@AfterEach
+	void tearDown() {
+		manager.shutdown();
+	}
+
+	@Test
+	void renewsDueTokensInBatchesAndUpdatesRunningSensorsInPlace() {
+		List<Sensor> running = List.of(sensor(1, jwt(System.currentTimeMillis() / 1000 + 30)), sensor(2, "opaque"), sensor(3, jwt(System.currentTimeMillis() / 1000 + 10)), sensor(4, jwt(System.currentTimeMillis() / 1000 + 3600)));
+		running.forEach(manager::track);
+		manager.expired(2);
+
+		manager.refreshDue();
+		manager.refreshDue();
+
+		assertEquals("renewed-1", running.get(0).getToken());
+		assertEquals("renewed-2", running.get(1).getToken());
+		assertEquals("renewed-3", running.get(2).getToken());
+		assertTrue(running.get(3).getToken().contains("."));
+		verify(cache, times(2)).saveAll(anyList());
+	}
+
+	@Test
+	void tokenIssuedForLessThanTheRefreshAheadIsNotRenewedOnEveryScan() {
+		Sensor shortLived = sensor(20, "opaque");
+		manager.track(shortLived);
+		manager.expired(20);
+
+		manager.refreshDue();
+		assertTrue(shortLived.getToken().contains("."));
+		manager.refreshDue();
+		manager.refreshDue();
+
+		verify(restTemplate, times(1)).postForEntity(eq("http://measurements:8080/update-token"), any(), eq(SensorDTO.class));
+	}
+
+	@Test
+	void reportsSensorsWhoseTokensCouldNotBeRenewed() {
+		Map<Integer, String> failures = manager.refresh(List.of(sensor(12, "old"), sensor(13, "old")));
+
+		assertEquals(Map.of(13, "connection reset"), failures);
+		verify(cache).saveAll(anyList());
+	}
+
+	private static String jwt(long exp) {
+		Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+		return encoder.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8)) + "."
+				+ encoder.encodeToString(("{\"exp\":" + exp + "}").getBytes(StandardCharsets.UTF_8)) + ".signature";
+	}
+
+	private static Sensor sensor(int id, String token) {
+		return SensorBuilder.sensor(id).token(token).serverURL("http://measurements:8080").registered().build();
+	}
+}
@@ -0,0 +1,152 @@
+package com.weather.sensors.shard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.weather.sensors.models.ShardNode;
+import com.weather.sensors.repositories.ShardNodeRepository;
+
+// several coordinators in one JVM share an embedded database; the migrations are PostgreSQL, so Hibernate creates the schema
+@DataJpaTest(properties = {
+		"spring.flyway.enabled=false",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.show_sql=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ShardCoordinatorTests {
+
+	private static final int SENSORS = 30_000;
+
+	@Autowired
+	private ShardNodeRepository repository;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	private final List<ShardCoordinator> coordinators = new ArrayList<>();
+
+	@AfterEach
+	void tearDown() {
+		coordinators.forEach(ShardCoordinator::leave);
+		repository.deleteAll();
+	}
+
+	@Test
+	void membersSplitSensorsEvenlyAndAgreeOnOwners() {
+		ShardCoordinator a = coordinator("node-a");
+		ShardCoordinator b = coordinator("node-b");
+		ShardCoordinator c = coordinator("node-c");
+		heartbeatAll();
+
+		int[] owned = new int[3];
+		for (int id = 1; id <= SENSORS; id++) {
+			int owners = 0;
+			for (int i = 0; i < 3; i++) {
+				if (coordinators.get(i).owns(id)) {
+					owned[i]++;
+					owners++;
+				}
+			}
+			assertEquals(1, owners, "sensor " + id);
+			assertEquals(a.ownerOf(id), c.ownerOf(id));
+		}
+		for (int count : owned) assertTrue(Math.abs(count - SENSORS / 3) < SENSORS / 30, "uneven split " + Arrays.toString(owned));
+		assertEquals(List.of("node-a", "node-b", "node-c"), b.getMembers());
+	}
+
+	@Test
+	void leavingNodeOnlyMovesItsOwnSensors() {
+		ShardCoordinator a = coordinator("node-a");
+		ShardCoordinator b = coordinator("node-b");
+		ShardCoordinator c = coordinator("node-c");
+		heartbeatAll();
+
+		String[] before = new String[SENSORS + 1];
+		for (int id = 1; id <= SENSORS; id++) before[id] = a.ownerOf(id);
+
+		AtomicInteger changes = new AtomicInteger();
+		a.addListener(changes::incrementAndGet);
+		c.leave();
+		coordinators.remove(c);
+		a.heartbeat();
+		b.heartbeat();
+
+		assertEquals(1, changes.get());
+		for (int id = 1; id <= SENSORS; id++) {
+			if (!"node-c".equals(before[id])) assertEquals(before[id], a.ownerOf(id), "sensor " + id);
+			assertEquals(a.ownerOf(id), b.ownerOf(id));
+			assertTrue(a.owns(id) != b.owns(id));
+		}
+	}
+
+	@Test
+	void longDeadLeasesAreRemoved() {
+		ShardNode dead = new ShardNode();
+		dead.setNodeId("node-dead");
+		dead.setHeartbeatAt(repository.currentTimeMillis() - 21 * 60_000);
+		repository.save(dead);
+
+		ShardCoordinator a = coordinator("node-a");
+		a.heartbeat();
+
+		assertEquals(List.of("node-a"), a.getMembers());
+		assertFalse(repository.existsById("node-dead"));
+	}
+
+	@Test
+	void nodeThatCannotRenewItsLeaseGivesUpItsSensorsOnceTheLeaseIsOver() throws InterruptedException {
+		ShardNodeRepository failing = mock(ShardNodeRepository.class, AdditionalAnswers.delegatesTo(repository));
+		ShardCoordinator a = coordinator("node-a", repository, 300);
+		ShardCoordinator b = coordinator("node-b", failing, 300);
+		heartbeatAll();
+		assertEquals(List.of("node-a", "node-b"), b.getMembers());
+
+		doThrow(new DataAccessResourceFailureException("connection lost")).when(failing).save(any());
+		b.heartbeat();
+		assertEquals(List.of("node-a", "node-b"), b.getMembers());
+
+		Thread.sleep(400);
+		a.heartbeat();
+		b.heartbeat();
+
+		assertEquals(List.of("node-a"), a.getMembers());
+		assertEquals(List.of(), b.getMembers());
+		for (int id = 1; id <= 1000; id++) {
+			assertTrue(a.owns(id));
+			assertFalse(b.owns(id));
+		}
+	}
+
+	private ShardCoordinator coordinator(String nodeId) {
+		return coordinator(nodeId, repository, 60_000);
+	}
+
+	private ShardCoordinator coordinator(String nodeId, ShardNodeRepository shardNodeRepository, long lease) {
+		ShardCoordinator coordinator = new ShardCoordinator(shardNodeRepository, new TransactionTemplate(transactionManager), true, nodeId, 60_000, lease);
+		coordinators.add(coordinator);
+		return coordinator;
+	}
+
+	private void heartbeatAll() {
+		coordinators.forEach(ShardCoordinator::heartbeat);
+		coordinators.forEach(ShardCoordinator::heartbeat);
+	}
+}
@@ -0,0 +1,60 @@
+package com.weather.sensors.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class RandomWalkWeatherSimulatorTests {
+
+	private static final int SENSORS = 5000;
+
+	@Test
+	void simulatorsWithTheSameSeedReplayTheSameReadingsPerSlot() {
+		WeatherSimulator first = simulator(7);
+		WeatherSimulator second = simulator(7);
+
+		for (int step = 0; step < 20; step++) {
+			for (int slot = 0; slot < SENSORS; slot++) first.advance(slot);
+			for (int slot = SENSORS - 1; slot >= 0; slot--) second.advance(slot);
+
+			for (int slot = 0; slot < SENSORS; slot++) {
+				assertEquals(first.temperature(slot), second.temperature(slot));
+				assertEquals(first.raining(slot), second.raining(slot));
+			}
+		}
+	}
+
+	@Test
+	void readingsStayWithinRangeAndAccuracy() {
+		WeatherSimulator simulator = simulator(11);
+		int raining = 0;
+		for (int step = 0; step < 50; step++) {
+			for (int slot = 0; slot < SENSORS; slot++) {
+				simulator.advance(slot);
+				double temperature = simulator.temperature(slot);
+				assertTrue(temperature >= -40 && temperature <= 40, "temperature out of range: " + temperature);
+				assertEquals(Math.round(temperature * 100) / 100.0, temperature);
+				if (simulator.raining(slot)) raining++;
+			}
+		}
+		double rainShare = raining / (50.0 * SENSORS);
+		assertTrue(rainShare > 0.35 && rainShare < 0.45, "stationary rain share is 0.4: " + rainShare);
+	}
+
+	@Test
+	void releasedSlotsAreReused() {
+		WeatherSimulator simulator = simulator(3);
+		simulator.release(42);
+
+		assertEquals(SENSORS - 1, simulator.activeSlots());
+		assertEquals(42, simulator.register());
+		assertEquals(SENSORS, simulator.activeSlots());
+	}
+
+	private static WeatherSimulator simulator(long seed) {
+		WeatherSimulator simulator = new RandomWalkWeatherSimulator(seed);
+		for (int i = 0; i < SENSORS; i++) simulator.register();
+		return simulator;
+	}
+}
@@ -0,0 +1,105 @@
+package com.weather.sensors.transport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class HttpClientTransportTests {
+
+	private final CountDownLatch release = new CountDownLatch(1);
+	private HttpServer server;
+	private String baseURL;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/ok", exchange -> respond(exchange, 200));
+		server.createContext("/missing", exchange -> respond(exchange, 404));
+		server.createContext("/busy", exchange -> {
+			exchange.getResponseHeaders().add("Retry-After", "30");
+			respond(exchange, 503);
+		});
+		server.createContext("/held", exchange -> {
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			respond(exchange, 200);
+		});
+		server.start();
+		baseURL = "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		server.stop(0);
+	}
+
+	@Test
+	void errorStatusesBecomeTheRestTemplateExceptions() {
+		HttpClientTransport transport = transport(5000, 4);
+
+		transport.post(baseURL + "/ok", new byte[] {'{', '}'}, MediaType.APPLICATION_JSON).join();
+
+		ExecutionException missing = assertThrows(ExecutionException.class, () -> transport.post(baseURL + "/missing", new byte[0], MediaType.APPLICATION_JSON).get());
+		assertInstanceOf(HttpClientErrorException.NotFound.class, missing.getCause());
+
+		ExecutionException busy = assertThrows(ExecutionException.class, () -> transport.post(baseURL + "/busy", new byte[0], MediaType.APPLICATION_JSON).get());
+		HttpServerErrorException unavailable = assertInstanceOf(HttpServerErrorException.ServiceUnavailable.class, busy.getCause());
+		assertEquals("30", unavailable.getResponseHeaders().getFirst("Retry-After"));
+		assertEquals(4, transport.getAvailableSlots());
+	}
+
+	@Test
+	void postsBeyondMaxInFlightWaitForASlotAndSlowAnswersTimeOut() throws Exception {
+		HttpClientTransport transport = transport(300, 1);
+
+		CompletableFuture<Void> held = transport.post(baseURL + "/held", new byte[0], MediaType.APPLICATION_JSON);
+		assertEquals(0, transport.getAvailableSlots());
+		CompletableFuture<CompletableFuture<Void>> waiting = CompletableFuture.supplyAsync(() -> transport.post(baseURL + "/ok", new byte[0], MediaType.APPLICATION_JSON));
+		Thread.sleep(100);
+		assertFalse(waiting.isDone());
+
+		ExecutionException timedOut = assertThrows(ExecutionException.class, () -> held.get(5, TimeUnit.SECONDS));
+		assertInstanceOf(ResourceAccessException.class, timedOut.getCause());
+		waiting.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+		assertEquals(1, transport.getAvailableSlots());
+	}
+
+	private static HttpClientTransport transport(long readTimeout, int maxInFlight) {
+		return new HttpClientTransport(new ObjectMapper(), 2000, readTimeout, false, maxInFlight);
+	}
+
+	private static void respond(HttpExchange exchange, int status) throws IOException {
+		exchange.getRequestBody().readAllBytes();
+		byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(status, body.length);
+		exchange.getResponseBody().write(body);
+		exchange.close();
+	}
+}
@@ -0,0 +1,74 @@
+package com.weather.sensors.transport;
+
+import static com.weather.sensors.SensorBuilder.sensor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.weather.sensors.models.Sensor;
+
+class MeasurementFrameWriterTests {
+
+	@Test
+	void singleReadingFrameCarriesTokenAndReading() {
+		Sensor sensor = sensor(42).name("roof").token("tökén").serverURL("http://localhost:8080").sessionId(123456789.5).build();
+
+		byte[] frame = MeasurementFrameWriter.forCurrentThread().writeSensor(sensor, -12.07, true, 1_700_000_000_123L).toByteArray();
+
+		ByteBuffer buffer = ByteBuffer.wrap(frame);
+		assertEquals('W', buffer.get());
+		assertEquals('M', buffer.get());
+		assertEquals(MeasurementFrameWriter.VERSION, buffer.get());
+		assertEquals(0, buffer.get());
+		byte[] token = new byte[buffer.getShort()];
+		buffer.get(token);
+		assertEquals("tökén", new String(token, StandardCharsets.UTF_8));
+		assertEquals(1, buffer.getInt());
+		assertEquals(42, buffer.getInt());
+		assertEquals(123456789.5, buffer.getDouble());
+		assertEquals(1_700_000_000_123L, buffer.getLong());
+		assertEquals(-12.07, buffer.getDouble());
+		assertEquals(1, buffer.get());
+		assertEquals(0, buffer.remaining());
+
+		byte[] json = MeasurementJsonWriter.forCurrentThread().writeSensor(sensor, -12.07, true).toByteArray();
+		assertTrue(frame.length * 3 < json.length, frame.length + " vs " + json.length);
+	}
+
+	@Test
+	void renewedTokenIsEncodedAgain() {
+		Sensor sensor = sensor(1).token("old").build();
+		assertEquals("old", new String(sensor.getTokenBytes(), StandardCharsets.UTF_8));
+		assertSame(sensor.getTokenBytes(), sensor.getTokenBytes());
+
+		sensor.setToken("renewed");
+		ByteBuffer buffer = ByteBuffer.wrap(MeasurementFrameWriter.forCurrentThread().writeSensor(sensor, 1, false, 0).toByteArray());
+		buffer.position(4);
+		byte[] token = new byte[buffer.getShort()];
+		buffer.get(token);
+		assertEquals("renewed", new String(token, StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void batchFrameCountsItsReadings() {
+		MeasurementFrameWriter writer = MeasurementFrameWriter.forCurrentThread().begin(null);
+		for (int i = 0; i < 100; i++) writer.reading(i, 7, 1000L + i, i / 4.0, i % 2 == 0);
+
+		ByteBuffer buffer = ByteBuffer.wrap(writer.toByteArray());
+		buffer.position(4);
+		assertEquals(0, buffer.getShort());
+		assertEquals(100, buffer.getInt());
+		assertEquals(100 * MeasurementFrameWriter.READING_BYTES, buffer.remaining());
+		buffer.position(buffer.position() + 99 * MeasurementFrameWriter.READING_BYTES);
+		assertEquals(99, buffer.getInt());
+		assertEquals(7.0, buffer.getDouble());
+		assertEquals(1099L, buffer.getLong());
+		assertEquals(24.75, buffer.getDouble());
+		assertEquals(0, buffer.get());
+	}
+}
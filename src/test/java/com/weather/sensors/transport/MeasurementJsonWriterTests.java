@@ -0,0 +1,47 @@
+package com.weather.sensors.transport;
+
+import static com.weather.sensors.SensorBuilder.sensor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weather.sensors.dto.MeasurementDTO;
+import com.weather.sensors.models.Sensor;
+import com.weather.sensors.models.WeatherData;
+import com.weather.sensors.util.SensorMapper;
+
+class MeasurementJsonWriterTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final SensorMapper sensorMapper = new SensorMapper();
+
+	@Test
+	void sensorMatchesJacksonSensorDTO() throws Exception {
+		Sensor sensor = sensor(42).name("roof \"north\" – ünit 🌧").token("t\\o\nken").serverURL("http://localhost:8080")
+				.registered().sessionId(123456789).measureInterval(5000).deadbandTemperature(0.25).build();
+
+		for (double temperature : new double[] {-40, -0.05, 0, 0.29, 12.3, 39.99, 1.0 / 3, -0.0}) {
+			WeatherData weatherData = new WeatherData();
+			weatherData.setTemperature(temperature);
+			weatherData.setRaining(temperature > 0);
+			sensor.setWeatherData(weatherData);
+
+			byte[] json = MeasurementJsonWriter.forCurrentThread().writeSensor(sensor, temperature, temperature > 0).toByteArray();
+
+			assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(sensorMapper.toDTO(sensor))), objectMapper.readTree(json));
+			assertEquals(objectMapper.writeValueAsString(temperature), objectMapper.readTree(json).get("weatherData").get("temperature").toString());
+		}
+	}
+
+	@Test
+	void measurementsMatchJackson() throws Exception {
+		List<MeasurementDTO> measurements = List.of(new MeasurementDTO(1, 0.5, -12.07, true), new MeasurementDTO(2, 7, 25, false));
+
+		byte[] json = MeasurementJsonWriter.forCurrentThread().writeMeasurements(measurements).toByteArray();
+
+		assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(measurements)), objectMapper.readTree(json));
+	}
+}